@@ -23,4 +23,7 @@ public interface EventConstants {
 
   String INITIALIZE = "initialize";
   String SELECTOR_INITIALIZE = SELECTOR_NAME + " = '" + INITIALIZE + "'";
+
+  String TABLES_CHANGED = "tables-changed";
+  String SELECTOR_TABLES_CHANGED = SELECTOR_NAME + " = '" + TABLES_CHANGED + "'";
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.api.v1.client;
+
+import io.mifos.reporting.api.v1.domain.Column;
+import io.mifos.reporting.api.v1.domain.ColumnarReportPage;
+import io.mifos.reporting.api.v1.domain.ReportPage;
+import io.mifos.reporting.api.v1.domain.Row;
+import io.mifos.reporting.api.v1.domain.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Converts report pages to and from their columnar form. A column holds the values of all its cells in one array,
+ * or as codes into a dictionary when only a few distinct values repeat. Cells without a value are marked in a
+ * base64 bitmap; offsets are only sent when a cell holds more than one value.
+ */
+public final class ColumnarReportPages {
+
+  private static final int MAXIMUM_DICTIONARY_SIZE = 256;
+
+  private ColumnarReportPages() {
+    super();
+  }
+
+  public static ColumnarReportPage encode(final ReportPage reportPage) {
+    final List<Row> rows = reportPage.getRows() != null ? reportPage.getRows() : Collections.emptyList();
+
+    final int[] rowWidths = new int[rows.size()];
+    int columnCount = 0;
+    boolean ragged = false;
+    for (int i = 0; i < rowWidths.length; i++) {
+      rowWidths[i] = rows.get(i).getValues() != null ? rows.get(i).getValues().size() : 0;
+      ragged |= i > 0 && rowWidths[i] != rowWidths[0];
+      columnCount = Math.max(columnCount, rowWidths[i]);
+    }
+
+    final List<String> columnNames = reportPage.getHeader() != null && reportPage.getHeader().getColumnNames() != null
+        ? reportPage.getHeader().getColumnNames()
+        : Collections.emptyList();
+    final ArrayList<Column> columns = new ArrayList<>(columnCount);
+    for (int column = 0; column < columnCount; column++) {
+      columns.add(encodeColumn(rows, column, column < columnNames.size() ? columnNames.get(column) : null));
+    }
+
+    final ColumnarReportPage columnarReportPage = new ColumnarReportPage();
+    columnarReportPage.setName(reportPage.getName());
+    columnarReportPage.setDescription(reportPage.getDescription());
+    columnarReportPage.setGeneratedOn(reportPage.getGeneratedOn());
+    columnarReportPage.setGeneratedBy(reportPage.getGeneratedBy());
+    columnarReportPage.setHeader(reportPage.getHeader());
+    columnarReportPage.setRowCount(rows.size());
+    columnarReportPage.setRowWidths(ragged ? rowWidths : null);
+    columnarReportPage.setColumns(columns);
+    columnarReportPage.setFooter(reportPage.getFooter());
+    columnarReportPage.setHasMore(reportPage.isHasMore());
+    columnarReportPage.setNextPageToken(reportPage.getNextPageToken());
+    columnarReportPage.setTotalCount(reportPage.getTotalCount());
+    columnarReportPage.setPageCount(reportPage.getPageCount());
+    columnarReportPage.setCountMode(reportPage.getCountMode());
+    return columnarReportPage;
+  }
+
+  public static ReportPage decode(final ColumnarReportPage columnarReportPage) {
+    final int rowCount = columnarReportPage.getRowCount();
+    final List<Column> columns = columnarReportPage.getColumns() != null
+        ? columnarReportPage.getColumns()
+        : Collections.emptyList();
+
+    final ArrayList<String[][]> cells = new ArrayList<>(columns.size());
+    columns.forEach(column -> cells.add(decodeColumn(column, rowCount)));
+
+    final ArrayList<Row> rows = new ArrayList<>(rowCount);
+    for (int i = 0; i < rowCount; i++) {
+      final int width = columnarReportPage.getRowWidths() != null
+          ? columnarReportPage.getRowWidths()[i]
+          : columns.size();
+      final Row row = new Row();
+      row.setValues(new ArrayList<>(width));
+      for (int column = 0; column < width; column++) {
+        final Value value = new Value();
+        value.setValues(cells.get(column)[i]);
+        value.setType(columns.get(column).getType());
+        row.getValues().add(value);
+      }
+      rows.add(row);
+    }
+
+    final ReportPage reportPage = new ReportPage();
+    reportPage.setName(columnarReportPage.getName());
+    reportPage.setDescription(columnarReportPage.getDescription());
+    reportPage.setGeneratedOn(columnarReportPage.getGeneratedOn());
+    reportPage.setGeneratedBy(columnarReportPage.getGeneratedBy());
+    reportPage.setHeader(columnarReportPage.getHeader());
+    reportPage.setRows(rows);
+    reportPage.setFooter(columnarReportPage.getFooter());
+    reportPage.setHasMore(columnarReportPage.isHasMore());
+    reportPage.setNextPageToken(columnarReportPage.getNextPageToken());
+    reportPage.setTotalCount(columnarReportPage.getTotalCount());
+    reportPage.setPageCount(columnarReportPage.getPageCount());
+    reportPage.setCountMode(columnarReportPage.getCountMode());
+    return reportPage;
+  }
+
+  private static Column encodeColumn(final List<Row> rows, final int column, final String name) {
+    final Column encodedColumn = new Column();
+    encodedColumn.setName(name);
+
+    final byte[] nulls = new byte[(rows.size() + 7) / 8];
+    final int[] offsets = new int[rows.size() + 1];
+    boolean hasNulls = false;
+    boolean multiValued = false;
+    final ArrayList<String> values = new ArrayList<>(rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      final List<Value> rowValues = rows.get(i).getValues();
+      final Value value = rowValues != null && column < rowValues.size() ? rowValues.get(column) : null;
+      final String[] cellValues = value != null && value.getValues() != null ? value.getValues() : new String[0];
+
+      if (value != null && value.getType() != null && encodedColumn.getType() == null) {
+        encodedColumn.setType(value.getType());
+      }
+      if (cellValues.length == 0) {
+        nulls[i >> 3] |= 1 << (i & 7);
+        hasNulls = true;
+      }
+      multiValued |= cellValues.length > 1;
+      values.addAll(Arrays.asList(cellValues));
+      offsets[i + 1] = values.size();
+    }
+
+    if (multiValued) {
+      encodedColumn.setOffsets(offsets);
+    } else if (hasNulls) {
+      encodedColumn.setNulls(Base64.getEncoder().encodeToString(nulls));
+    }
+
+    final HashMap<String, Integer> dictionary = new HashMap<>();
+    final int[] codes = new int[values.size()];
+    for (int i = 0; i < codes.length && dictionary.size() <= MAXIMUM_DICTIONARY_SIZE; i++) {
+      final Integer code = dictionary.computeIfAbsent(values.get(i), ignored -> dictionary.size());
+      codes[i] = code;
+    }
+    // a dictionary only pays off when values repeat, unique identifiers are sent as they are
+    if (dictionary.size() <= MAXIMUM_DICTIONARY_SIZE && dictionary.size() * 2 <= values.size()) {
+      final String[] entries = new String[dictionary.size()];
+      dictionary.forEach((entry, code) -> entries[code] = entry);
+      encodedColumn.setDictionary(entries);
+      encodedColumn.setCodes(codes);
+    } else {
+      encodedColumn.setValues(values.toArray(new String[values.size()]));
+    }
+    return encodedColumn;
+  }
+
+  private static String[][] decodeColumn(final Column column, final int rowCount) {
+    final String[] values;
+    if (column.getDictionary() != null) {
+      final int[] codes = column.getCodes() != null ? column.getCodes() : new int[0];
+      values = new String[codes.length];
+      for (int i = 0; i < codes.length; i++) {
+        values[i] = column.getDictionary()[codes[i]];
+      }
+    } else {
+      values = column.getValues() != null ? column.getValues() : new String[0];
+    }
+
+    final byte[] nulls = column.getNulls() != null ? Base64.getDecoder().decode(column.getNulls()) : null;
+    final String[][] cells = new String[rowCount][];
+    int next = 0;
+    for (int i = 0; i < rowCount; i++) {
+      if (column.getOffsets() != null) {
+        cells[i] = Arrays.copyOfRange(values, column.getOffsets()[i], column.getOffsets()[i + 1]);
+      } else if (nulls != null && (nulls[i >> 3] & (1 << (i & 7))) != 0) {
+        cells[i] = new String[0];
+      } else {
+        cells[i] = new String[]{values[next++]};
+      }
+    }
+    return cells;
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.api.v1.client;
+
+import io.mifos.core.api.util.UserContext;
+import io.mifos.core.api.util.UserContextHolder;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.reporting.api.v1.domain.ReportPage;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.api.v1.domain.Row;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Walks all rows of a report, page by page. A background thread fetches the following pages while the caller
+ * consumes the current one, and blocks once the given number of pages is buffered, so a slow consumer holds the
+ * fetcher back instead of piling pages up. Pages are followed by their next page token where the report offers
+ * one, by page index otherwise.
+ *
+ * The iterator has to be closed when it is abandoned before the last row, to stop the fetcher.
+ */
+public class PrefetchingReportIterator implements Iterator<Row>, AutoCloseable {
+
+  private static final Fetched END = new Fetched(null, null);
+
+  private final ReportManager reportManager;
+  private final String category;
+  private final String identifier;
+  private final ReportRequest reportRequest;
+  private final int size;
+  private final BlockingQueue<Fetched> fetchedPages;
+  private final Thread fetcher;
+
+  private Iterator<Row> currentRows = Collections.emptyIterator();
+  private boolean exhausted;
+  private volatile boolean closed;
+
+  public PrefetchingReportIterator(final ReportManager reportManager, final String category, final String identifier,
+                                   final ReportRequest reportRequest, final int size, final int prefetchPages) {
+    super();
+    if (prefetchPages < 1) {
+      throw new IllegalArgumentException("At least one page has to be prefetched.");
+    }
+    this.reportManager = reportManager;
+    this.category = category;
+    this.identifier = identifier;
+    this.reportRequest = reportRequest;
+    this.size = size;
+    this.fetchedPages = new ArrayBlockingQueue<>(prefetchPages);
+
+    // the client reads tenant and user from thread locals, the fetcher works on behalf of the caller
+    final String tenantIdentifier = TenantContextHolder.identifier().orElse(null);
+    final UserContext userContext = UserContextHolder.getUserContext().orElse(null);
+    this.fetcher = new Thread(() -> {
+      if (tenantIdentifier != null) {
+        TenantContextHolder.setIdentifier(tenantIdentifier);
+      }
+      if (userContext != null) {
+        UserContextHolder.setUserContext(userContext);
+      }
+      try {
+        this.fetchPages();
+      } finally {
+        TenantContextHolder.clear();
+        UserContextHolder.clear();
+      }
+    }, "report-prefetch-" + category + "-" + identifier);
+    this.fetcher.setDaemon(true);
+    this.fetcher.start();
+  }
+
+  public Stream<Row> stream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+        false).onClose(this::close);
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!this.currentRows.hasNext()) {
+      if (this.exhausted) {
+        return false;
+      }
+
+      final Fetched fetched;
+      try {
+        fetched = this.fetchedPages.take();
+      } catch (final InterruptedException iex) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for report page.", iex);
+      }
+
+      if (fetched == END) {
+        this.exhausted = true;
+      } else if (fetched.failure != null) {
+        this.exhausted = true;
+        throw fetched.failure;
+      } else if (fetched.reportPage.getRows() != null) {
+        this.currentRows = fetched.reportPage.getRows().iterator();
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Row next() {
+    if (!this.hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return this.currentRows.next();
+  }
+
+  @Override
+  public void close() {
+    this.closed = true;
+    this.fetcher.interrupt();
+    this.fetchedPages.clear();
+  }
+
+  private void fetchPages() {
+    Fetched last = END;
+    try {
+      int pageIndex = 0;
+      String pageToken = null;
+      while (!this.closed) {
+        final ReportPage reportPage = pageToken != null
+            ? this.reportManager.generateReport(this.category, this.identifier, this.reportRequest, null, this.size,
+                pageToken)
+            : this.reportManager.generateReport(this.category, this.identifier, this.reportRequest, pageIndex,
+                this.size);
+        this.fetchedPages.put(new Fetched(reportPage, null));
+        if (!reportPage.isHasMore()) {
+          break;
+        }
+        pageToken = reportPage.getNextPageToken();
+        pageIndex++;
+      }
+    } catch (final RuntimeException rex) {
+      last = new Fetched(null, rex);
+    } catch (final InterruptedException ignored) {
+      // closed by the consumer
+      return;
+    }
+
+    try {
+      if (!this.closed) {
+        this.fetchedPages.put(last);
+      }
+    } catch (final InterruptedException ignored) {
+      // closed by the consumer
+    }
+  }
+
+  private static class Fetched {
+
+    private final ReportPage reportPage;
+    private final RuntimeException failure;
+
+    private Fetched(final ReportPage reportPage, final RuntimeException failure) {
+      super();
+      this.reportPage = reportPage;
+      this.failure = failure;
+    }
+  }
+}
@@ -20,9 +20,13 @@ import io.mifos.core.api.annotation.ThrowsExceptions;
 import io.mifos.core.api.util.CustomFeignClientsConfiguration;
 import io.mifos.core.lang.ServiceException;
 import io.mifos.reporting.api.v1.PermittableGroupIds;
+import io.mifos.reporting.api.v1.domain.CacheStatistics;
+import io.mifos.reporting.api.v1.domain.ColumnarReportPage;
 import io.mifos.reporting.api.v1.domain.ReportDefinition;
+import io.mifos.reporting.api.v1.domain.ReportJob;
 import io.mifos.reporting.api.v1.domain.ReportPage;
 import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.api.v1.domain.ReportStatistics;
 import org.springframework.cloud.netflix.feign.FeignClient;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -36,7 +40,11 @@ import org.springframework.web.bind.annotation.RequestParam;
 import java.util.List;
 
 @SuppressWarnings("unused")
-@FeignClient(value="reporting-v1", path="/reporting/v1", configuration = CustomFeignClientsConfiguration.class)
+@FeignClient(
+    value="reporting-v1",
+    path="/reporting/v1",
+    configuration = {CustomFeignClientsConfiguration.class, SmileFeignClientsConfiguration.class}
+)
 public interface ReportManager {
 
   @RequestMapping(
@@ -73,6 +81,78 @@ public interface ReportManager {
                             @RequestParam(value = "pageIndex", required = false) final Integer pageIndex,
                             @RequestParam(value = "size", required = false) final Integer size);
 
+  @RequestMapping(
+      value = "/categories/{category}/reports/{identifier}",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ReportNotFoundException.class),
+      @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = ReportParameterValidationException.class)
+  })
+  ReportPage generateReport(@PathVariable("category") final String category,
+                            @PathVariable("identifier") final String identifier,
+                            @RequestBody final ReportRequest reportRequest,
+                            @RequestParam(value = "pageIndex", required = false) final Integer pageIndex,
+                            @RequestParam(value = "size", required = false) final Integer size,
+                            @RequestParam(value = "pageToken", required = false) final String pageToken);
+
+  @RequestMapping(
+      value = "/categories/{category}/reports/{identifier}",
+      method = RequestMethod.POST,
+      produces = ColumnarReportPage.MEDIA_TYPE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ReportNotFoundException.class),
+      @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = ReportParameterValidationException.class)
+  })
+  ColumnarReportPage generateColumnarReport(@PathVariable("category") final String category,
+                                            @PathVariable("identifier") final String identifier,
+                                            @RequestBody final ReportRequest reportRequest,
+                                            @RequestParam(value = "pageIndex", required = false) final Integer pageIndex,
+                                            @RequestParam(value = "size", required = false) final Integer size,
+                                            @RequestParam(value = "pageToken", required = false) final String pageToken);
+
+  @RequestMapping(
+      value = "/categories/{category}/reports/{identifier}/jobs",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ReportNotFoundException.class),
+      @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = ReportParameterValidationException.class)
+  })
+  ReportJob submitReportJob(@PathVariable("category") final String category,
+                            @PathVariable("identifier") final String identifier,
+                            @RequestBody final ReportRequest reportRequest);
+
+  @RequestMapping(
+      value = "/jobs/{jobIdentifier}",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ReportNotFoundException.class)
+  })
+  ReportJob fetchReportJob(@PathVariable("jobIdentifier") final String jobIdentifier);
+
+  @RequestMapping(
+      value = "/jobs/{jobIdentifier}/pages",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ReportNotFoundException.class)
+  })
+  ReportPage fetchReportJobPage(@PathVariable("jobIdentifier") final String jobIdentifier,
+                                @RequestParam(value = "pageIndex", required = false) final Integer pageIndex,
+                                @RequestParam(value = "size", required = false) final Integer size);
+
   @RequestMapping(
       value = "categories/{category}/definitions/{identifier}",
       method = RequestMethod.GET,
@@ -83,4 +163,50 @@ public interface ReportManager {
   })
   ReportDefinition findReportDefinition(@PathVariable("category") final String category,
                                         @PathVariable("identifier") final String identifier);
+
+  @RequestMapping(
+      value = "/metrics/query-plans",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  CacheStatistics fetchQueryPlanStatistics();
+
+  @RequestMapping(
+      value = "/metrics/report-results",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  CacheStatistics fetchReportResultStatistics();
+
+  @RequestMapping(
+      value = "/metrics/reports",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  List<ReportStatistics> fetchReportStatistics();
+
+  @RequestMapping(
+      value = "/autocomplete",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  List<String> fetchAutoCompleteResources();
+
+  @RequestMapping(
+      value = "/autocomplete/{resource}",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ReportNotFoundException.class),
+      @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = ReportParameterValidationException.class)
+  })
+  List<String> completeTerm(@PathVariable("resource") final String resource,
+                            @RequestParam(value = "term", required = false) final String term,
+                            @RequestParam(value = "limit", required = false) final Integer limit);
 }
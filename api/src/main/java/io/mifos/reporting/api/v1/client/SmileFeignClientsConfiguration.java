@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.api.v1.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import feign.RequestInterceptor;
+import feign.Response;
+import feign.codec.Decoder;
+import feign.gson.GsonDecoder;
+import io.mifos.reporting.api.v1.ReportingMediaTypes;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Lets the report manager ask for Smile wherever it would otherwise accept JSON. JSON stays acceptable at a lower
+ * quality, so endpoints without a binary form answer as before and are decoded as before.
+ */
+public class SmileFeignClientsConfiguration {
+
+  private static final String ACCEPT_SMILE = ReportingMediaTypes.SMILE + ", " + MediaType.APPLICATION_JSON_VALUE + ";q=0.9";
+
+  public SmileFeignClientsConfiguration() {
+    super();
+  }
+
+  @Bean
+  public Decoder feignDecoder() {
+    return new SmileDecoder(new GsonDecoder());
+  }
+
+  @Bean
+  public RequestInterceptor smileAcceptInterceptor() {
+    return template -> {
+      final Collection<String> accept = template.headers().get(HttpHeaders.ACCEPT);
+      if (accept == null || accept.isEmpty()
+          || accept.stream().allMatch(value -> value.equals(MediaType.APPLICATION_JSON_VALUE)
+          || value.equals(MediaType.ALL_VALUE))) {
+        template.header(HttpHeaders.ACCEPT, (String) null);
+        template.header(HttpHeaders.ACCEPT, ACCEPT_SMILE);
+      }
+    };
+  }
+
+  private static class SmileDecoder implements Decoder {
+
+    private final Decoder delegate;
+    private final ObjectMapper objectMapper;
+
+    private SmileDecoder(final Decoder delegate) {
+      super();
+      this.delegate = delegate;
+      this.objectMapper = new ObjectMapper(new SmileFactory())
+          .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    @Override
+    public Object decode(final Response response, final Type type) throws IOException {
+      if (response.body() == null || !isSmile(response)) {
+        return this.delegate.decode(response, type);
+      }
+      try (final InputStream inputStream = response.body().asInputStream()) {
+        return this.objectMapper.readValue(inputStream, this.objectMapper.constructType(type));
+      }
+    }
+
+    private static boolean isSmile(final Response response) {
+      for (final Map.Entry<String, Collection<String>> header : response.headers().entrySet()) {
+        if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(header.getKey())) {
+          return header.getValue().stream().anyMatch(value -> value.startsWith(ReportingMediaTypes.SMILE));
+        }
+      }
+      return false;
+    }
+  }
+}
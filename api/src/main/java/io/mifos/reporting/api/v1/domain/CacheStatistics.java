@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.api.v1.domain;
+
+public class CacheStatistics {
+
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long invalidations;
+  private long size;
+  private long weight;
+
+  public CacheStatistics() {
+    super();
+  }
+
+  public long getHits() {
+    return this.hits;
+  }
+
+  public void setHits(final long hits) {
+    this.hits = hits;
+  }
+
+  public long getMisses() {
+    return this.misses;
+  }
+
+  public void setMisses(final long misses) {
+    this.misses = misses;
+  }
+
+  public long getEvictions() {
+    return this.evictions;
+  }
+
+  public void setEvictions(final long evictions) {
+    this.evictions = evictions;
+  }
+
+  public long getInvalidations() {
+    return this.invalidations;
+  }
+
+  public void setInvalidations(final long invalidations) {
+    this.invalidations = invalidations;
+  }
+
+  public long getSize() {
+    return this.size;
+  }
+
+  public void setSize(final long size) {
+    this.size = size;
+  }
+
+  public long getWeight() {
+    return this.weight;
+  }
+
+  public void setWeight(final long weight) {
+    this.weight = weight;
+  }
+}
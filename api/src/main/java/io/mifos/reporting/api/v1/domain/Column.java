@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.api.v1.domain;
+
+public class Column {
+
+  private String name;
+  private Type type;
+  private String[] values;
+  private String[] dictionary;
+  private int[] codes;
+  private int[] offsets;
+  private String nulls;
+
+  public Column() {
+    super();
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public void setName(final String name) {
+    this.name = name;
+  }
+
+  public Type getType() {
+    return this.type;
+  }
+
+  public void setType(final Type type) {
+    this.type = type;
+  }
+
+  public String[] getValues() {
+    return this.values;
+  }
+
+  public void setValues(final String[] values) {
+    this.values = values;
+  }
+
+  public String[] getDictionary() {
+    return this.dictionary;
+  }
+
+  public void setDictionary(final String[] dictionary) {
+    this.dictionary = dictionary;
+  }
+
+  public int[] getCodes() {
+    return this.codes;
+  }
+
+  public void setCodes(final int[] codes) {
+    this.codes = codes;
+  }
+
+  public int[] getOffsets() {
+    return this.offsets;
+  }
+
+  public void setOffsets(final int[] offsets) {
+    this.offsets = offsets;
+  }
+
+  public String getNulls() {
+    return this.nulls;
+  }
+
+  public void setNulls(final String nulls) {
+    this.nulls = nulls;
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.api.v1.domain;
+
+import java.util.List;
+
+public class ColumnarReportPage {
+
+  public static final String MEDIA_TYPE = "application/vnd.mifos.reporting.columnar+json";
+
+  private String name;
+  private String description;
+  private String generatedOn;
+  private String generatedBy;
+  private Header header;
+  private int rowCount;
+  private int[] rowWidths;
+  private List<Column> columns;
+  private Footer footer;
+  private boolean hasMore;
+  private String nextPageToken;
+  private Long totalCount;
+  private Long pageCount;
+  private CountMode countMode;
+
+  public ColumnarReportPage() {
+    super();
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public void setName(final String name) {
+    this.name = name;
+  }
+
+  public String getDescription() {
+    return this.description;
+  }
+
+  public void setDescription(final String description) {
+    this.description = description;
+  }
+
+  public String getGeneratedOn() {
+    return this.generatedOn;
+  }
+
+  public void setGeneratedOn(final String generatedOn) {
+    this.generatedOn = generatedOn;
+  }
+
+  public String getGeneratedBy() {
+    return this.generatedBy;
+  }
+
+  public void setGeneratedBy(final String generatedBy) {
+    this.generatedBy = generatedBy;
+  }
+
+  public Header getHeader() {
+    return this.header;
+  }
+
+  public void setHeader(final Header header) {
+    this.header = header;
+  }
+
+  public int getRowCount() {
+    return this.rowCount;
+  }
+
+  public void setRowCount(final int rowCount) {
+    this.rowCount = rowCount;
+  }
+
+  public int[] getRowWidths() {
+    return this.rowWidths;
+  }
+
+  public void setRowWidths(final int[] rowWidths) {
+    this.rowWidths = rowWidths;
+  }
+
+  public List<Column> getColumns() {
+    return this.columns;
+  }
+
+  public void setColumns(final List<Column> columns) {
+    this.columns = columns;
+  }
+
+  public Footer getFooter() {
+    return this.footer;
+  }
+
+  public void setFooter(final Footer footer) {
+    this.footer = footer;
+  }
+
+  public void setHasMore(final boolean hasMore) {
+    this.hasMore = hasMore;
+  }
+
+  public boolean isHasMore() {
+    return this.hasMore;
+  }
+
+  public String getNextPageToken() {
+    return this.nextPageToken;
+  }
+
+  public void setNextPageToken(final String nextPageToken) {
+    this.nextPageToken = nextPageToken;
+  }
+
+  public Long getTotalCount() {
+    return this.totalCount;
+  }
+
+  public void setTotalCount(final Long totalCount) {
+    this.totalCount = totalCount;
+  }
+
+  public Long getPageCount() {
+    return this.pageCount;
+  }
+
+  public void setPageCount(final Long pageCount) {
+    this.pageCount = pageCount;
+  }
+
+  public CountMode getCountMode() {
+    return this.countMode;
+  }
+
+  public void setCountMode(final CountMode countMode) {
+    this.countMode = countMode;
+  }
+}
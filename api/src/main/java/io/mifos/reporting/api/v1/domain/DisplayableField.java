@@ -15,11 +15,15 @@
  */
 package io.mifos.reporting.api.v1.domain;
 
+import java.util.List;
+
 public class DisplayableField {
 
   private String name;
   private Type type;
   private Boolean mandatory;
+  // aggregates the field supports, set on report definitions only, requests choose theirs in ReportRequest
+  private List<Aggregate> aggregates;
 
   public DisplayableField() {
     super();
@@ -48,4 +52,12 @@ public class DisplayableField {
   public void setMandatory(final Boolean mandatory) {
     this.mandatory = mandatory;
   }
+
+  public List<Aggregate> getAggregates() {
+    return this.aggregates;
+  }
+
+  public void setAggregates(final List<Aggregate> aggregates) {
+    this.aggregates = aggregates;
+  }
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.api.v1.domain;
+
+import java.util.List;
+
+public class PhaseStatistics {
+
+  private String phase;
+  private long count;
+  private double totalMillis;
+  // bucket i counts durations below 2^i milliseconds, the last bucket also counts all longer ones
+  private List<Long> histogram;
+
+  public PhaseStatistics() {
+    super();
+  }
+
+  public String getPhase() {
+    return this.phase;
+  }
+
+  public void setPhase(final String phase) {
+    this.phase = phase;
+  }
+
+  public long getCount() {
+    return this.count;
+  }
+
+  public void setCount(final long count) {
+    this.count = count;
+  }
+
+  public double getTotalMillis() {
+    return this.totalMillis;
+  }
+
+  public void setTotalMillis(final double totalMillis) {
+    this.totalMillis = totalMillis;
+  }
+
+  public List<Long> getHistogram() {
+    return this.histogram;
+  }
+
+  public void setHistogram(final List<Long> histogram) {
+    this.histogram = histogram;
+  }
+}
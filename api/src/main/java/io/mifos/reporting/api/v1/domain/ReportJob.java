@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.api.v1.domain;
+
+public class ReportJob {
+
+  public enum State {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+  }
+
+  private String identifier;
+  private String category;
+  private String reportIdentifier;
+  private State state;
+  private String submittedBy;
+  private String submittedOn;
+  private String finishedOn;
+  private Long rowCount;
+  private String message;
+
+  public ReportJob() {
+    super();
+  }
+
+  public String getIdentifier() {
+    return this.identifier;
+  }
+
+  public void setIdentifier(final String identifier) {
+    this.identifier = identifier;
+  }
+
+  public String getCategory() {
+    return this.category;
+  }
+
+  public void setCategory(final String category) {
+    this.category = category;
+  }
+
+  public String getReportIdentifier() {
+    return this.reportIdentifier;
+  }
+
+  public void setReportIdentifier(final String reportIdentifier) {
+    this.reportIdentifier = reportIdentifier;
+  }
+
+  public State getState() {
+    return this.state;
+  }
+
+  public void setState(final State state) {
+    this.state = state;
+  }
+
+  public String getSubmittedBy() {
+    return this.submittedBy;
+  }
+
+  public void setSubmittedBy(final String submittedBy) {
+    this.submittedBy = submittedBy;
+  }
+
+  public String getSubmittedOn() {
+    return this.submittedOn;
+  }
+
+  public void setSubmittedOn(final String submittedOn) {
+    this.submittedOn = submittedOn;
+  }
+
+  public String getFinishedOn() {
+    return this.finishedOn;
+  }
+
+  public void setFinishedOn(final String finishedOn) {
+    this.finishedOn = finishedOn;
+  }
+
+  public Long getRowCount() {
+    return this.rowCount;
+  }
+
+  public void setRowCount(final Long rowCount) {
+    this.rowCount = rowCount;
+  }
+
+  public String getMessage() {
+    return this.message;
+  }
+
+  public void setMessage(final String message) {
+    this.message = message;
+  }
+}
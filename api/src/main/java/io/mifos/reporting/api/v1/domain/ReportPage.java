@@ -27,6 +27,10 @@ public class ReportPage {
   private List<Row> rows;
   private Footer footer;
   private boolean hasMore;
+  private String nextPageToken;
+  private Long totalCount;
+  private Long pageCount;
+  private CountMode countMode;
 
   public ReportPage() {
     super();
@@ -95,4 +99,36 @@ public class ReportPage {
   public boolean isHasMore() {
     return hasMore;
   }
+
+  public String getNextPageToken() {
+    return this.nextPageToken;
+  }
+
+  public void setNextPageToken(final String nextPageToken) {
+    this.nextPageToken = nextPageToken;
+  }
+
+  public Long getTotalCount() {
+    return this.totalCount;
+  }
+
+  public void setTotalCount(final Long totalCount) {
+    this.totalCount = totalCount;
+  }
+
+  public Long getPageCount() {
+    return this.pageCount;
+  }
+
+  public void setPageCount(final Long pageCount) {
+    this.pageCount = pageCount;
+  }
+
+  public CountMode getCountMode() {
+    return this.countMode;
+  }
+
+  public void setCountMode(final CountMode countMode) {
+    this.countMode = countMode;
+  }
 }
@@ -16,11 +16,14 @@
 package io.mifos.reporting.api.v1.domain;
 
 import java.util.List;
+import java.util.Map;
 
 public class ReportRequest {
 
   private List<QueryParameter> queryParameters;
   private List<DisplayableField> displayableFields;
+  private Map<String, List<Aggregate>> aggregates;
+  private CountMode countMode;
 
   public ReportRequest() {
     super();
@@ -41,4 +44,20 @@ public class ReportRequest {
   public void setDisplayableFields(final List<DisplayableField> displayableFields) {
     this.displayableFields = displayableFields;
   }
+
+  public Map<String, List<Aggregate>> getAggregates() {
+    return this.aggregates;
+  }
+
+  public void setAggregates(final Map<String, List<Aggregate>> aggregates) {
+    this.aggregates = aggregates;
+  }
+
+  public CountMode getCountMode() {
+    return this.countMode;
+  }
+
+  public void setCountMode(final CountMode countMode) {
+    this.countMode = countMode;
+  }
 }
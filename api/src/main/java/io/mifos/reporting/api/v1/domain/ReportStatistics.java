@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.api.v1.domain;
+
+import java.util.List;
+
+public class ReportStatistics {
+
+  private String category;
+  private String identifier;
+  private long requests;
+  private long statements;
+  private long rows;
+  private long bytes;
+  private List<PhaseStatistics> phases;
+
+  public ReportStatistics() {
+    super();
+  }
+
+  public String getCategory() {
+    return this.category;
+  }
+
+  public void setCategory(final String category) {
+    this.category = category;
+  }
+
+  public String getIdentifier() {
+    return this.identifier;
+  }
+
+  public void setIdentifier(final String identifier) {
+    this.identifier = identifier;
+  }
+
+  public long getRequests() {
+    return this.requests;
+  }
+
+  public void setRequests(final long requests) {
+    this.requests = requests;
+  }
+
+  public long getStatements() {
+    return this.statements;
+  }
+
+  public void setStatements(final long statements) {
+    this.statements = statements;
+  }
+
+  public long getRows() {
+    return this.rows;
+  }
+
+  public void setRows(final long rows) {
+    this.rows = rows;
+  }
+
+  public long getBytes() {
+    return this.bytes;
+  }
+
+  public void setBytes(final long bytes) {
+    this.bytes = bytes;
+  }
+
+  public List<PhaseStatistics> getPhases() {
+    return this.phases;
+  }
+
+  public void setPhases(final List<PhaseStatistics> phases) {
+    this.phases = phases;
+  }
+}
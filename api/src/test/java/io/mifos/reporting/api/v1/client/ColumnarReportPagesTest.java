@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.api.v1.client;
+
+import io.mifos.reporting.api.v1.domain.Column;
+import io.mifos.reporting.api.v1.domain.ColumnarReportPage;
+import io.mifos.reporting.api.v1.domain.Header;
+import io.mifos.reporting.api.v1.domain.ReportPage;
+import io.mifos.reporting.api.v1.domain.Row;
+import io.mifos.reporting.api.v1.domain.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ColumnarReportPagesTest {
+
+  public ColumnarReportPagesTest() {
+    super();
+  }
+
+  @Test
+  public void shouldRoundTripNullCells() {
+    final ReportPage reportPage = page(
+        row(cell("a"), cell()),
+        row(cell(), cell("b")),
+        row(cell("c"), cell("d")));
+
+    final ColumnarReportPage columnarReportPage = ColumnarReportPages.encode(reportPage);
+    Assert.assertNotNull(columnarReportPage.getColumns().get(0).getNulls());
+    Assert.assertNull(columnarReportPage.getColumns().get(0).getOffsets());
+    Assert.assertNull(columnarReportPage.getRowWidths());
+
+    assertRoundTrip(reportPage, columnarReportPage);
+  }
+
+  @Test
+  public void shouldRoundTripMultiValuedCells() {
+    final ReportPage reportPage = page(
+        row(cell("a", "b"), cell("x")),
+        row(cell(), cell("y")),
+        row(cell("c"), cell("z")),
+        row(cell("d", "e", "f"), cell()));
+
+    final ColumnarReportPage columnarReportPage = ColumnarReportPages.encode(reportPage);
+    Assert.assertNotNull(columnarReportPage.getColumns().get(0).getOffsets());
+    Assert.assertNull(columnarReportPage.getColumns().get(1).getOffsets());
+
+    assertRoundTrip(reportPage, columnarReportPage);
+  }
+
+  @Test
+  public void shouldRoundTripDictionaryAndPlainColumns() {
+    final ArrayList<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      rows.add(row(cell("customer-" + i), cell(i % 3 == 0 ? "ACTIVE" : "CLOSED"), i % 5 == 0 ? cell() : cell("x")));
+    }
+    final ReportPage reportPage = page(rows.toArray(new Row[rows.size()]));
+
+    final ColumnarReportPage columnarReportPage = ColumnarReportPages.encode(reportPage);
+    final Column plainColumn = columnarReportPage.getColumns().get(0);
+    Assert.assertNull(plainColumn.getDictionary());
+    Assert.assertEquals(20, plainColumn.getValues().length);
+    final Column dictionaryColumn = columnarReportPage.getColumns().get(1);
+    Assert.assertNull(dictionaryColumn.getValues());
+    Assert.assertEquals(2, dictionaryColumn.getDictionary().length);
+    Assert.assertEquals(20, dictionaryColumn.getCodes().length);
+    final Column dictionaryColumnWithNulls = columnarReportPage.getColumns().get(2);
+    Assert.assertEquals(1, dictionaryColumnWithNulls.getDictionary().length);
+    Assert.assertNotNull(dictionaryColumnWithNulls.getNulls());
+
+    assertRoundTrip(reportPage, columnarReportPage);
+  }
+
+  @Test
+  public void shouldRoundTripRaggedTotalRows() {
+    final ReportPage reportPage = page(
+        row(cell("1000"), cell("Cash"), cell("250.000")),
+        row(cell("1100"), cell("Receivables"), cell("750.000")),
+        row(cell("TOTAL ASSETS 1000.000")),
+        row(cell("2000"), cell("Payables"), cell()),
+        row(cell("TOTAL LIABILITIES 0.000")));
+
+    final ColumnarReportPage columnarReportPage = ColumnarReportPages.encode(reportPage);
+    Assert.assertArrayEquals(new int[]{3, 3, 1, 3, 1}, columnarReportPage.getRowWidths());
+    Assert.assertEquals(3, columnarReportPage.getColumns().size());
+
+    assertRoundTrip(reportPage, columnarReportPage);
+  }
+
+  private static void assertRoundTrip(final ReportPage reportPage, final ColumnarReportPage columnarReportPage) {
+    final ReportPage decoded = ColumnarReportPages.decode(columnarReportPage);
+    Assert.assertEquals(reportPage.getHeader().getColumnNames(), decoded.getHeader().getColumnNames());
+    Assert.assertEquals(reportPage.getRows().size(), decoded.getRows().size());
+    for (int i = 0; i < reportPage.getRows().size(); i++) {
+      final List<Value> expected = reportPage.getRows().get(i).getValues();
+      final List<Value> actual = decoded.getRows().get(i).getValues();
+      Assert.assertEquals("width of row " + i, expected.size(), actual.size());
+      for (int column = 0; column < expected.size(); column++) {
+        Assert.assertArrayEquals("row " + i + ", column " + column,
+            expected.get(column).getValues(), actual.get(column).getValues());
+      }
+    }
+  }
+
+  private static ReportPage page(final Row... rows) {
+    final Header header = new Header();
+    header.setColumnNames(Arrays.asList("First", "Second", "Third"));
+    final ReportPage reportPage = new ReportPage();
+    reportPage.setHeader(header);
+    reportPage.setRows(Arrays.asList(rows));
+    return reportPage;
+  }
+
+  private static Row row(final Value... values) {
+    final Row row = new Row();
+    row.setValues(new ArrayList<>(Arrays.asList(values)));
+    return row;
+  }
+
+  private static Value cell(final String... values) {
+    final Value value = new Value();
+    value.setValues(values);
+    return value;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.api.v1.client;
+
+import io.mifos.reporting.api.v1.domain.ReportPage;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.api.v1.domain.Row;
+import io.mifos.reporting.api.v1.domain.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class PrefetchingReportIteratorTest {
+
+  public PrefetchingReportIteratorTest() {
+    super();
+  }
+
+  @Test
+  public void shouldFollowPageTokensToTheLastRow() {
+    final AtomicInteger fetches = new AtomicInteger();
+    final ReportManager reportManager = reportManager(5, 3, fetches);
+
+    try (final PrefetchingReportIterator iterator =
+             new PrefetchingReportIterator(reportManager, "Test", "Listing", new ReportRequest(), 3, 2)) {
+      final List<String> rows = iterator.stream()
+          .map(row -> row.getValues().get(0).getValues()[0])
+          .collect(Collectors.toList());
+
+      Assert.assertEquals(15, rows.size());
+      Assert.assertEquals("row-0", rows.get(0));
+      Assert.assertEquals("row-14", rows.get(14));
+    }
+    Assert.assertEquals(5, fetches.get());
+  }
+
+  @Test
+  public void shouldStopPrefetchingAtTheBufferLimit() throws InterruptedException {
+    final AtomicInteger fetches = new AtomicInteger();
+    final ReportManager reportManager = reportManager(100, 1, fetches);
+
+    try (final PrefetchingReportIterator iterator =
+             new PrefetchingReportIterator(reportManager, "Test", "Listing", new ReportRequest(), 1, 2)) {
+      iterator.next();
+      Thread.sleep(200L);
+      // the page being consumed, two buffered pages and the one the fetcher is blocked on
+      Assert.assertTrue(fetches.get() <= 4);
+    }
+  }
+
+  private static ReportManager reportManager(final int pages, final int size, final AtomicInteger fetches) {
+    return (ReportManager) Proxy.newProxyInstance(ReportManager.class.getClassLoader(),
+        new Class<?>[]{ReportManager.class},
+        (proxy, method, arguments) -> {
+          if (!method.getName().equals("generateReport")) {
+            throw new UnsupportedOperationException(method.getName());
+          }
+          final int pageIndex = arguments.length > 5 && arguments[5] != null
+              ? Integer.parseInt((String) arguments[5])
+              : (Integer) arguments[3];
+          fetches.incrementAndGet();
+
+          final ArrayList<Row> rows = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            final Value value = new Value();
+            value.setValues(new String[]{"row-" + (pageIndex * size + i)});
+            final Row row = new Row();
+            row.setValues(new ArrayList<>());
+            row.getValues().add(value);
+            rows.add(row);
+          }
+
+          final ReportPage reportPage = new ReportPage();
+          reportPage.setRows(rows);
+          reportPage.setHasMore(pageIndex + 1 < pages);
+          reportPage.setNextPageToken(Integer.toString(pageIndex + 1));
+          return reportPage;
+        });
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.benchmark;
+
+import io.mifos.reporting.api.v1.domain.QueryParameter;
+import io.mifos.reporting.api.v1.domain.Type;
+import io.mifos.reporting.service.spi.CriteriaBuilder;
+import io.mifos.reporting.service.spi.QueryParameterBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.persistence.Query;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CriteriaBuilderBenchmark {
+
+  @Param({"EQUALS", "IN", "LIKE", "BETWEEN", "GREATER", "LESSER"})
+  public String operator;
+
+  private QueryParameter queryParameter;
+  private List<QueryParameter> queryParameters;
+
+  @Setup
+  public void setup() {
+    final QueryParameter.Operator operator = QueryParameter.Operator.valueOf(this.operator);
+    this.queryParameter = QueryParameterBuilder.create("Date range", Type.TEXT).operator(operator).build();
+    switch (operator) {
+      case IN:
+        this.queryParameter.setValue("ACTIVE,PENDING,LOCKED,CLOSED,CREATED");
+        break;
+      case BETWEEN:
+        this.queryParameter.setValue("2017-01-01..2017-12-31");
+        break;
+      default:
+        this.queryParameter.setValue("2017-06-30");
+    }
+    this.queryParameters = Collections.singletonList(this.queryParameter);
+  }
+
+  @Benchmark
+  public String buildCriteria() {
+    return CriteriaBuilder.buildCriteria("cst.created_on", this.queryParameter, 0);
+  }
+
+  @Benchmark
+  public Query bindCriteria() {
+    final Query query = StubEntityManager.createQuery(0);
+    CriteriaBuilder.bindCriteria(query, this.queryParameters);
+    return query;
+  }
+}
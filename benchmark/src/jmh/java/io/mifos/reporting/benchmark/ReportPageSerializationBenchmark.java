@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.mifos.reporting.api.v1.client.ColumnarReportPages;
+import io.mifos.reporting.api.v1.domain.Header;
+import io.mifos.reporting.api.v1.domain.ReportPage;
+import io.mifos.reporting.api.v1.domain.Row;
+import io.mifos.reporting.api.v1.domain.Value;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes and parses report pages the way the REST layer and the report manager do, for every negotiable
+ * encoding. The size of the encoded page is reported as an auxiliary counter next to the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReportPageSerializationBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  public int rows;
+
+  @Param({"8"})
+  public int columns;
+
+  @Param({"json", "smile", "cbor"})
+  public String format;
+
+  @Param({"rows", "columnar"})
+  public String layout;
+
+  private ObjectMapper objectMapper;
+  private Object page;
+  private byte[] encodedPage;
+
+  @Setup
+  public void setup() {
+    this.objectMapper = new ObjectMapper(ReportPageSerializationBenchmark.createFactory(this.format));
+
+    final Header header = new Header();
+    header.setColumnNames(new ArrayList<>());
+    for (int column = 0; column < this.columns; column++) {
+      header.getColumnNames().add("Column " + column);
+    }
+
+    final ArrayList<Row> rows = new ArrayList<>(this.rows);
+    for (int index = 0; index < this.rows; index++) {
+      final Row row = new Row();
+      row.setValues(new ArrayList<>(this.columns));
+      for (int column = 0; column < this.columns; column++) {
+        final Value value = new Value();
+        value.setValues(new String[]{"value-" + index + "-" + column});
+        row.getValues().add(value);
+      }
+      rows.add(row);
+    }
+
+    final ReportPage reportPage = new ReportPage();
+    reportPage.setName("Benchmark Listing");
+    reportPage.setDescription("Synthetic report page.");
+    reportPage.setGeneratedBy("benchmark");
+    reportPage.setGeneratedOn("2017-01-01T00:00:00.000Z");
+    reportPage.setHeader(header);
+    reportPage.setRows(rows);
+
+    this.page = this.layout.equals("columnar") ? ColumnarReportPages.encode(reportPage) : reportPage;
+    try {
+      this.encodedPage = this.objectMapper.writeValueAsBytes(this.page);
+    } catch (final IOException ioex) {
+      throw new UncheckedIOException(ioex);
+    }
+  }
+
+  @Benchmark
+  public byte[] serialize(final EncodedSize encodedSize) throws Exception {
+    final byte[] bytes = this.objectMapper.writeValueAsBytes(this.page);
+    encodedSize.bytes = bytes.length;
+    return bytes;
+  }
+
+  @Benchmark
+  public Object deserialize() throws Exception {
+    return this.objectMapper.readValue(this.encodedPage, this.page.getClass());
+  }
+
+  private static JsonFactory createFactory(final String format) {
+    switch (format) {
+      case "smile":
+        return new SmileFactory();
+      case "cbor":
+        return new CBORFactory();
+      default:
+        return new JsonFactory();
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class EncodedSize {
+    public long bytes;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.benchmark;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Answers the sub-queries a specification issues while building rows, without a database. Every key bound as a
+ * collection parameter yields the configured number of rows, a single bound key yields one row. All rows carry
+ * the key first, followed by text and a decimal, which satisfies every specification's row builder.
+ */
+public class StubEntityManager {
+
+  private StubEntityManager() {
+    super();
+  }
+
+  public static EntityManager create(final int rowsPerKey) {
+    return (EntityManager) Proxy.newProxyInstance(
+        EntityManager.class.getClassLoader(),
+        new Class<?>[]{EntityManager.class},
+        (proxy, method, args) -> {
+          if (method.getName().equals("createNativeQuery")) {
+            return StubEntityManager.createQuery(rowsPerKey);
+          }
+          throw new UnsupportedOperationException(method.getName());
+        });
+  }
+
+  public static Query createQuery(final int rowsPerKey) {
+    final HashMap<String, Object> parameters = new HashMap<>();
+    return (Query) Proxy.newProxyInstance(
+        Query.class.getClassLoader(),
+        new Class<?>[]{Query.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "setParameter":
+              parameters.put(args[0].toString(), args[1]);
+              return proxy;
+            case "setFirstResult":
+            case "setMaxResults":
+              return proxy;
+            case "getResultList":
+              return StubEntityManager.buildResults(parameters, rowsPerKey);
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  private static List<Object> buildResults(final HashMap<String, Object> parameters, final int rowsPerKey) {
+    final ArrayList<Object> results = new ArrayList<>();
+    for (final Object parameter : parameters.values()) {
+      if (parameter instanceof Collection) {
+        for (final Object key : (Collection<?>) parameter) {
+          for (int i = 0; i < rowsPerKey; i++) {
+            results.add(StubEntityManager.buildRow(key, i));
+          }
+        }
+        return results;
+      }
+    }
+    results.add(StubEntityManager.buildRow(parameters.isEmpty() ? "key" : parameters.values().iterator().next(), 0));
+    return results;
+  }
+
+  private static Object[] buildRow(final Object key, final int index) {
+    return new Object[]{key, "text-" + index, "1234.50", "text", "text", "text", "text", Integer.toString(index)};
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.specification;
+
+import io.mifos.reporting.api.v1.domain.DisplayableField;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.api.v1.domain.Row;
+import io.mifos.reporting.benchmark.StubEntityManager;
+import io.mifos.reporting.service.spi.QueryPlanCache;
+import io.mifos.reporting.service.spi.ReportSpecification;
+import io.mifos.reporting.service.spi.SectionExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds each specification's row builder with synthetic results of the page size. Sub-queries issued while
+ * building rows are answered by a stub entity manager, so only assembly is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReportAssemblyBenchmark {
+
+  @Param({"20", "100", "1000"})
+  public int size;
+
+  @Param({"3"})
+  public int rowsPerKey;
+
+  private SectionExecutor sectionExecutor;
+
+  private CustomerListReportSpecification customerList;
+  private DepositListReportSpecification depositList;
+  private LoanListReportSpecification loanList;
+  private EmployeeListReportSpecification employeeList;
+  private OfficeListReportSpecification officeList;
+  private TellerListReportSpecification tellerList;
+  private TellerTransactionReportSpecification tellerTransactions;
+  private BalanceSheetReportSpecification balanceSheet;
+  private IncomeStatementReportSpecification incomeStatement;
+
+  private List<Object[]> listingResults;
+  private List<Object[]> balanceSheetResults;
+  private List<Object[]> incomeStatementResults;
+  private Object[] incomeStatementTotals;
+
+  @Setup
+  public void setup() {
+    final Logger logger = NOPLogger.NOP_LOGGER;
+    final EntityManager entityManager = StubEntityManager.create(this.rowsPerKey);
+    final QueryPlanCache queryPlanCache = new QueryPlanCache(1024);
+    this.sectionExecutor = new SectionExecutor(4, 16);
+
+    this.customerList = new CustomerListReportSpecification(logger, entityManager, queryPlanCache, this.sectionExecutor);
+    this.depositList = new DepositListReportSpecification(logger, entityManager, queryPlanCache);
+    this.loanList = new LoanListReportSpecification(logger, entityManager, queryPlanCache);
+    this.employeeList = new EmployeeListReportSpecification(logger, entityManager, queryPlanCache);
+    this.officeList = new OfficeListReportSpecification(logger, entityManager, queryPlanCache);
+    this.tellerList = new TellerListReportSpecification(logger, entityManager, queryPlanCache);
+    this.tellerTransactions = new TellerTransactionReportSpecification(logger, entityManager, queryPlanCache, 100);
+    this.balanceSheet = new BalanceSheetReportSpecification(logger, entityManager);
+    this.incomeStatement = new IncomeStatementReportSpecification(logger, entityManager, this.sectionExecutor);
+
+    this.listingResults = new ArrayList<>(this.size);
+    for (int i = 0; i < this.size; i++) {
+      this.listingResults.add(new Object[]{"key-" + i, "text", "text", "text", "text"});
+    }
+
+    this.balanceSheetResults = this.buildAccountResults(this.balanceSheet, "ASSET", "LIABILITY", "EQUITY");
+    this.incomeStatementResults = this.buildAccountResults(this.incomeStatement, "REVENUE", "EXPENSE");
+    this.incomeStatementTotals = new Object[]{
+        new BigDecimal("1000.000"), new BigDecimal("400.000"), new BigDecimal("600.000")
+    };
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.sectionExecutor.shutdown();
+  }
+
+  @Benchmark
+  public List<Row> customerListing() {
+    return this.customerList.buildRows(ReportAssemblyBenchmark.requestAll(this.customerList), this.listingResults);
+  }
+
+  @Benchmark
+  public List<Row> depositListing() {
+    return this.depositList.buildRows(ReportAssemblyBenchmark.requestAll(this.depositList), this.listingResults);
+  }
+
+  @Benchmark
+  public List<Row> loanListing() {
+    return this.loanList.buildRows(ReportAssemblyBenchmark.requestAll(this.loanList), this.listingResults);
+  }
+
+  @Benchmark
+  public List<Row> employeeListing() {
+    return this.employeeList.buildRows(ReportAssemblyBenchmark.requestAll(this.employeeList), this.listingResults);
+  }
+
+  @Benchmark
+  public List<Row> officeListing() {
+    return this.officeList.buildRows(ReportAssemblyBenchmark.requestAll(this.officeList), this.listingResults);
+  }
+
+  @Benchmark
+  public List<Row> tellerListing() {
+    return this.tellerList.buildRows(ReportAssemblyBenchmark.requestAll(this.tellerList), this.listingResults);
+  }
+
+  @Benchmark
+  public List<Row> tellerTransactions() {
+    return this.tellerTransactions.buildRows(
+        ReportAssemblyBenchmark.requestAll(this.tellerTransactions), this.listingResults);
+  }
+
+  @Benchmark
+  public List<Row> balanceSheet() {
+    return this.balanceSheet.buildRows(ReportAssemblyBenchmark.requestAll(this.balanceSheet), this.balanceSheetResults);
+  }
+
+  @Benchmark
+  public List<Row> incomeStatement() {
+    return this.incomeStatement.buildRows(this.incomeStatementResults, this.incomeStatementTotals);
+  }
+
+  private static ReportRequest requestAll(final ReportSpecification reportSpecification) {
+    final ReportRequest reportRequest = new ReportRequest();
+    reportRequest.setQueryParameters(Collections.emptyList());
+    reportRequest.setDisplayableFields(reportSpecification.getReportDefinition().getDisplayableFields());
+    return reportRequest;
+  }
+
+  // one column per displayable field, followed by the section type the statements group their accounts by
+  private List<Object[]> buildAccountResults(final ReportSpecification reportSpecification, final String... sections) {
+    final List<DisplayableField> displayableFields = reportSpecification.getReportDefinition().getDisplayableFields();
+    final ArrayList<Object[]> results = new ArrayList<>(this.size);
+    for (int i = 0; i < this.size; i++) {
+      final Object[] result = new Object[displayableFields.size() + 1];
+      for (int column = 0; column < displayableFields.size(); column++) {
+        result[column] = displayableFields.get(column).getName().equals("Balance")
+            ? new BigDecimal("1234.500")
+            : "text-" + i;
+      }
+      result[displayableFields.size()] = sections[i * sections.length / this.size];
+      results.add(result);
+    }
+    return results;
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting;
+
+import io.mifos.core.lang.AutoTenantContext;
+import io.mifos.reporting.service.internal.autocomplete.AutoCompleteIndex;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestAutoCompleteIndex {
+
+    private static final String TENANT = "auto-complete";
+    private static final List<String> FROM_DATABASE = Collections.singletonList("from database");
+
+    private volatile List<String> columnValues;
+    private volatile CountDownLatch loading;
+    private AtomicInteger loads;
+    private AutoCompleteIndex autoCompleteIndex;
+
+    public TestAutoCompleteIndex() {
+        super();
+    }
+
+    @Before
+    public void prepare() {
+        this.columnValues = Arrays.asList("Anna", "anna", "Annabel", "Bert", "bertha", "Carl", "Ann%");
+        this.loads = new AtomicInteger();
+
+        final Query loadQuery = Mockito.mock(Query.class);
+        Mockito.when(loadQuery.getResultList()).thenAnswer(invocation -> {
+            if (this.loading != null) {
+                this.loading.await();
+            }
+            this.loads.incrementAndGet();
+            return this.columnValues;
+        });
+        final Query prefixQuery = Mockito.mock(Query.class);
+        Mockito.when(prefixQuery.getResultList()).thenReturn(FROM_DATABASE);
+
+        final EntityManager entityManager = Mockito.mock(EntityManager.class);
+        Mockito.when(entityManager.createNativeQuery(Mockito.anyString())).thenAnswer(
+                invocation -> invocation.getArguments()[0].toString().contains("IS NOT NULL") ? loadQuery : prefixQuery);
+
+        this.autoCompleteIndex = new AutoCompleteIndex(
+                LoggerFactory.getLogger(TestAutoCompleteIndex.class), entityManager, 300L, 100, 1, 1);
+    }
+
+    @After
+    public void shutdown() {
+        this.autoCompleteIndex.shutdown();
+    }
+
+    @Test
+    public void shouldCompleteFromDatabaseUntilLoaded() throws InterruptedException {
+        try (final AutoTenantContext ignored = new AutoTenantContext(TENANT)) {
+            Assert.assertEquals(FROM_DATABASE, this.autoCompleteIndex.complete("customers", "an", 10));
+            this.awaitLoaded();
+            Assert.assertEquals(1, this.loads.get());
+        }
+    }
+
+    @Test
+    public void shouldCompletePrefixIgnoringCase() throws InterruptedException {
+        try (final AutoTenantContext ignored = new AutoTenantContext(TENANT)) {
+            this.awaitLoaded();
+
+            Assert.assertEquals(Arrays.asList("Ann%", "Anna", "anna", "Annabel"),
+                    this.autoCompleteIndex.complete("customers", "ANN", 10));
+            Assert.assertEquals(Arrays.asList("Anna", "anna", "Annabel"),
+                    this.autoCompleteIndex.complete("customers", "anna", 10));
+            Assert.assertEquals(Arrays.asList("Bert", "bertha"),
+                    this.autoCompleteIndex.complete("customers", "bErT", 10));
+            Assert.assertEquals(Collections.singletonList("Ann%"),
+                    this.autoCompleteIndex.complete("customers", "ann%", 10));
+        }
+    }
+
+    @Test
+    public void shouldCompleteEdgeCases() throws InterruptedException {
+        try (final AutoTenantContext ignored = new AutoTenantContext(TENANT)) {
+            this.awaitLoaded();
+
+            Assert.assertEquals(Arrays.asList("Ann%", "Anna", "anna"),
+                    this.autoCompleteIndex.complete("customers", "", 3));
+            Assert.assertEquals(Arrays.asList("Ann%", "Anna"),
+                    this.autoCompleteIndex.complete("customers", "a", 2));
+            Assert.assertEquals(Collections.emptyList(), this.autoCompleteIndex.complete("customers", "an", 0));
+            Assert.assertEquals(Collections.emptyList(), this.autoCompleteIndex.complete("customers", "b%", 10));
+            Assert.assertEquals(Collections.emptyList(), this.autoCompleteIndex.complete("customers", "annabella", 10));
+            Assert.assertEquals(Collections.emptyList(), this.autoCompleteIndex.complete("customers", "zz", 10));
+            Assert.assertEquals(Collections.singletonList("Carl"),
+                    this.autoCompleteIndex.complete("customers", "carl", 10));
+        }
+    }
+
+    @Test
+    public void shouldReloadStaleTerms() throws InterruptedException {
+        try (final AutoTenantContext ignored = new AutoTenantContext(TENANT)) {
+            this.awaitLoaded();
+            this.columnValues = Arrays.asList("Anna", "Annette");
+
+            this.autoCompleteIndex.invalidate("another tenant", Collections.singletonList("maat_customers"));
+            this.autoCompleteIndex.invalidate(TENANT, Collections.singletonList("horus_offices"));
+            Assert.assertEquals(Arrays.asList("Anna", "anna", "Annabel"),
+                    this.autoCompleteIndex.complete("customers", "anna", 10));
+            Thread.sleep(100L);
+            Assert.assertEquals(1, this.loads.get());
+
+            this.autoCompleteIndex.invalidate(TENANT, Collections.singletonList("maat_customers"));
+            // the previous terms are served while the changed ones are loaded
+            final List<String> completions = this.autoCompleteIndex.complete("customers", "anne", 10);
+            Assert.assertTrue(completions.isEmpty() || completions.equals(Collections.singletonList("Annette")));
+            for (int attempt = 0; attempt < 100 && this.loads.get() < 2; attempt++) {
+                Thread.sleep(10L);
+            }
+            for (int attempt = 0; attempt < 100
+                    && this.autoCompleteIndex.complete("customers", "anne", 10).isEmpty(); attempt++) {
+                Thread.sleep(10L);
+            }
+            Assert.assertEquals(2, this.loads.get());
+            Assert.assertEquals(Collections.singletonList("Annette"),
+                    this.autoCompleteIndex.complete("customers", "anne", 10));
+            Assert.assertEquals(Collections.singletonList("Anna"),
+                    this.autoCompleteIndex.complete("customers", "anna", 10));
+        }
+    }
+
+    @Test
+    public void shouldDropLoadsNotFittingIntoQueue() throws InterruptedException {
+        try (final AutoTenantContext ignored = new AutoTenantContext(TENANT)) {
+            this.loading = new CountDownLatch(1);
+            // the first load occupies the only thread, the second one the only place in the queue
+            Assert.assertEquals(FROM_DATABASE, this.autoCompleteIndex.complete("customers", "a", 10));
+            Assert.assertEquals(FROM_DATABASE, this.autoCompleteIndex.complete("offices", "a", 10));
+            Assert.assertEquals(FROM_DATABASE, this.autoCompleteIndex.complete("office-names", "a", 10));
+            this.loading.countDown();
+
+            this.awaitLoaded("customers");
+            this.awaitLoaded("offices");
+            Assert.assertEquals(2, this.loads.get());
+
+            this.awaitLoaded("office-names");
+            Assert.assertEquals(3, this.loads.get());
+        }
+    }
+
+    private void awaitLoaded() throws InterruptedException {
+        this.awaitLoaded("customers");
+    }
+
+    private void awaitLoaded(final String resource) throws InterruptedException {
+        for (int attempt = 0; attempt < 100
+                && this.autoCompleteIndex.complete(resource, "", 1).equals(FROM_DATABASE); attempt++) {
+            Thread.sleep(10L);
+        }
+        Assert.assertNotEquals(FROM_DATABASE, this.autoCompleteIndex.complete(resource, "", 1));
+    }
+}
@@ -15,10 +15,14 @@
  */
 package io.mifos.reporting;
 
+import io.mifos.reporting.api.v1.client.ReportParameterValidationException;
 import io.mifos.reporting.api.v1.domain.ReportDefinition;
+import io.mifos.reporting.api.v1.domain.ReportPage;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Collections;
 import java.util.List;
 
 public class TestCustomerListReportSpecification extends AbstractReportingSpecificationTest {
@@ -34,4 +38,35 @@ public class TestCustomerListReportSpecification extends AbstractReportingSpecif
         reportDefinitions.stream().anyMatch(reportDefinition -> reportDefinition.getIdentifier().equals("Listing"))
     );
   }
+
+  @Test(expected = ReportParameterValidationException.class)
+  public void shouldRequireSizeWithPageToken() {
+    super.testSubject.generateReport("Customer", "Listing", this.listingRequest(), null, null, "token");
+  }
+
+  @Test(expected = ReportParameterValidationException.class)
+  public void shouldRejectOversizedPage() {
+    super.testSubject.generateReport("Customer", "Listing", this.listingRequest(), 0, Integer.MAX_VALUE);
+  }
+
+  @Test(expected = ReportParameterValidationException.class)
+  public void shouldRejectNegativePageIndex() {
+    super.testSubject.generateReport("Customer", "Listing", this.listingRequest(), -1, 20);
+  }
+
+  @Test
+  public void shouldReturnEmptyPageFarBeyondLastRow() {
+    final ReportPage reportPage =
+        super.testSubject.generateReport("Customer", "Listing", this.listingRequest(), Integer.MAX_VALUE, 10000);
+    Assert.assertTrue(reportPage.getRows().isEmpty());
+    Assert.assertFalse(reportPage.isHasMore());
+  }
+
+  private ReportRequest listingRequest() {
+    final ReportDefinition reportDefinition = super.testSubject.findReportDefinition("Customer", "Listing");
+    final ReportRequest reportRequest = new ReportRequest();
+    reportRequest.setQueryParameters(Collections.emptyList());
+    reportRequest.setDisplayableFields(reportDefinition.getDisplayableFields());
+    return reportRequest;
+  }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting;
+
+import io.mifos.reporting.api.v1.domain.Row;
+import io.mifos.reporting.api.v1.domain.Value;
+import io.mifos.reporting.service.internal.export.ExportFormat;
+import io.mifos.reporting.service.internal.export.ExportWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestExportWriters {
+
+    public TestExportWriters() {
+        super();
+    }
+
+    @Test
+    public void shouldWriteNdjson() throws IOException {
+        final String export = this.export(ExportFormat.NDJSON);
+
+        Assert.assertEquals(
+                "[\"Identifier\",\"Name\",\"Accounts\"]\n" +
+                "[[\"c1\"],[\"Smith, John\"],[\"a1\",\"a2\"]]\n" +
+                "[[\"c2\"],[\"Say \\\"Hi\\\"\"],[]]\n" +
+                "[[\"c3\"],[\"\u00dcnal\"],[\"a3\"]]\n",
+                export);
+    }
+
+    @Test
+    public void shouldWriteCsv() throws IOException {
+        final String export = this.export(ExportFormat.CSV);
+
+        Assert.assertEquals(
+                "Identifier,Name,Accounts\r\n" +
+                "c1,\"Smith, John\",\"a1, a2\"\r\n" +
+                "c2,\"Say \"\"Hi\"\"\",\r\n" +
+                "c3,\u00dcnal,a3\r\n",
+                export);
+    }
+
+    @Test
+    public void shouldWriteHeaderOnlyWithoutRows() throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final ExportWriter exportWriter = ExportFormat.CSV.createWriter(outputStream);
+        exportWriter.writeHeader(Collections.singletonList("Identifier"));
+        exportWriter.write(Collections.emptyList());
+        exportWriter.flush();
+
+        Assert.assertEquals("Identifier\r\n", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private String export(final ExportFormat exportFormat) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final ExportWriter exportWriter = exportFormat.createWriter(outputStream);
+        exportWriter.writeHeader(Arrays.asList("Identifier", "Name", "Accounts"));
+        // rows arrive in chunks, the writer has to carry on where the previous chunk ended
+        exportWriter.write(Arrays.asList(
+                this.row(new String[]{"c1"}, new String[]{"Smith, John"}, new String[]{"a1", "a2"}),
+                this.row(new String[]{"c2"}, new String[]{"Say \"Hi\""}, new String[0])));
+        exportWriter.write(Collections.singletonList(
+                this.row(new String[]{"c3"}, new String[]{"\u00dcnal"}, new String[]{"a3"})));
+        exportWriter.flush();
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private Row row(final String[]... cells) {
+        final List<Value> values = new ArrayList<>(cells.length);
+        for (final String[] cell : cells) {
+            final Value value = new Value();
+            value.setValues(cell);
+            values.add(value);
+        }
+        final Row row = new Row();
+        row.setValues(values);
+        return row;
+    }
+}
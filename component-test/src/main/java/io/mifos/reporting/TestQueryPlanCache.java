@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting;
+
+import io.mifos.reporting.api.v1.domain.DisplayableField;
+import io.mifos.reporting.api.v1.domain.QueryParameter;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.service.spi.QueryPlanCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestQueryPlanCache {
+
+    public TestQueryPlanCache() {
+        super();
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedPlan() {
+        final QueryPlanCache queryPlanCache = new QueryPlanCache(2);
+        final AtomicInteger plannings = new AtomicInteger();
+
+        queryPlanCache.plan("first", this.reportRequest("a"), false, () -> "plan " + plannings.incrementAndGet());
+        queryPlanCache.plan("second", this.reportRequest("a"), false, () -> "plan " + plannings.incrementAndGet());
+        Assert.assertEquals("plan 1",
+                queryPlanCache.plan("first", this.reportRequest("a"), false, () -> "plan " + plannings.incrementAndGet()));
+        queryPlanCache.plan("third", this.reportRequest("a"), false, () -> "plan " + plannings.incrementAndGet());
+        Assert.assertEquals(3, plannings.get());
+        Assert.assertEquals(1L, queryPlanCache.getEvictions());
+        Assert.assertEquals(2, queryPlanCache.getSize());
+
+        Assert.assertEquals("plan 1",
+                queryPlanCache.plan("first", this.reportRequest("a"), false, () -> "plan " + plannings.incrementAndGet()));
+        Assert.assertEquals("plan 4",
+                queryPlanCache.plan("second", this.reportRequest("a"), false, () -> "plan " + plannings.incrementAndGet()));
+        Assert.assertEquals(2L, queryPlanCache.getEvictions());
+    }
+
+    @Test
+    public void shouldNotConfuseParameterNamesWithBoundaries() {
+        final QueryPlanCache queryPlanCache = new QueryPlanCache(16);
+
+        final ReportRequest twoParameters = this.reportRequest("a");
+        twoParameters.setQueryParameters(Arrays.asList(this.queryParameter("x"), this.queryParameter("y")));
+        final ReportRequest oneParameter = this.reportRequest("a");
+        oneParameter.setQueryParameters(Collections.singletonList(
+                this.queryParameter("x=" + QueryParameter.Operator.EQUALS + "\u001fy")));
+
+        Assert.assertEquals("two", queryPlanCache.plan("query", twoParameters, false, () -> "two"));
+        Assert.assertEquals("one", queryPlanCache.plan("query", oneParameter, false, () -> "one"));
+        Assert.assertEquals("two", queryPlanCache.plan("query", twoParameters, true, () -> "two"));
+        Assert.assertEquals(3, queryPlanCache.getSize());
+    }
+
+    private ReportRequest reportRequest(final String fieldName) {
+        final DisplayableField displayableField = new DisplayableField();
+        displayableField.setName(fieldName);
+
+        final ReportRequest reportRequest = new ReportRequest();
+        reportRequest.setDisplayableFields(Collections.singletonList(displayableField));
+        reportRequest.setQueryParameters(Collections.emptyList());
+        return reportRequest;
+    }
+
+    private QueryParameter queryParameter(final String name) {
+        final QueryParameter queryParameter = new QueryParameter();
+        queryParameter.setName(name);
+        queryParameter.setOperator(QueryParameter.Operator.EQUALS);
+        queryParameter.setValue("value");
+        return queryParameter;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting;
+
+import io.mifos.core.lang.AutoTenantContext;
+import io.mifos.reporting.api.v1.client.ReportNotFoundException;
+import io.mifos.reporting.api.v1.domain.ReportDefinition;
+import io.mifos.reporting.api.v1.domain.ReportJob;
+import io.mifos.reporting.api.v1.domain.ReportPage;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.api.v1.domain.Row;
+import io.mifos.reporting.load.SyntheticDataGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class TestReportJobs extends AbstractReportingSpecificationTest {
+
+    private static final int PAGE_SIZE = 7;
+
+    @Autowired
+    private DataSource dataSource;
+
+    public TestReportJobs() {
+        super();
+    }
+
+    @Test
+    public void shouldSubmitPollAndFetchReportJob() throws Exception {
+        try (final AutoTenantContext ignored = new AutoTenantContext(tenantDataStoreContext.getTenantName())) {
+            new SyntheticDataGenerator(this.dataSource, 42L).generate(25);
+        }
+
+        final ReportDefinition reportDefinition =
+                super.testSubject.findReportDefinition("Customer", "Listing");
+        final ReportRequest reportRequest = new ReportRequest();
+        reportRequest.setQueryParameters(Collections.emptyList());
+        reportRequest.setDisplayableFields(reportDefinition.getDisplayableFields());
+
+        final ReportJob submittedJob = super.testSubject.submitReportJob("Customer", "Listing", reportRequest);
+        Assert.assertNotNull(submittedJob.getIdentifier());
+
+        ReportJob reportJob = submittedJob;
+        for (int attempt = 0; attempt < 100 && !this.isFinished(reportJob); attempt++) {
+            Thread.sleep(100L);
+            reportJob = super.testSubject.fetchReportJob(submittedJob.getIdentifier());
+        }
+        Assert.assertEquals(reportJob.getMessage(), ReportJob.State.COMPLETED, reportJob.getState());
+
+        final List<Row> expectedRows =
+                super.testSubject.generateReport("Customer", "Listing", reportRequest, 0, 1000).getRows();
+        Assert.assertEquals(Long.valueOf(expectedRows.size()), reportJob.getRowCount());
+
+        final List<Row> fetchedRows = new ArrayList<>();
+        ReportPage reportPage;
+        int pageIndex = 0;
+        do {
+            reportPage = super.testSubject.fetchReportJobPage(submittedJob.getIdentifier(), pageIndex++, PAGE_SIZE);
+            Assert.assertTrue(reportPage.getRows().size() <= PAGE_SIZE);
+            Assert.assertEquals(reportDefinition.getName(), reportPage.getName());
+            fetchedRows.addAll(reportPage.getRows());
+        } while (reportPage.isHasMore());
+
+        Assert.assertEquals(expectedRows.size(), fetchedRows.size());
+        for (int i = 0; i < expectedRows.size(); i++) {
+            Assert.assertEquals(expectedRows.get(i).getValues().get(0).getValues()[0],
+                    fetchedRows.get(i).getValues().get(0).getValues()[0]);
+        }
+    }
+
+    @Test(expected = ReportNotFoundException.class)
+    public void shouldNotFindUnknownReportJob() {
+        super.testSubject.fetchReportJob("unknown");
+    }
+
+    private boolean isFinished(final ReportJob reportJob) {
+        return reportJob.getState() == ReportJob.State.COMPLETED || reportJob.getState() == ReportJob.State.FAILED;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting;
+
+import io.mifos.core.lang.AutoTenantContext;
+import io.mifos.reporting.api.v1.domain.ReportDefinition;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.load.ReportLoadDriver;
+import io.mifos.reporting.load.ReportLoadResult;
+import io.mifos.reporting.load.SyntheticDataGenerator;
+import io.mifos.reporting.service.internal.cache.ReportResultCache;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every report concurrently against synthetic data. It takes minutes even at the smallest scale, so it is
+ * skipped unless started with -Dreporting.load=true. Scale, concurrency, duration and page size are read from
+ * reporting.load.customers, reporting.load.concurrency, reporting.load.seconds and reporting.load.pageSize.
+ * The result cache has to be turned off with -Dreporting.resultCache.maximumBytes=0, otherwise the figures would
+ * measure the cache rather than the reports.
+ */
+public class TestReportLoad extends AbstractReportingSpecificationTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReportResultCache reportResultCache;
+
+    public TestReportLoad() {
+        super();
+    }
+
+    @Test
+    public void shouldServeAllReportsUnderLoad() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("reporting.load"));
+
+        final int customers = Integer.getInteger("reporting.load.customers", 10000);
+        final int concurrency = Integer.getInteger("reporting.load.concurrency", 8);
+        final int seconds = Integer.getInteger("reporting.load.seconds", 60);
+        final int pageSize = Integer.getInteger("reporting.load.pageSize", 20);
+
+        try (final AutoTenantContext ignored = new AutoTenantContext(tenantDataStoreContext.getTenantName())) {
+            final long startTime = System.nanoTime();
+            new SyntheticDataGenerator(this.dataSource, 42L).generate(customers);
+            super.logger.info("Generated data for {} customers in {} s.", customers,
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime));
+
+            final List<ReportLoadDriver.Target> targets = new ArrayList<>();
+            super.testSubject.fetchCategories().forEach(category ->
+                    super.testSubject.fetchReportDefinitions(category).forEach(reportDefinition ->
+                            targets.add(new ReportLoadDriver.Target(category, reportDefinition.getIdentifier(),
+                                    this.requestAllFields(reportDefinition)))));
+
+            final long cacheHits = this.reportResultCache.getHits();
+            final List<ReportLoadResult> results =
+                    new ReportLoadDriver(super.logger, super.testSubject, concurrency, pageSize)
+                            .run(targets, seconds, TimeUnit.SECONDS);
+
+            results.forEach(result -> super.logger.info("{}", result));
+            Assert.assertEquals("Result cache answered calls, run with -Dreporting.resultCache.maximumBytes=0.",
+                    cacheHits, this.reportResultCache.getHits());
+            results.forEach(result -> Assert.assertEquals(result.toString(), 0L, result.getErrors()));
+        }
+    }
+
+    private ReportRequest requestAllFields(final ReportDefinition reportDefinition) {
+        final ReportRequest reportRequest = new ReportRequest();
+        reportRequest.setQueryParameters(Collections.emptyList());
+        reportRequest.setDisplayableFields(reportDefinition.getDisplayableFields());
+        return reportRequest;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting;
+
+import io.mifos.core.lang.AutoTenantContext;
+import io.mifos.reporting.api.v1.domain.QueryParameter;
+import io.mifos.reporting.api.v1.domain.ReportDefinition;
+import io.mifos.reporting.api.v1.domain.ReportPage;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.service.internal.cache.ReportResultCache;
+import io.mifos.reporting.service.spi.Report;
+import io.mifos.reporting.service.spi.ReportSpecification;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TestReportResultCache extends AbstractReportingSpecificationTest {
+
+    @Autowired
+    private ReportResultCache reportResultCache;
+
+    public TestReportResultCache() {
+        super();
+    }
+
+    @Test
+    public void shouldNotConfuseValuesContainingKeyBoundaries() {
+        final ReportRequest singleParameterRequest = this.createRequest(
+                this.createParameter("Name", "X\u001fOther=EQUALS=Y"));
+        final ReportRequest twoParameterRequest = this.createRequest(
+                this.createParameter("Name", "X"), this.createParameter("Other", "Y"));
+
+        try (final AutoTenantContext ignored = new AutoTenantContext(tenantDataStoreContext.getTenantName())) {
+            Assert.assertTrue(this.isGenerated(singleParameterRequest));
+            Assert.assertFalse(this.isGenerated(singleParameterRequest));
+            Assert.assertTrue(this.isGenerated(twoParameterRequest));
+        }
+    }
+
+    private boolean isGenerated(final ReportRequest reportRequest) {
+        final AtomicBoolean generated = new AtomicBoolean();
+        this.reportResultCache.fetch(new CachedReportSpecification(), reportRequest, "index:0:20", () -> {
+            generated.set(true);
+            return new ReportPage();
+        });
+        return generated.get();
+    }
+
+    private ReportRequest createRequest(final QueryParameter... queryParameters) {
+        final ReportRequest reportRequest = new ReportRequest();
+        reportRequest.setQueryParameters(Arrays.asList(queryParameters));
+        reportRequest.setDisplayableFields(Collections.emptyList());
+        return reportRequest;
+    }
+
+    private QueryParameter createParameter(final String name, final String value) {
+        final QueryParameter queryParameter = new QueryParameter();
+        queryParameter.setName(name);
+        queryParameter.setOperator(QueryParameter.Operator.EQUALS);
+        queryParameter.setValue(value);
+        return queryParameter;
+    }
+
+    @Report(category = "Test", identifier = "Cached", cacheTimeToLive = 60, tables = {"maat_customers"})
+    private static class CachedReportSpecification implements ReportSpecification {
+
+        @Override
+        public ReportDefinition getReportDefinition() {
+            return new ReportDefinition();
+        }
+
+        @Override
+        public ReportPage generateReport(final ReportRequest reportRequest, final int pageIndex, final int size) {
+            return new ReportPage();
+        }
+
+        @Override
+        public void validate(final ReportRequest reportRequest) {
+        }
+    }
+}
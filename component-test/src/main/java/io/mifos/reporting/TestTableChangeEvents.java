@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting;
+
+import com.google.gson.Gson;
+import io.mifos.core.lang.AutoTenantContext;
+import io.mifos.core.lang.config.TenantHeaderFilter;
+import io.mifos.reporting.api.v1.EventConstants;
+import io.mifos.reporting.api.v1.domain.ReportDefinition;
+import io.mifos.reporting.api.v1.domain.ReportPage;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.service.internal.cache.ReportResultCache;
+import io.mifos.reporting.service.spi.Report;
+import io.mifos.reporting.service.spi.ReportSpecification;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jms.core.JmsTemplate;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TestTableChangeEvents extends AbstractReportingSpecificationTest {
+
+    @Autowired
+    private ReportResultCache reportResultCache;
+
+    @Autowired
+    private JmsTemplate jmsTemplate;
+
+    public TestTableChangeEvents() {
+        super();
+    }
+
+    @Test
+    public void shouldInvalidateOnlyResultsReadingChangedTables() throws InterruptedException {
+        final String tenant = tenantDataStoreContext.getTenantName();
+        final ReportRequest reportRequest = new ReportRequest();
+        reportRequest.setQueryParameters(Collections.emptyList());
+        reportRequest.setDisplayableFields(Collections.emptyList());
+
+        try (final AutoTenantContext ignored = new AutoTenantContext(tenant)) {
+            this.reportResultCache.fetch(new TellerReportSpecification(), reportRequest, "index:0:20", ReportPage::new);
+            this.reportResultCache.fetch(new OfficeReportSpecification(), reportRequest, "index:0:20", ReportPage::new);
+
+            this.sendTablesChanged(tenant, "tajet_teller");
+
+            boolean tellerRegenerated = false;
+            for (int attempt = 0; attempt < 50 && !tellerRegenerated; attempt++) {
+                Thread.sleep(100L);
+                tellerRegenerated = this.isRegenerated(new TellerReportSpecification(), reportRequest);
+            }
+            Assert.assertTrue(tellerRegenerated);
+            Assert.assertFalse(this.isRegenerated(new OfficeReportSpecification(), reportRequest));
+        }
+    }
+
+    @Test
+    public void shouldInvalidateResultsOnTellerEvents() throws InterruptedException {
+        final String tenant = tenantDataStoreContext.getTenantName();
+        final ReportRequest reportRequest = new ReportRequest();
+        reportRequest.setQueryParameters(Collections.emptyList());
+        reportRequest.setDisplayableFields(Collections.emptyList());
+
+        try (final AutoTenantContext ignored = new AutoTenantContext(tenant)) {
+            this.reportResultCache.fetch(new TellerReportSpecification(), reportRequest, "index:0:20", ReportPage::new);
+            this.reportResultCache.fetch(new OfficeReportSpecification(), reportRequest, "index:0:20", ReportPage::new);
+
+            this.jmsTemplate.convertAndSend("teller-v1", "\"teller-1\"", message -> {
+                message.setStringProperty(TenantHeaderFilter.TENANT_HEADER, tenant);
+                message.setStringProperty(EventConstants.SELECTOR_NAME, "put-teller");
+                return message;
+            });
+
+            boolean tellerRegenerated = false;
+            for (int attempt = 0; attempt < 50 && !tellerRegenerated; attempt++) {
+                Thread.sleep(100L);
+                tellerRegenerated = this.isRegenerated(new TellerReportSpecification(), reportRequest);
+            }
+            Assert.assertTrue(tellerRegenerated);
+            Assert.assertFalse(this.isRegenerated(new OfficeReportSpecification(), reportRequest));
+        }
+    }
+
+    private boolean isRegenerated(final ReportSpecification reportSpecification, final ReportRequest reportRequest) {
+        final AtomicBoolean regenerated = new AtomicBoolean();
+        this.reportResultCache.fetch(reportSpecification, reportRequest, "index:0:20", () -> {
+            regenerated.set(true);
+            return new ReportPage();
+        });
+        return regenerated.get();
+    }
+
+    private void sendTablesChanged(final String tenant, final String... tables) {
+        this.jmsTemplate.convertAndSend(
+                new Gson().toJson(tables),
+                message -> {
+                    message.setStringProperty(TenantHeaderFilter.TENANT_HEADER, tenant);
+                    message.setStringProperty(EventConstants.SELECTOR_NAME, EventConstants.TABLES_CHANGED);
+                    return message;
+                }
+        );
+    }
+
+    @Report(category = "Test", identifier = "Teller", cacheTimeToLive = 60, tables = {"tajet_teller"})
+    private static class TellerReportSpecification extends EmptyReportSpecification {
+    }
+
+    @Report(category = "Test", identifier = "Office", cacheTimeToLive = 60, tables = {"horus_offices"})
+    private static class OfficeReportSpecification extends EmptyReportSpecification {
+    }
+
+    private static class EmptyReportSpecification implements ReportSpecification {
+
+        @Override
+        public ReportDefinition getReportDefinition() {
+            return new ReportDefinition();
+        }
+
+        @Override
+        public ReportPage generateReport(final ReportRequest reportRequest, final int pageIndex, final int size) {
+            return new ReportPage();
+        }
+
+        @Override
+        public void validate(final ReportRequest reportRequest) {
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.load;
+
+import io.mifos.reporting.api.v1.client.ReportManager;
+import io.mifos.reporting.api.v1.domain.ReportPage;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.service.internal.context.ContextSnapshot;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls the report manager from a fixed number of threads for a given time, cycling through the targets. Each
+ * worker keeps its own latency samples, they are merged once all workers are done.
+ *
+ * <p>Every worker pages through each target with page tokens and a page size of its own, so workers do not
+ * request the same pages. The first failure of each target is logged.</p>
+ */
+public class ReportLoadDriver {
+
+  private final Logger logger;
+  private final ReportManager reportManager;
+  private final int concurrency;
+  private final int pageSize;
+
+  public ReportLoadDriver(final Logger logger, final ReportManager reportManager, final int concurrency,
+                          final int pageSize) {
+    super();
+    this.logger = logger;
+    this.reportManager = reportManager;
+    this.concurrency = concurrency;
+    this.pageSize = pageSize;
+  }
+
+  public List<ReportLoadResult> run(final List<Target> targets, final long duration, final TimeUnit unit)
+      throws Exception {
+    final ContextSnapshot contextSnapshot = ContextSnapshot.capture();
+    final ExecutorService executorService = Executors.newFixedThreadPool(this.concurrency);
+    final long deadline = System.nanoTime() + unit.toNanos(duration);
+    final long startTime = System.nanoTime();
+    final Set<Integer> failedTargets = ConcurrentHashMap.newKeySet();
+    try {
+      final List<Future<Samples[]>> workers = new ArrayList<>(this.concurrency);
+      for (int worker = 0; worker < this.concurrency; worker++) {
+        final int offset = worker;
+        workers.add(executorService.submit(() -> {
+          contextSnapshot.apply();
+          try {
+            return this.drive(targets, offset, deadline, failedTargets);
+          } finally {
+            ContextSnapshot.clear();
+          }
+        }));
+      }
+
+      final Samples[] merged = new Samples[targets.size()];
+      for (int i = 0; i < merged.length; i++) {
+        merged[i] = new Samples();
+      }
+      for (final Future<Samples[]> worker : workers) {
+        final Samples[] samples = worker.get();
+        for (int i = 0; i < merged.length; i++) {
+          merged[i].addAll(samples[i]);
+        }
+      }
+      final long elapsedNanos = System.nanoTime() - startTime;
+
+      final ArrayList<ReportLoadResult> results = new ArrayList<>(targets.size());
+      for (int i = 0; i < merged.length; i++) {
+        results.add(merged[i].summarize(targets.get(i), elapsedNanos));
+      }
+      return results;
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private Samples[] drive(final List<Target> targets, final int offset, final long deadline,
+                          final Set<Integer> failedTargets) {
+    final Samples[] samples = new Samples[targets.size()];
+    final String[] pageTokens = new String[targets.size()];
+    for (int i = 0; i < samples.length; i++) {
+      samples[i] = new Samples();
+    }
+    final int size = this.pageSize + offset;
+
+    // workers start on different targets, so every report sees concurrent requests from the first second on
+    for (int call = offset; System.nanoTime() < deadline; call++) {
+      final int index = call % targets.size();
+      final Target target = targets.get(index);
+      final long startTime = System.nanoTime();
+      try {
+        final ReportPage reportPage = this.reportManager.generateReport(target.getCategory(),
+            target.getIdentifier(), target.getReportRequest(), pageTokens[index] == null ? 0 : null, size,
+            pageTokens[index]);
+        samples[index].add(System.nanoTime() - startTime);
+        pageTokens[index] = reportPage.getNextPageToken();
+      } catch (final RuntimeException ex) {
+        samples[index].fail();
+        pageTokens[index] = null;
+        if (failedTargets.add(index)) {
+          this.logger.warn("Report {} of {} failed under load.", target.getIdentifier(), target.getCategory(), ex);
+        }
+      }
+    }
+    return samples;
+  }
+
+  public static class Target {
+
+    private final String category;
+    private final String identifier;
+    private final ReportRequest reportRequest;
+
+    public Target(final String category, final String identifier, final ReportRequest reportRequest) {
+      super();
+      this.category = category;
+      this.identifier = identifier;
+      this.reportRequest = reportRequest;
+    }
+
+    public String getCategory() {
+      return this.category;
+    }
+
+    public String getIdentifier() {
+      return this.identifier;
+    }
+
+    public ReportRequest getReportRequest() {
+      return this.reportRequest;
+    }
+  }
+
+  private static class Samples {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+
+    private Samples() {
+      super();
+    }
+
+    private void add(final long latency) {
+      if (this.count == this.latencies.length) {
+        this.latencies = Arrays.copyOf(this.latencies, this.count * 2);
+      }
+      this.latencies[this.count++] = latency;
+    }
+
+    private void addAll(final Samples samples) {
+      for (int i = 0; i < samples.count; i++) {
+        this.add(samples.latencies[i]);
+      }
+      this.errors += samples.errors;
+    }
+
+    private void fail() {
+      this.errors++;
+    }
+
+    private ReportLoadResult summarize(final Target target, final long elapsedNanos) {
+      final long[] sorted = Arrays.copyOf(this.latencies, this.count);
+      Arrays.sort(sorted);
+      return new ReportLoadResult(target.getCategory(), target.getIdentifier(), this.count, this.errors,
+          this.count * 1_000_000_000.0D / elapsedNanos,
+          percentile(sorted, 0.50D), percentile(sorted, 0.95D), percentile(sorted, 0.99D),
+          sorted.length == 0 ? 0L : sorted[sorted.length - 1]);
+    }
+
+    private static long percentile(final long[] sorted, final double quantile) {
+      if (sorted.length == 0) {
+        return 0L;
+      }
+      final int rank = (int) Math.ceil(quantile * sorted.length);
+      return sorted[Math.max(0, rank - 1)];
+    }
+  }
+}
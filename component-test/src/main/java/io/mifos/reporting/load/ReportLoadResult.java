@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.load;
+
+import java.util.concurrent.TimeUnit;
+
+public class ReportLoadResult {
+
+  private final String category;
+  private final String identifier;
+  private final long requests;
+  private final long errors;
+  private final double throughput;
+  private final long p50Nanos;
+  private final long p95Nanos;
+  private final long p99Nanos;
+  private final long maxNanos;
+
+  public ReportLoadResult(final String category, final String identifier, final long requests, final long errors,
+                          final double throughput, final long p50Nanos, final long p95Nanos, final long p99Nanos,
+                          final long maxNanos) {
+    super();
+    this.category = category;
+    this.identifier = identifier;
+    this.requests = requests;
+    this.errors = errors;
+    this.throughput = throughput;
+    this.p50Nanos = p50Nanos;
+    this.p95Nanos = p95Nanos;
+    this.p99Nanos = p99Nanos;
+    this.maxNanos = maxNanos;
+  }
+
+  public String getCategory() {
+    return this.category;
+  }
+
+  public String getIdentifier() {
+    return this.identifier;
+  }
+
+  public long getRequests() {
+    return this.requests;
+  }
+
+  public long getErrors() {
+    return this.errors;
+  }
+
+  public double getThroughput() {
+    return this.throughput;
+  }
+
+  public long getP50Nanos() {
+    return this.p50Nanos;
+  }
+
+  public long getP95Nanos() {
+    return this.p95Nanos;
+  }
+
+  public long getP99Nanos() {
+    return this.p99Nanos;
+  }
+
+  public long getMaxNanos() {
+    return this.maxNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s~%s: %d requests, %d errors, %.1f req/s, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms",
+        this.category, this.identifier, this.requests, this.errors, this.throughput,
+        millis(this.p50Nanos), millis(this.p95Nanos), millis(this.p99Nanos), millis(this.maxNanos));
+  }
+
+  private static double millis(final long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1L);
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.load;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Fills the tables read by the report specifications with synthetic data. The tables belong to other services and
+ * are absent from a fresh tenant schema, so only the columns the reports select are created. Everything is scaled
+ * from the number of customers, expected to be empty beforehand, and derived from a fixed seed.
+ */
+public class SyntheticDataGenerator {
+
+  private static final int BATCH_SIZE = 1000;
+  private static final int PRODUCT_DEFINITIONS = 10;
+  private static final String[] CUSTOMER_STATES = {"PENDING", "ACTIVE", "LOCKED", "CLOSED"};
+  private static final String[] LEDGER_TYPES = {"ASSET", "EQUITY", "REVENUE", "EXPENSE"};
+  private static final String[] TRANSACTION_TYPES = {"ACCO", "ACCC", "CDPT", "CWDL", "PPAY"};
+
+  private static final String[] TABLES = {
+      "CREATE TABLE IF NOT EXISTS horus_offices (id BIGINT PRIMARY KEY, identifier VARCHAR(32) NOT NULL, " +
+          "a_name VARCHAR(256), description VARCHAR(2048), created_by VARCHAR(32))",
+      "CREATE TABLE IF NOT EXISTS horus_addresses (id BIGINT PRIMARY KEY, office_id BIGINT NOT NULL, " +
+          "street VARCHAR(256), postal_code VARCHAR(32), city VARCHAR(256), region VARCHAR(256), " +
+          "country VARCHAR(256), INDEX horus_addresses_office (office_id))",
+      "CREATE TABLE IF NOT EXISTS horus_employees (id BIGINT PRIMARY KEY, identifier VARCHAR(32) NOT NULL, " +
+          "given_name VARCHAR(256), middle_name VARCHAR(256), surname VARCHAR(256), created_by VARCHAR(32), " +
+          "assigned_office_id BIGINT, UNIQUE INDEX horus_employees_identifier (identifier))",
+      "CREATE TABLE IF NOT EXISTS maat_addresses (id BIGINT PRIMARY KEY, street VARCHAR(256), " +
+          "postal_code VARCHAR(32), city VARCHAR(256))",
+      "CREATE TABLE IF NOT EXISTS maat_customers (id BIGINT PRIMARY KEY, identifier VARCHAR(32) NOT NULL, " +
+          "given_name VARCHAR(256), middle_name VARCHAR(256), surname VARCHAR(256), current_state VARCHAR(32), " +
+          "assigned_office VARCHAR(32), address_id BIGINT, created_on DATETIME(3), " +
+          "UNIQUE INDEX maat_customers_identifier (identifier))",
+      "CREATE TABLE IF NOT EXISTS thoth_accounts (id BIGINT PRIMARY KEY, identifier VARCHAR(34) NOT NULL, " +
+          "a_name VARCHAR(256), a_type VARCHAR(32), holders VARCHAR(256), balance DECIMAL(15,5), " +
+          "a_state VARCHAR(32), created_on DATETIME(3), UNIQUE INDEX thoth_accounts_identifier (identifier), " +
+          "INDEX thoth_accounts_holders (holders), INDEX thoth_accounts_type (a_type))",
+      "CREATE TABLE IF NOT EXISTS shed_product_definitions (id BIGINT PRIMARY KEY, a_name VARCHAR(256), " +
+          "a_type VARCHAR(32))",
+      "CREATE TABLE IF NOT EXISTS shed_product_instances (id BIGINT PRIMARY KEY, " +
+          "customer_identifier VARCHAR(32) NOT NULL, product_definition_id BIGINT, " +
+          "account_identifier VARCHAR(34), a_state VARCHAR(32), created_by VARCHAR(32), created_on DATETIME(3), " +
+          "INDEX shed_product_instances_customer (customer_identifier))",
+      "CREATE TABLE IF NOT EXISTS bastet_cases (id BIGINT PRIMARY KEY, identifier VARCHAR(32) NOT NULL, " +
+          "product_identifier VARCHAR(32), current_state VARCHAR(32), created_on DATETIME(3), " +
+          "created_by VARCHAR(32))",
+      "CREATE TABLE IF NOT EXISTS bastet_il_cases (id BIGINT PRIMARY KEY, case_id BIGINT NOT NULL, " +
+          "customer_identifier VARCHAR(32) NOT NULL, term_range_maximum INT, " +
+          "term_range_temporal_unit VARCHAR(128), balance_range_maximum DECIMAL(19,4), " +
+          "INDEX bastet_il_cases_customer (customer_identifier))",
+      "CREATE TABLE IF NOT EXISTS tajet_teller (id BIGINT PRIMARY KEY, identifier VARCHAR(32) NOT NULL, " +
+          "office_identifier VARCHAR(32), cashdraw_limit DECIMAL(15,5), assigned_employee_identifier VARCHAR(32), " +
+          "a_state VARCHAR(32), created_on DATETIME(3), UNIQUE INDEX tajet_teller_identifier (identifier))",
+      "CREATE TABLE IF NOT EXISTS tajet_teller_transactions (id BIGINT PRIMARY KEY, teller_id BIGINT NOT NULL, " +
+          "transaction_type VARCHAR(32), transaction_date DATETIME(3), customer_identifier VARCHAR(32), " +
+          "customer_account_identifier VARCHAR(34), target_account_identifier VARCHAR(34), clerk VARCHAR(32), " +
+          "amount DECIMAL(15,5), a_state VARCHAR(32), " +
+          "INDEX tajet_teller_transactions_teller (teller_id, transaction_date, id))"
+  };
+
+  private final DataSource dataSource;
+  private final long seed;
+  private final LocalDateTime origin = LocalDateTime.of(2017, 1, 1, 0, 0);
+
+  public SyntheticDataGenerator(final DataSource dataSource, final long seed) {
+    super();
+    this.dataSource = dataSource;
+    this.seed = seed;
+  }
+
+  public void generate(final int customers) throws SQLException {
+    if (customers < 1) {
+      throw new IllegalArgumentException("At least one customer is required.");
+    }
+    final int offices = Math.max(1, customers / 1000);
+    final int employees = Math.max(1, customers / 100);
+    final int ledgers = Math.max(LEDGER_TYPES.length, customers / 100);
+    final int loans = Math.max(1, customers / 2);
+    final int tellers = Math.max(1, customers / 1000);
+    final int transactions = customers * 2;
+    final Random random = new Random(this.seed);
+
+    try (final Connection connection = this.dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try (final Statement statement = connection.createStatement()) {
+        for (final String table : TABLES) {
+          statement.execute(table);
+        }
+      }
+      connection.commit();
+
+      this.insert(connection, "INSERT INTO horus_offices (id, identifier, a_name, description, created_by) " +
+          "VALUES (?, ?, ?, ?, ?)", offices, (statement, i) -> {
+        statement.setLong(1, i + 1);
+        statement.setString(2, office(i));
+        statement.setString(3, "Office " + i);
+        statement.setString(4, "Synthetic office " + i);
+        statement.setString(5, employee(0));
+      });
+      this.insert(connection, "INSERT INTO horus_addresses (id, office_id, street, postal_code, city, region, " +
+          "country) VALUES (?, ?, ?, ?, ?, ?, ?)", offices, (statement, i) -> {
+        statement.setLong(1, i + 1);
+        statement.setLong(2, i + 1);
+        statement.setString(3, i + " Office Street");
+        statement.setString(4, String.format("%05d", i % 100000));
+        statement.setString(5, "City " + (i % 50));
+        statement.setString(6, "Region " + (i % 5));
+        statement.setString(7, "Country");
+      });
+      this.insert(connection, "INSERT INTO horus_employees (id, identifier, given_name, middle_name, surname, " +
+          "created_by, assigned_office_id) VALUES (?, ?, ?, ?, ?, ?, ?)", employees, (statement, i) -> {
+        statement.setLong(1, i + 1);
+        statement.setString(2, employee(i));
+        statement.setString(3, "Given" + i);
+        statement.setString(4, i % 3 == 0 ? null : "Middle" + i);
+        statement.setString(5, "Surname" + i);
+        statement.setString(6, employee(0));
+        statement.setLong(7, i % offices + 1);
+      });
+
+      this.insert(connection, "INSERT INTO maat_addresses (id, street, postal_code, city) VALUES (?, ?, ?, ?)",
+          customers, (statement, i) -> {
+            statement.setLong(1, i + 1);
+            statement.setString(2, i + " Customer Street");
+            statement.setString(3, String.format("%05d", i % 100000));
+            statement.setString(4, "City " + (i % 50));
+          });
+      this.insert(connection, "INSERT INTO maat_customers (id, identifier, given_name, middle_name, surname, " +
+          "current_state, assigned_office, address_id, created_on) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+          customers, (statement, i) -> {
+            statement.setLong(1, i + 1);
+            statement.setString(2, customer(i));
+            statement.setString(3, "Given" + i);
+            statement.setString(4, i % 3 == 0 ? null : "Middle" + i);
+            statement.setString(5, "Surname" + i);
+            statement.setString(6, CUSTOMER_STATES[random.nextInt(CUSTOMER_STATES.length)]);
+            statement.setString(7, office(i % offices));
+            statement.setLong(8, i + 1);
+            statement.setTimestamp(9, this.timestamp(random));
+          });
+
+      // one deposit account per customer, followed by the ledger accounts the accounting reports sum up
+      this.insert(connection, "INSERT INTO thoth_accounts (id, identifier, a_name, a_type, holders, balance, " +
+          "a_state, created_on) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", customers + ledgers, (statement, i) -> {
+        final boolean ledger = i >= customers;
+        statement.setLong(1, i + 1);
+        statement.setString(2, account(i));
+        statement.setString(3, ledger ? "Ledger account " + i : "Savings " + i);
+        statement.setString(4, ledger ? LEDGER_TYPES[(i - customers) % LEDGER_TYPES.length] : "LIABILITY");
+        statement.setString(5, ledger ? null : customer(i));
+        statement.setBigDecimal(6, this.amount(random, 100000));
+        statement.setString(7, "OPEN");
+        statement.setTimestamp(8, this.timestamp(random));
+      });
+
+      this.insert(connection, "INSERT INTO shed_product_definitions (id, a_name, a_type) VALUES (?, ?, ?)",
+          PRODUCT_DEFINITIONS, (statement, i) -> {
+            statement.setLong(1, i + 1);
+            statement.setString(2, "Product " + i);
+            statement.setString(3, i % 2 == 0 ? "SAVINGS" : "SHARE");
+          });
+      this.insert(connection, "INSERT INTO shed_product_instances (id, customer_identifier, product_definition_id, " +
+          "account_identifier, a_state, created_by, created_on) VALUES (?, ?, ?, ?, ?, ?, ?)",
+          customers, (statement, i) -> {
+            statement.setLong(1, i + 1);
+            statement.setString(2, customer(i));
+            statement.setLong(3, i % PRODUCT_DEFINITIONS + 1);
+            statement.setString(4, account(i));
+            statement.setString(5, "ACTIVE");
+            statement.setString(6, employee(i % employees));
+            statement.setTimestamp(7, this.timestamp(random));
+          });
+
+      this.insert(connection, "INSERT INTO bastet_cases (id, identifier, product_identifier, current_state, " +
+          "created_on, created_by) VALUES (?, ?, ?, ?, ?, ?)", loans, (statement, i) -> {
+        statement.setLong(1, i + 1);
+        statement.setString(2, String.format("case-%08d", i));
+        statement.setString(3, "loan-product-" + (i % PRODUCT_DEFINITIONS));
+        statement.setString(4, "ACTIVE");
+        statement.setTimestamp(5, this.timestamp(random));
+        statement.setString(6, employee(i % employees));
+      });
+      this.insert(connection, "INSERT INTO bastet_il_cases (id, case_id, customer_identifier, term_range_maximum, " +
+          "term_range_temporal_unit, balance_range_maximum) VALUES (?, ?, ?, ?, ?, ?)", loans, (statement, i) -> {
+        statement.setLong(1, i + 1);
+        statement.setLong(2, i + 1);
+        statement.setString(3, customer(i * 2 % customers));
+        statement.setInt(4, 6 + random.nextInt(30));
+        statement.setString(5, "MONTHS");
+        statement.setBigDecimal(6, this.amount(random, 50000));
+      });
+
+      this.insert(connection, "INSERT INTO tajet_teller (id, identifier, office_identifier, cashdraw_limit, " +
+          "assigned_employee_identifier, a_state, created_on) VALUES (?, ?, ?, ?, ?, ?, ?)", tellers,
+          (statement, i) -> {
+            statement.setLong(1, i + 1);
+            statement.setString(2, String.format("teller-%06d", i));
+            statement.setString(3, office(i % offices));
+            statement.setBigDecimal(4, BigDecimal.valueOf(10000L));
+            statement.setString(5, employee(i % employees));
+            statement.setString(6, "OPEN");
+            statement.setTimestamp(7, this.timestamp(random));
+          });
+      this.insert(connection, "INSERT INTO tajet_teller_transactions (id, teller_id, transaction_type, " +
+          "transaction_date, customer_identifier, customer_account_identifier, target_account_identifier, clerk, " +
+          "amount, a_state) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", transactions, (statement, i) -> {
+        final int customer = random.nextInt(customers);
+        statement.setLong(1, i + 1);
+        statement.setLong(2, i % tellers + 1);
+        statement.setString(3, TRANSACTION_TYPES[random.nextInt(TRANSACTION_TYPES.length)]);
+        statement.setTimestamp(4, this.timestamp(random));
+        statement.setString(5, customer(customer));
+        statement.setString(6, account(customer));
+        statement.setString(7, account(random.nextInt(customers)));
+        statement.setString(8, employee(i % employees));
+        statement.setBigDecimal(9, this.amount(random, 5000));
+        statement.setString(10, "CONFIRMED");
+      });
+    }
+  }
+
+  private void insert(final Connection connection, final String sql, final int count, final RowBinder rowBinder)
+      throws SQLException {
+    try (final PreparedStatement statement = connection.prepareStatement(sql)) {
+      for (int i = 0; i < count; i++) {
+        rowBinder.bind(statement, i);
+        statement.addBatch();
+        if ((i + 1) % BATCH_SIZE == 0) {
+          statement.executeBatch();
+          connection.commit();
+        }
+      }
+      statement.executeBatch();
+      connection.commit();
+    }
+  }
+
+  private Timestamp timestamp(final Random random) {
+    return Timestamp.valueOf(this.origin.plusMinutes(random.nextInt(365 * 24 * 60)));
+  }
+
+  private BigDecimal amount(final Random random, final int maximum) {
+    return BigDecimal.valueOf(random.nextInt(maximum * 100), 2);
+  }
+
+  private static String office(final int index) {
+    return String.format("office-%06d", index);
+  }
+
+  private static String employee(final int index) {
+    return String.format("employee-%06d", index);
+  }
+
+  private static String customer(final int index) {
+    return String.format("customer-%08d", index);
+  }
+
+  private static String account(final int index) {
+    return String.format("account-%08d", index);
+  }
+
+  @FunctionalInterface
+  private interface RowBinder {
+    void bind(final PreparedStatement statement, final int index) throws SQLException;
+  }
+}
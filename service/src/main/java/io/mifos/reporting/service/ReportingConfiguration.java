@@ -22,6 +22,9 @@ import io.mifos.core.lang.config.EnableApplicationName;
 import io.mifos.core.lang.config.EnableServiceException;
 import io.mifos.core.lang.config.EnableTenantContext;
 import io.mifos.core.mariadb.config.EnableMariaDB;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.mifos.reporting.api.v1.ReportingMediaTypes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
@@ -30,9 +33,16 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.PathMatchConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
+import java.util.Collections;
+import java.util.List;
+
 @SuppressWarnings("WeakerAccess")
 @Configuration
 @EnableAutoConfiguration
@@ -47,7 +57,8 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter
 @EnableJpaRepositories(basePackages = { "io.mifos.reporting.service.internal.repository" })
 @ComponentScan({
     "io.mifos.reporting.service.rest",
-    "io.mifos.reporting.service.internal"
+    "io.mifos.reporting.service.internal",
+    "io.mifos.reporting.service.spi"
 })
 public class ReportingConfiguration extends WebMvcConfigurerAdapter {
 
@@ -64,4 +75,18 @@ public class ReportingConfiguration extends WebMvcConfigurerAdapter {
   public void configurePathMatch(final PathMatchConfigurer configurer) {
     configurer.setUseSuffixPatternMatch(Boolean.FALSE);
   }
+
+  @Override
+  public void extendMessageConverters(final List<HttpMessageConverter<?>> converters) {
+    // Jackson writes straight to the response stream in either binary format, as it does for JSON
+    final MappingJackson2HttpMessageConverter smileConverter =
+        new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build());
+    smileConverter.setSupportedMediaTypes(Collections.singletonList(MediaType.parseMediaType(ReportingMediaTypes.SMILE)));
+    converters.add(smileConverter);
+
+    final MappingJackson2HttpMessageConverter cborConverter =
+        new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build());
+    cborConverter.setSupportedMediaTypes(Collections.singletonList(MediaType.parseMediaType(ReportingMediaTypes.CBOR)));
+    converters.add(cborConverter);
+  }
 }
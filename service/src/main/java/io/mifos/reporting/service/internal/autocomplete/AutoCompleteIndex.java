@@ -0,0 +1,268 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.autocomplete;
+
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.reporting.service.ServiceConstants;
+import io.mifos.reporting.service.spi.Statements;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Completes prefixes of frequently filtered values from memory. Every resource is a column read once per tenant
+ * into two sorted arrays, the lower cased terms and the original values, so a completion is a binary search for the
+ * prefix followed by a scan of the terms sharing it.
+ *
+ * <p>Terms are loaded in the background on first use, and reloaded when a table they are read from changes, or at the
+ * latest after the refresh interval, while lookups keep being answered from the previous terms. Only the resources of
+ * the changed tables are reloaded. Until the first load completes, and for columns holding more distinct values than
+ * the index keeps, completions are read from the database with a prefix match on the column instead.</p>
+ *
+ * <p>Loads run on a small pool of their own. A load that does not fit into its queue is dropped, the terms stay
+ * stale and are loaded on a later lookup.</p>
+ */
+@Component
+public class AutoCompleteIndex {
+
+  private static final String SEPARATOR = "\u001f";
+  private static final Map<String, Source> SOURCES = new LinkedHashMap<>();
+
+  static {
+    SOURCES.put("customers", new Source("maat_customers", "identifier"));
+    SOURCES.put("offices", new Source("horus_offices", "identifier"));
+    SOURCES.put("office-names", new Source("horus_offices", "a_name"));
+    SOURCES.put("tellers", new Source("tajet_teller", "identifier"));
+    SOURCES.put("products", new Source("shed_product_definitions", "a_name"));
+  }
+
+  private final Logger logger;
+  private final EntityManager entityManager;
+  private final ThreadPoolTaskExecutor executor;
+  private final long refreshMillis;
+  private final int maximumTerms;
+  private final ConcurrentHashMap<String, Terms> terms = new ConcurrentHashMap<>();
+
+  @Autowired
+  public AutoCompleteIndex(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                           final EntityManager entityManager,
+                           @Value("${reporting.autoComplete.refreshSeconds:300}") final long refreshSeconds,
+                           @Value("${reporting.autoComplete.maximumTerms:100000}") final int maximumTerms,
+                           @Value("${reporting.autoComplete.poolSize:1}") final int poolSize,
+                           @Value("${reporting.autoComplete.queueCapacity:16}") final int queueCapacity) {
+    super();
+    this.logger = logger;
+    this.entityManager = entityManager;
+    this.refreshMillis = TimeUnit.SECONDS.toMillis(refreshSeconds);
+    this.maximumTerms = maximumTerms;
+    this.executor = new ThreadPoolTaskExecutor();
+    this.executor.setCorePoolSize(poolSize);
+    this.executor.setMaxPoolSize(poolSize);
+    this.executor.setQueueCapacity(queueCapacity);
+    this.executor.setThreadNamePrefix("auto-complete-");
+    this.executor.initialize();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    this.executor.shutdown();
+  }
+
+  public Set<String> getResources() {
+    return Collections.unmodifiableSet(SOURCES.keySet());
+  }
+
+  public boolean supports(final String resource) {
+    return SOURCES.containsKey(resource);
+  }
+
+  public List<String> complete(final String resource, final String prefix, final int limit) {
+    final Source source = SOURCES.get(resource);
+    if (source == null) {
+      throw new IllegalArgumentException("Unknown auto complete resource " + resource + ".");
+    }
+
+    final String tenant = TenantContextHolder.checkedGetIdentifier();
+    final Terms terms = this.terms.computeIfAbsent(tenant + SEPARATOR + resource, key -> new Terms(tenant, source));
+    final Snapshot snapshot = terms.snapshot;
+    if ((snapshot == null || terms.stale || Clock.systemUTC().millis() - snapshot.loadedAt > this.refreshMillis)
+        && terms.refreshing.compareAndSet(false, true)) {
+      // changes arriving while reloading mark the terms stale again, so they are picked up by the next refresh
+      terms.stale = false;
+      try {
+        this.executor.execute(() -> this.refresh(terms));
+      } catch (final TaskRejectedException trex) {
+        this.logger.debug("Dropped loading auto complete terms of {}.{} for tenant {}.",
+            source.table, source.column, tenant);
+        terms.stale = true;
+        terms.refreshing.set(false);
+      }
+    }
+
+    if (snapshot == null || snapshot.truncated) {
+      return this.query(source, prefix, limit);
+    }
+    return snapshot.complete(prefix.toLowerCase(Locale.ROOT), limit);
+  }
+
+  public void invalidate(final String tenant, final Collection<String> tables) {
+    this.terms.values().forEach(terms -> {
+      if (terms.tenant.equals(tenant) && tables.contains(terms.source.table)) {
+        terms.stale = true;
+      }
+    });
+  }
+
+  private void refresh(final Terms terms) {
+    TenantContextHolder.setIdentifier(terms.tenant);
+    try {
+      terms.snapshot = this.load(terms.source);
+    } catch (final RuntimeException rex) {
+      this.logger.warn("Loading auto complete terms of {}.{} for tenant {} failed.",
+          terms.source.table, terms.source.column, terms.tenant, rex);
+    } finally {
+      terms.refreshing.set(false);
+      TenantContextHolder.clear();
+    }
+  }
+
+  private Snapshot load(final Source source) {
+    // one row more than kept tells whether the column holds more values than the index can answer for
+    final Query query = this.entityManager.createNativeQuery(
+        "SELECT DISTINCT " + source.column + " FROM " + source.table +
+            " WHERE " + source.column + " IS NOT NULL ORDER BY " + source.column + " LIMIT :maximumTerms");
+    query.setParameter("maximumTerms", this.maximumTerms + 1);
+    final List<?> resultList = Statements.resultList(query);
+    if (resultList.size() > this.maximumTerms) {
+      this.logger.info("Column {}.{} holds more than {} values, completing it from the database.",
+          source.table, source.column, this.maximumTerms);
+      return new Snapshot(new String[0], new String[0], true, Clock.systemUTC().millis());
+    }
+
+    final ArrayList<String[]> entries = new ArrayList<>(resultList.size());
+    resultList.forEach(result -> {
+      final String value = result.toString();
+      entries.add(new String[]{value.toLowerCase(Locale.ROOT), value});
+    });
+    entries.sort(Comparator.comparing((String[] entry) -> entry[0]).thenComparing(entry -> entry[1]));
+
+    final String[] keys = new String[entries.size()];
+    final String[] values = new String[entries.size()];
+    for (int i = 0; i < entries.size(); i++) {
+      keys[i] = entries.get(i)[0];
+      values[i] = entries.get(i)[1];
+    }
+    return new Snapshot(keys, values, false, Clock.systemUTC().millis());
+  }
+
+  private List<String> query(final Source source, final String prefix, final int limit) {
+    final Query query = this.entityManager.createNativeQuery(
+        "SELECT DISTINCT " + source.column + " FROM " + source.table +
+            " WHERE " + source.column + " LIKE :prefix ORDER BY " + source.column + " LIMIT :maximumResults");
+    query.setParameter("prefix",
+        prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+    query.setParameter("maximumResults", limit);
+    final List<?> resultList = Statements.resultList(query);
+
+    final ArrayList<String> completions = new ArrayList<>(resultList.size());
+    resultList.forEach(result -> completions.add(result.toString()));
+    return completions;
+  }
+
+  private static class Source {
+
+    private final String table;
+    private final String column;
+
+    private Source(final String table, final String column) {
+      super();
+      this.table = table;
+      this.column = column;
+    }
+  }
+
+  private static class Terms {
+
+    private final String tenant;
+    private final Source source;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile boolean stale;
+    private volatile Snapshot snapshot;
+
+    private Terms(final String tenant, final Source source) {
+      super();
+      this.tenant = tenant;
+      this.source = source;
+    }
+  }
+
+  private static class Snapshot {
+
+    private final String[] keys;
+    private final String[] values;
+    private final boolean truncated;
+    private final long loadedAt;
+
+    private Snapshot(final String[] keys, final String[] values, final boolean truncated, final long loadedAt) {
+      super();
+      this.keys = keys;
+      this.values = values;
+      this.truncated = truncated;
+      this.loadedAt = loadedAt;
+    }
+
+    private List<String> complete(final String prefix, final int limit) {
+      int position = Arrays.binarySearch(this.keys, prefix);
+      if (position < 0) {
+        position = -(position + 1);
+      }
+      while (position > 0 && this.keys[position - 1].equals(prefix)) {
+        position--;
+      }
+
+      final ArrayList<String> completions = new ArrayList<>(limit);
+      for (int i = position; i < this.keys.length && completions.size() < limit; i++) {
+        if (!this.keys[i].startsWith(prefix)) {
+          break;
+        }
+        completions.add(this.values[i]);
+      }
+      return completions;
+    }
+  }
+}
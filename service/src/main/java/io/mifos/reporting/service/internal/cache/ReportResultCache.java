@@ -0,0 +1,287 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.cache;
+
+import io.mifos.core.api.util.UserContextHolder;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.reporting.api.v1.domain.Aggregate;
+import io.mifos.reporting.api.v1.domain.DisplayableField;
+import io.mifos.reporting.api.v1.domain.QueryParameter;
+import io.mifos.reporting.api.v1.domain.ReportPage;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.api.v1.domain.Row;
+import io.mifos.reporting.service.spi.Report;
+import io.mifos.reporting.service.spi.ReportSpecification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongBiFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Serves repeated requests for the same report page from memory. Entries are keyed by tenant first, so a page
+ * generated for one tenant can never be found under another, and live for the time to live declared on the
+ * report. The least recently used entries are evicted once their estimated size exceeds the configured bound,
+ * and entries are invalidated when a table their report reads changes. Row counts of a request are cached the same
+ * way, next to its pages.
+ */
+@Component
+public class ReportResultCache {
+
+
+  private final long maximumWeight;
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75F, true);
+  private final HashMap<String, Long> invalidationEpochs = new HashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+  private long weight;
+
+  @Autowired
+  public ReportResultCache(@Value("${reporting.resultCache.maximumBytes:67108864}") final long maximumWeight) {
+    super();
+    this.maximumWeight = maximumWeight;
+  }
+
+  public ReportPage fetch(final ReportSpecification reportSpecification, final ReportRequest reportRequest,
+                          final String page, final Supplier<ReportPage> generator) {
+    return this.fetch(reportSpecification, reportRequest, page, generator, ReportResultCache::weigh,
+        reportPage -> ReportResultCache.copyFor(reportPage, UserContextHolder.checkedGetUser()));
+  }
+
+  public Long fetchCount(final ReportSpecification reportSpecification, final ReportRequest reportRequest,
+                         final Supplier<Long> generator) {
+    return this.fetch(reportSpecification, reportRequest, "count:" + reportRequest.getCountMode(), generator,
+        (key, count) -> 256L + 2L * key.length(), count -> count);
+  }
+
+  private <T> T fetch(final ReportSpecification reportSpecification, final ReportRequest reportRequest,
+                      final String page, final Supplier<T> generator, final ToLongBiFunction<String, T> weigher,
+                      final UnaryOperator<T> copier) {
+    final Report report = reportSpecification.getClass().getAnnotation(Report.class);
+    if (report == null || report.cacheTimeToLive() <= 0L || this.maximumWeight <= 0L) {
+      return generator.get();
+    }
+
+    final String tenant = TenantContextHolder.checkedGetIdentifier();
+    final String key = ReportResultCache.buildKey(tenant, report, reportRequest, page);
+    final long now = Clock.systemUTC().millis();
+    final Entry cachedEntry;
+    final long epoch;
+    synchronized (this) {
+      epoch = this.invalidationEpochs.getOrDefault(tenant, 0L);
+      final Entry entry = this.entries.get(key);
+      if (entry != null && entry.expiresAt <= now) {
+        this.remove(key);
+        cachedEntry = null;
+      } else {
+        cachedEntry = entry;
+      }
+    }
+
+    if (cachedEntry != null) {
+      this.hits.increment();
+      @SuppressWarnings("unchecked")
+      final T cachedValue = (T) cachedEntry.value;
+      return copier.apply(cachedValue);
+    }
+
+    this.misses.increment();
+    final T value = generator.get();
+    if (value == null) {
+      return null;
+    }
+    final long entryWeight = weigher.applyAsLong(key, value);
+    if (entryWeight <= this.maximumWeight) {
+      final long expiresAt = now + TimeUnit.SECONDS.toMillis(report.cacheTimeToLive());
+      synchronized (this) {
+        // an invalidation arriving while the value was generated may concern it, so it is not kept
+        if (this.invalidationEpochs.getOrDefault(tenant, 0L) != epoch) {
+          return value;
+        }
+        this.remove(key);
+        this.entries.put(key, new Entry(tenant, report, value, entryWeight, expiresAt));
+        this.weight += entryWeight;
+        final Iterator<Map.Entry<String, Entry>> eldest = this.entries.entrySet().iterator();
+        while (this.weight > this.maximumWeight && eldest.hasNext()) {
+          this.weight -= eldest.next().getValue().weight;
+          eldest.remove();
+          this.evictions.increment();
+        }
+      }
+      // callers may complete what they are given, the cached value has to stay as generated
+      return copier.apply(value);
+    }
+    return value;
+  }
+
+  public synchronized void invalidate(final String tenant, final Collection<String> tables) {
+    this.invalidationEpochs.merge(tenant, 1L, Long::sum);
+    final Iterator<Entry> iterator = this.entries.values().iterator();
+    while (iterator.hasNext()) {
+      final Entry entry = iterator.next();
+      if (entry.tenant.equals(tenant) && entry.dependsOn(tables)) {
+        this.weight -= entry.weight;
+        iterator.remove();
+        this.invalidations.increment();
+      }
+    }
+  }
+
+  public long getHits() {
+    return this.hits.sum();
+  }
+
+  public long getMisses() {
+    return this.misses.sum();
+  }
+
+  public long getEvictions() {
+    return this.evictions.sum();
+  }
+
+  public long getInvalidations() {
+    return this.invalidations.sum();
+  }
+
+  public synchronized int getSize() {
+    return this.entries.size();
+  }
+
+  public synchronized long getWeight() {
+    return this.weight;
+  }
+
+  private void remove(final String key) {
+    final Entry entry = this.entries.remove(key);
+    if (entry != null) {
+      this.weight -= entry.weight;
+    }
+  }
+
+  private static String buildKey(final String tenant, final Report report, final ReportRequest reportRequest,
+                                 final String page) {
+    final StringBuilder key = new StringBuilder();
+    ReportResultCache.appendPart(key, tenant);
+    ReportResultCache.appendPart(key, report.category());
+    ReportResultCache.appendPart(key, report.identifier());
+    final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
+    ReportResultCache.appendPart(key, displayableFields.size());
+    displayableFields.forEach(displayableField -> ReportResultCache.appendPart(key, displayableField.getName()));
+    final Map<String, List<Aggregate>> aggregates =
+        reportRequest.getAggregates() != null ? new TreeMap<>(reportRequest.getAggregates()) : new TreeMap<>();
+    aggregates.values().removeIf(requestedAggregates -> requestedAggregates == null || requestedAggregates.isEmpty());
+    ReportResultCache.appendPart(key, aggregates.size());
+    aggregates.forEach((fieldName, requestedAggregates) -> {
+      ReportResultCache.appendPart(key, fieldName);
+      ReportResultCache.appendPart(key, requestedAggregates);
+    });
+    // parameters are matched by name, so their order in the request does not change the result
+    final List<QueryParameter> queryParameters = reportRequest.getQueryParameters()
+        .stream()
+        .filter(queryParameter -> queryParameter.getValue() != null && !queryParameter.getValue().isEmpty())
+        .sorted(Comparator.comparing(QueryParameter::getName))
+        .collect(Collectors.toList());
+    ReportResultCache.appendPart(key, queryParameters.size());
+    queryParameters.forEach(queryParameter -> {
+      ReportResultCache.appendPart(key, queryParameter.getName());
+      ReportResultCache.appendPart(key, queryParameter.getOperator());
+      ReportResultCache.appendPart(key, queryParameter.getValue());
+    });
+    ReportResultCache.appendPart(key, page);
+    return key.toString();
+  }
+
+  // every part is prefixed with its length, so no value can pass for a boundary and shift the parts after it
+  private static void appendPart(final StringBuilder key, final Object part) {
+    final String string = String.valueOf(part);
+    key.append(string.length()).append(':').append(string);
+  }
+
+  // an estimate of the retained size: object headers and references, plus two bytes per character
+  private static long weigh(final String key, final ReportPage reportPage) {
+    long weight = 256L + 2L * key.length();
+    if (reportPage.getRows() != null) {
+      for (final Row row : reportPage.getRows()) {
+        weight += 48L;
+        if (row.getValues() != null) {
+          for (final io.mifos.reporting.api.v1.domain.Value value : row.getValues()) {
+            weight += 32L;
+            if (value.getValues() != null) {
+              for (final String string : value.getValues()) {
+                weight += 40L + (string != null ? 2L * string.length() : 0L);
+              }
+            }
+          }
+        }
+      }
+    }
+    return weight;
+  }
+
+  private static ReportPage copyFor(final ReportPage reportPage, final String user) {
+    final ReportPage copy = new ReportPage();
+    copy.setName(reportPage.getName());
+    copy.setDescription(reportPage.getDescription());
+    copy.setGeneratedOn(reportPage.getGeneratedOn());
+    copy.setGeneratedBy(user);
+    copy.setHeader(reportPage.getHeader());
+    copy.setRows(reportPage.getRows());
+    copy.setFooter(reportPage.getFooter());
+    copy.setHasMore(reportPage.isHasMore());
+    copy.setNextPageToken(reportPage.getNextPageToken());
+    return copy;
+  }
+
+  private static class Entry {
+
+    private final String tenant;
+    private final Report report;
+    private final Object value;
+    private final long weight;
+    private final long expiresAt;
+
+    private Entry(final String tenant, final Report report, final Object value, final long weight,
+                  final long expiresAt) {
+      super();
+      this.tenant = tenant;
+      this.report = report;
+      this.value = value;
+      this.weight = weight;
+      this.expiresAt = expiresAt;
+    }
+
+    private boolean dependsOn(final Collection<String> tables) {
+      return this.report.tables().length == 0 || Arrays.stream(this.report.tables()).anyMatch(tables::contains);
+    }
+  }
+}
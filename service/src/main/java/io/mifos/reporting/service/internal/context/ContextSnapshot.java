@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.context;
+
+import io.mifos.core.api.util.UserContext;
+import io.mifos.core.api.util.UserContextHolder;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.reporting.service.internal.metrics.ReportRecording;
+
+/**
+ * Tenant and user context are held in thread locals. Work handed to another thread has to carry a snapshot of
+ * them, or it runs against no tenant's data source. The recording of the current report request travels along,
+ * so work done elsewhere is still accounted to it.
+ */
+public class ContextSnapshot {
+
+  private final String tenantIdentifier;
+  private final UserContext userContext;
+  private final ReportRecording reportRecording;
+
+  private ContextSnapshot(final String tenantIdentifier, final UserContext userContext,
+                          final ReportRecording reportRecording) {
+    super();
+    this.tenantIdentifier = tenantIdentifier;
+    this.userContext = userContext;
+    this.reportRecording = reportRecording;
+  }
+
+  public static ContextSnapshot capture() {
+    return new ContextSnapshot(
+        TenantContextHolder.identifier().orElse(null),
+        UserContextHolder.getUserContext().orElse(null),
+        ReportRecording.current().orElse(null)
+    );
+  }
+
+  public void apply() {
+    if (this.tenantIdentifier != null) {
+      TenantContextHolder.setIdentifier(this.tenantIdentifier);
+    }
+    if (this.userContext != null) {
+      UserContextHolder.setUserContext(this.userContext);
+    }
+    if (this.reportRecording != null) {
+      ReportRecording.attach(this.reportRecording);
+    }
+  }
+
+  public static void clear() {
+    TenantContextHolder.clear();
+    UserContextHolder.clear();
+    ReportRecording.clear();
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.export;
+
+import io.mifos.reporting.api.v1.domain.Row;
+import io.mifos.reporting.api.v1.domain.Value;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes RFC 4180 CSV. Cells holding more than one value are joined with a comma inside one quoted field.
+ */
+public class CsvExportWriter extends ExportWriter {
+
+  CsvExportWriter(final OutputStream outputStream) {
+    super(outputStream);
+  }
+
+  @Override
+  public void writeHeader(final List<String> columnNames) throws IOException {
+    for (int i = 0; i < columnNames.size(); i++) {
+      if (i > 0) {
+        this.writer.write(',');
+      }
+      this.writeField(columnNames.get(i));
+    }
+    this.writer.write("\r\n");
+  }
+
+  @Override
+  public void write(final List<Row> rows) throws IOException {
+    for (final Row row : rows) {
+      final List<Value> values = row.getValues();
+      for (int i = 0; i < values.size(); i++) {
+        if (i > 0) {
+          this.writer.write(',');
+        }
+        final String[] cell = values.get(i).getValues();
+        this.writeField(cell != null ? String.join(", ", cell) : "");
+      }
+      this.writer.write("\r\n");
+    }
+    this.writer.flush();
+  }
+
+  private void writeField(final String field) throws IOException {
+    if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+      this.writer.write(field);
+      return;
+    }
+    this.writer.write('"');
+    this.writer.write(field.replace("\"", "\"\""));
+    this.writer.write('"');
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.export;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports are the only asynchronous requests. Their bodies are written on a bounded pool of their own, each one
+ * holds a database cursor while it runs, and with a timeout long enough for the largest reports instead of the
+ * container's default of a few seconds.
+ */
+@Configuration
+public class ExportConfiguration extends WebMvcConfigurerAdapter {
+
+  private final ThreadPoolTaskExecutor executor;
+  private final long timeoutMillis;
+
+  @Autowired
+  public ExportConfiguration(@Value("${reporting.export.poolSize:4}") final int poolSize,
+                             @Value("${reporting.export.queueCapacity:8}") final int queueCapacity,
+                             @Value("${reporting.export.timeoutMinutes:30}") final long timeoutMinutes) {
+    super();
+    this.executor = new ThreadPoolTaskExecutor();
+    this.executor.setCorePoolSize(poolSize);
+    this.executor.setMaxPoolSize(poolSize);
+    this.executor.setQueueCapacity(queueCapacity);
+    this.executor.setThreadNamePrefix("report-export-");
+    this.executor.initialize();
+    this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    this.executor.shutdown();
+  }
+
+  @Override
+  public void configureAsyncSupport(final AsyncSupportConfigurer configurer) {
+    configurer.setTaskExecutor(this.executor);
+    configurer.setDefaultTimeout(this.timeoutMillis);
+  }
+}
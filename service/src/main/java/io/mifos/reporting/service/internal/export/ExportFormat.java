@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.export;
+
+import java.io.OutputStream;
+
+public enum ExportFormat {
+
+  NDJSON("application/x-ndjson"),
+  CSV("text/csv");
+
+  private final String mediaType;
+
+  ExportFormat(final String mediaType) {
+    this.mediaType = mediaType;
+  }
+
+  public String getMediaType() {
+    return this.mediaType;
+  }
+
+  public ExportWriter createWriter(final OutputStream outputStream) {
+    switch (this) {
+      case CSV:
+        return new CsvExportWriter(outputStream);
+      default:
+        return new NdjsonExportWriter(outputStream);
+    }
+  }
+
+  public static ExportFormat parse(final String format) throws IllegalArgumentException {
+    for (final ExportFormat exportFormat : ExportFormat.values()) {
+      if (exportFormat.name().equalsIgnoreCase(format)) {
+        return exportFormat;
+      }
+    }
+    throw new IllegalArgumentException("Unsupported export format " + format + ".");
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.export;
+
+import com.google.gson.Gson;
+import io.mifos.reporting.api.v1.domain.Row;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes one JSON array per line. The first line holds the column names, every following line holds the
+ * values of one row, each cell being an array of strings.
+ */
+public class NdjsonExportWriter extends ExportWriter {
+
+  private final Gson gson = new Gson();
+
+  NdjsonExportWriter(final OutputStream outputStream) {
+    super(outputStream);
+  }
+
+  @Override
+  public void writeHeader(final List<String> columnNames) throws IOException {
+    this.writer.write(this.gson.toJson(columnNames));
+    this.writer.write('\n');
+  }
+
+  @Override
+  public void write(final List<Row> rows) throws IOException {
+    for (final Row row : rows) {
+      final String[][] cells = new String[row.getValues().size()][];
+      for (int i = 0; i < cells.length; i++) {
+        cells[i] = row.getValues().get(i).getValues();
+      }
+      this.writer.write(this.gson.toJson(cells));
+      this.writer.write('\n');
+    }
+    this.writer.flush();
+  }
+}
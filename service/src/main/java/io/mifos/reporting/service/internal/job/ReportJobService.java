@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.job;
+
+import io.mifos.core.api.util.UserContextHolder;
+import io.mifos.core.lang.DateConverter;
+import io.mifos.reporting.api.v1.domain.DisplayableField;
+import io.mifos.reporting.api.v1.domain.ReportDefinition;
+import io.mifos.reporting.api.v1.domain.ReportJob;
+import io.mifos.reporting.api.v1.domain.ReportPage;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.service.ServiceConstants;
+import io.mifos.reporting.service.internal.context.ContextSnapshot;
+import io.mifos.reporting.service.spi.ReportSpecification;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Runs reports off the request thread. Jobs run on their own bounded pool, the shared async pool is sized for
+ * short command handlers and would let long reports take every database connection. Jobs and their rows are kept
+ * in the tenant's database by {@link ReportJobStore} for the retention period, so their pages can be fetched from
+ * any instance without running the queries again. Rows are written as the export produces them, an instance only
+ * holds one chunk per running job.
+ *
+ * <p>Jobs are bounded in number per tenant and in flight on this instance, and in the rows each job may keep; a
+ * job exceeding its row bound fails, reports of that size have to be exported.</p>
+ */
+@Component
+public class ReportJobService {
+
+  private final Logger logger;
+  private final ReportJobStore reportJobStore;
+  private final ThreadPoolTaskExecutor executor;
+  private final TransactionTemplate transactionTemplate;
+  private final int fetchSize;
+  private final long retentionMillis;
+  private final int maximumJobs;
+  private final int maximumJobsPerTenant;
+  private final int maximumRows;
+  private final AtomicInteger jobsInFlight = new AtomicInteger();
+
+  @Autowired
+  public ReportJobService(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                          final ReportJobStore reportJobStore,
+                          final PlatformTransactionManager transactionManager,
+                          @Value("${reporting.jobs.poolSize:4}") final int poolSize,
+                          @Value("${reporting.jobs.queueCapacity:32}") final int queueCapacity,
+                          @Value("${reporting.jobs.retentionMinutes:60}") final long retentionMinutes,
+                          @Value("${reporting.jobs.maximumJobs:64}") final int maximumJobs,
+                          @Value("${reporting.jobs.maximumJobsPerTenant:32}") final int maximumJobsPerTenant,
+                          @Value("${reporting.jobs.maximumRows:100000}") final int maximumRows,
+                          @Value("${reporting.export.fetchSize:500}") final int fetchSize) {
+    super();
+    this.logger = logger;
+    this.reportJobStore = reportJobStore;
+    this.executor = new ThreadPoolTaskExecutor();
+    this.executor.setCorePoolSize(poolSize);
+    this.executor.setMaxPoolSize(poolSize);
+    this.executor.setQueueCapacity(queueCapacity);
+    this.executor.setThreadNamePrefix("report-job-");
+    this.executor.initialize();
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+    this.fetchSize = fetchSize;
+    this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+    this.maximumJobs = maximumJobs;
+    this.maximumJobsPerTenant = maximumJobsPerTenant;
+    this.maximumRows = maximumRows;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    this.executor.shutdown();
+  }
+
+  public ReportJob submit(final String category, final String identifier,
+                          final ReportSpecification reportSpecification, final ReportRequest reportRequest)
+      throws RejectedExecutionException {
+    this.reportJobStore.purge(this.now() - this.retentionMillis);
+    // the tenant's count is read from the shared store, concurrent submissions may pass it by a few jobs
+    if (this.reportJobStore.count() >= this.maximumJobsPerTenant) {
+      throw new RejectedExecutionException("Too many report jobs retained.");
+    }
+    if (this.jobsInFlight.incrementAndGet() > this.maximumJobs) {
+      this.jobsInFlight.decrementAndGet();
+      throw new RejectedExecutionException("Too many report jobs running.");
+    }
+
+    final ReportJob reportJob = new ReportJob();
+    reportJob.setIdentifier(UUID.randomUUID().toString());
+    reportJob.setCategory(category);
+    reportJob.setReportIdentifier(identifier);
+    reportJob.setState(ReportJob.State.QUEUED);
+    reportJob.setSubmittedBy(UserContextHolder.checkedGetUser());
+    reportJob.setSubmittedOn(DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC())));
+
+    final ReportDefinition reportDefinition = reportSpecification.getReportDefinition();
+    final List<String> columnNames = reportRequest.getDisplayableFields()
+        .stream()
+        .map(DisplayableField::getName)
+        .collect(Collectors.toList());
+    try {
+      this.reportJobStore.create(reportJob, reportDefinition.getName(), reportDefinition.getDescription(),
+          columnNames, this.now());
+    } catch (final RuntimeException rex) {
+      this.jobsInFlight.decrementAndGet();
+      throw rex;
+    }
+
+    final ContextSnapshot contextSnapshot = ContextSnapshot.capture();
+    try {
+      this.executor.execute(() -> this.run(reportJob.getIdentifier(), reportSpecification, reportRequest,
+          contextSnapshot));
+    } catch (final RejectedExecutionException rex) {
+      this.jobsInFlight.decrementAndGet();
+      this.reportJobStore.remove(reportJob.getIdentifier());
+      throw rex;
+    }
+
+    this.logger.info("Report job {} submitted for report {}.", reportJob.getIdentifier(), identifier);
+    return reportJob;
+  }
+
+  public Optional<ReportJob> findJob(final String jobIdentifier) {
+    this.reportJobStore.purge(this.now() - this.retentionMillis);
+    return this.reportJobStore.find(jobIdentifier);
+  }
+
+  public Optional<ReportPage> fetchPage(final String jobIdentifier, final int pageIndex, final int size)
+      throws IllegalStateException {
+    this.reportJobStore.purge(this.now() - this.retentionMillis);
+    return this.reportJobStore.fetchPage(jobIdentifier, pageIndex, size);
+  }
+
+  private void run(final String jobIdentifier, final ReportSpecification reportSpecification,
+                   final ReportRequest reportRequest, final ContextSnapshot contextSnapshot) {
+    contextSnapshot.apply();
+    try {
+      this.reportJobStore.start(jobIdentifier);
+      final AtomicLong rowCount = new AtomicLong();
+      this.transactionTemplate.execute(status -> {
+        try {
+          reportSpecification.exportReport(reportRequest, this.fetchSize, chunk -> {
+            if (rowCount.get() + chunk.size() > this.maximumRows) {
+              throw new IllegalStateException(
+                  "Report job exceeded " + this.maximumRows + " rows, export the report instead.");
+            }
+            if (!chunk.isEmpty()) {
+              this.reportJobStore.appendRows(jobIdentifier, rowCount.get(), chunk);
+              rowCount.addAndGet(chunk.size());
+            }
+          });
+        } catch (final IOException ioex) {
+          throw new UncheckedIOException(ioex);
+        }
+        return null;
+      });
+      this.reportJobStore.complete(jobIdentifier, rowCount.get(), this.finishedOn(), this.now());
+    } catch (final RuntimeException rex) {
+      this.logger.warn("Report job {} failed.", jobIdentifier, rex);
+      try {
+        this.reportJobStore.fail(jobIdentifier, rex.getMessage(), this.finishedOn(), this.now());
+      } catch (final RuntimeException storeException) {
+        this.logger.warn("Report job {} could not be marked failed.", jobIdentifier, storeException);
+      }
+    } finally {
+      this.jobsInFlight.decrementAndGet();
+      ContextSnapshot.clear();
+    }
+  }
+
+  private String finishedOn() {
+    return DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC()));
+  }
+
+  private long now() {
+    return Clock.systemUTC().millis();
+  }
+}
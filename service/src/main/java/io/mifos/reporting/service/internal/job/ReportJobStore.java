@@ -0,0 +1,279 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.job;
+
+import com.google.gson.Gson;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.reporting.api.v1.domain.Header;
+import io.mifos.reporting.api.v1.domain.ReportJob;
+import io.mifos.reporting.api.v1.domain.ReportPage;
+import io.mifos.reporting.api.v1.domain.Row;
+import io.mifos.reporting.service.spi.Statements;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Keeps report jobs and their rows in the tenant's database, so every instance behind the load balancer can answer
+ * for a job and jobs survive restarts. Rows are written in the chunks the export produces them in, each chunk a JSON
+ * array keyed by the index of its first row, so a page only reads the chunks it overlaps.
+ *
+ * <p>The tables belong to this service alone and are created on first use for each tenant. Every statement runs in
+ * a transaction of its own, jobs write their rows while the transaction holding their report's cursor is open.</p>
+ */
+@Component
+public class ReportJobStore {
+
+  private static final String[] TABLES = {
+      "CREATE TABLE IF NOT EXISTS seshat_report_jobs (identifier VARCHAR(36) NOT NULL, " +
+          "category VARCHAR(256) NOT NULL, report_identifier VARCHAR(256) NOT NULL, a_state VARCHAR(16) NOT NULL, " +
+          "submitted_by VARCHAR(32) NOT NULL, submitted_on VARCHAR(32) NOT NULL, submitted_at BIGINT NOT NULL, " +
+          "finished_on VARCHAR(32) NULL, finished_at BIGINT NULL, row_count BIGINT NULL, " +
+          "message VARCHAR(2048) NULL, report_name VARCHAR(256) NULL, report_description VARCHAR(2048) NULL, " +
+          "column_names TEXT NOT NULL, CONSTRAINT seshat_report_jobs_pk PRIMARY KEY (identifier))",
+      "CREATE TABLE IF NOT EXISTS seshat_report_job_rows (job_identifier VARCHAR(36) NOT NULL, " +
+          "first_row BIGINT NOT NULL, row_count INT NOT NULL, a_rows MEDIUMTEXT NOT NULL, " +
+          "CONSTRAINT seshat_report_job_rows_pk PRIMARY KEY (job_identifier, first_row))"
+  };
+  private static final String JOB_COLUMNS = "identifier, category, report_identifier, a_state, submitted_by, " +
+      "submitted_on, finished_on, row_count, message, report_name, report_description, column_names";
+  private static final int MAXIMUM_MESSAGE_LENGTH = 2048;
+
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+  private final Gson gson;
+  private final Set<String> preparedTenants = ConcurrentHashMap.newKeySet();
+
+  @Autowired
+  public ReportJobStore(final EntityManager entityManager, final PlatformTransactionManager transactionManager) {
+    super();
+    this.entityManager = entityManager;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.gson = new Gson();
+  }
+
+  public void create(final ReportJob reportJob, final String reportName, final String reportDescription,
+                     final List<String> columnNames, final long submittedAt) {
+    this.update("INSERT INTO seshat_report_jobs (identifier, category, report_identifier, a_state, submitted_by, " +
+            "submitted_on, submitted_at, report_name, report_description, column_names) VALUES (:identifier, " +
+            ":category, :reportIdentifier, :state, :submittedBy, :submittedOn, :submittedAt, :reportName, " +
+            ":reportDescription, :columnNames)",
+        query -> {
+          query.setParameter("identifier", reportJob.getIdentifier());
+          query.setParameter("category", reportJob.getCategory());
+          query.setParameter("reportIdentifier", reportJob.getReportIdentifier());
+          query.setParameter("state", reportJob.getState().name());
+          query.setParameter("submittedBy", reportJob.getSubmittedBy());
+          query.setParameter("submittedOn", reportJob.getSubmittedOn());
+          query.setParameter("submittedAt", submittedAt);
+          query.setParameter("reportName", reportName);
+          query.setParameter("reportDescription", reportDescription);
+          query.setParameter("columnNames", this.gson.toJson(columnNames));
+        });
+  }
+
+  public void start(final String jobIdentifier) {
+    this.update("UPDATE seshat_report_jobs SET a_state = :state WHERE identifier = :identifier", query -> {
+      query.setParameter("state", ReportJob.State.RUNNING.name());
+      query.setParameter("identifier", jobIdentifier);
+    });
+  }
+
+  public void appendRows(final String jobIdentifier, final long firstRow, final List<Row> rows) {
+    this.update("INSERT INTO seshat_report_job_rows (job_identifier, first_row, row_count, a_rows) " +
+            "VALUES (:identifier, :firstRow, :rowCount, :rows)",
+        query -> {
+          query.setParameter("identifier", jobIdentifier);
+          query.setParameter("firstRow", firstRow);
+          query.setParameter("rowCount", rows.size());
+          query.setParameter("rows", this.gson.toJson(rows));
+        });
+  }
+
+  public void complete(final String jobIdentifier, final long rowCount, final String finishedOn,
+                       final long finishedAt) {
+    this.update("UPDATE seshat_report_jobs SET a_state = :state, row_count = :rowCount, finished_on = :finishedOn, " +
+            "finished_at = :finishedAt WHERE identifier = :identifier",
+        query -> {
+          query.setParameter("state", ReportJob.State.COMPLETED.name());
+          query.setParameter("rowCount", rowCount);
+          query.setParameter("finishedOn", finishedOn);
+          query.setParameter("finishedAt", finishedAt);
+          query.setParameter("identifier", jobIdentifier);
+        });
+  }
+
+  public void fail(final String jobIdentifier, final String message, final String finishedOn,
+                   final long finishedAt) {
+    this.removeRows(jobIdentifier);
+    this.update("UPDATE seshat_report_jobs SET a_state = :state, message = :message, finished_on = :finishedOn, " +
+            "finished_at = :finishedAt WHERE identifier = :identifier",
+        query -> {
+          query.setParameter("state", ReportJob.State.FAILED.name());
+          query.setParameter("message", message != null && message.length() > MAXIMUM_MESSAGE_LENGTH
+              ? message.substring(0, MAXIMUM_MESSAGE_LENGTH) : message);
+          query.setParameter("finishedOn", finishedOn);
+          query.setParameter("finishedAt", finishedAt);
+          query.setParameter("identifier", jobIdentifier);
+        });
+  }
+
+  public void remove(final String jobIdentifier) {
+    this.removeRows(jobIdentifier);
+    this.update("DELETE FROM seshat_report_jobs WHERE identifier = :identifier",
+        query -> query.setParameter("identifier", jobIdentifier));
+  }
+
+  public long count() {
+    return this.read(() -> ((Number) Statements.singleResult(
+        this.entityManager.createNativeQuery("SELECT COUNT(*) FROM seshat_report_jobs"))).longValue());
+  }
+
+  // jobs never finishing were running on an instance that stopped, they expire with the jobs submitted alongside
+  public void purge(final long threshold) {
+    final String expired = "finished_at < :threshold OR (finished_at IS NULL AND submitted_at < :threshold)";
+    this.update("DELETE FROM seshat_report_job_rows WHERE job_identifier IN " +
+            "(SELECT identifier FROM seshat_report_jobs WHERE " + expired + ")",
+        query -> query.setParameter("threshold", threshold));
+    this.update("DELETE FROM seshat_report_jobs WHERE " + expired,
+        query -> query.setParameter("threshold", threshold));
+  }
+
+  public Optional<ReportJob> find(final String jobIdentifier) {
+    return this.findJob(jobIdentifier).map(ReportJobStore::toReportJob);
+  }
+
+  public Optional<ReportPage> fetchPage(final String jobIdentifier, final int pageIndex, final int size)
+      throws IllegalStateException {
+    final Optional<Object[]> optionalJob = this.findJob(jobIdentifier);
+    if (!optionalJob.isPresent()) {
+      return Optional.empty();
+    }
+    final ReportJob reportJob = ReportJobStore.toReportJob(optionalJob.get());
+    if (reportJob.getState() != ReportJob.State.COMPLETED) {
+      throw new IllegalStateException("Report job " + jobIdentifier + " is " + reportJob.getState() + ".");
+    }
+
+    final long rowCount = reportJob.getRowCount();
+    final long from = Math.min((long) pageIndex * size, rowCount);
+    final long to = Math.min(from + size, rowCount);
+    final List<?> chunks = this.read(() -> {
+      final Query query = this.entityManager.createNativeQuery("SELECT first_row, a_rows " +
+          "FROM seshat_report_job_rows WHERE job_identifier = :identifier AND first_row < :toRow " +
+          "AND first_row + row_count > :fromRow ORDER BY first_row");
+      query.setParameter("identifier", jobIdentifier);
+      query.setParameter("toRow", to);
+      query.setParameter("fromRow", from);
+      return Statements.resultList(query);
+    });
+
+    final ArrayList<Row> rows = new ArrayList<>((int) (to - from));
+    chunks.forEach(result -> {
+      final Object[] chunk = (Object[]) result;
+      final long firstRow = ((Number) chunk[0]).longValue();
+      final Row[] chunkRows = this.gson.fromJson(chunk[1].toString(), Row[].class);
+      for (int i = 0; i < chunkRows.length; i++) {
+        if (firstRow + i >= from && firstRow + i < to) {
+          rows.add(chunkRows[i]);
+        }
+      }
+    });
+
+    final Object[] job = optionalJob.get();
+    final Header header = new Header();
+    header.setColumnNames(Arrays.asList(this.gson.fromJson(job[11].toString(), String[].class)));
+
+    final ReportPage reportPage = new ReportPage();
+    reportPage.setName(job[9] != null ? job[9].toString() : null);
+    reportPage.setDescription(job[10] != null ? job[10].toString() : null);
+    reportPage.setHeader(header);
+    reportPage.setRows(rows);
+    reportPage.setHasMore(to < rowCount);
+    reportPage.setGeneratedBy(reportJob.getSubmittedBy());
+    reportPage.setGeneratedOn(reportJob.getFinishedOn());
+    return Optional.of(reportPage);
+  }
+
+  private Optional<Object[]> findJob(final String jobIdentifier) {
+    final List<?> resultList = this.read(() -> {
+      final Query query = this.entityManager.createNativeQuery(
+          "SELECT " + JOB_COLUMNS + " FROM seshat_report_jobs WHERE identifier = :identifier");
+      query.setParameter("identifier", jobIdentifier);
+      return Statements.resultList(query);
+    });
+    return resultList.isEmpty() ? Optional.empty() : Optional.of((Object[]) resultList.get(0));
+  }
+
+  private void removeRows(final String jobIdentifier) {
+    this.update("DELETE FROM seshat_report_job_rows WHERE job_identifier = :identifier",
+        query -> query.setParameter("identifier", jobIdentifier));
+  }
+
+  private void update(final String statement, final Consumer<Query> binder) {
+    this.prepareTables();
+    this.transactionTemplate.execute(status -> {
+      final Query query = this.entityManager.createNativeQuery(statement);
+      binder.accept(query);
+      return query.executeUpdate();
+    });
+  }
+
+  private <T> T read(final Supplier<T> reader) {
+    this.prepareTables();
+    return this.transactionTemplate.execute(status -> reader.get());
+  }
+
+  private void prepareTables() {
+    final String tenant = TenantContextHolder.checkedGetIdentifier();
+    if (!this.preparedTenants.contains(tenant)) {
+      this.transactionTemplate.execute(status -> {
+        for (final String table : TABLES) {
+          this.entityManager.createNativeQuery(table).executeUpdate();
+        }
+        return null;
+      });
+      this.preparedTenants.add(tenant);
+    }
+  }
+
+  private static ReportJob toReportJob(final Object[] job) {
+    final ReportJob reportJob = new ReportJob();
+    reportJob.setIdentifier(job[0].toString());
+    reportJob.setCategory(job[1].toString());
+    reportJob.setReportIdentifier(job[2].toString());
+    reportJob.setState(ReportJob.State.valueOf(job[3].toString()));
+    reportJob.setSubmittedBy(job[4].toString());
+    reportJob.setSubmittedOn(job[5].toString());
+    reportJob.setFinishedOn(job[6] != null ? job[6].toString() : null);
+    reportJob.setRowCount(job[7] != null ? ((Number) job[7]).longValue() : null);
+    reportJob.setMessage(job[8] != null ? job[8].toString() : null);
+    return reportJob;
+  }
+}
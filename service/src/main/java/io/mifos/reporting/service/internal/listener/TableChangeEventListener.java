@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.listener;
+
+import com.google.gson.Gson;
+import io.mifos.core.lang.config.TenantHeaderFilter;
+import io.mifos.reporting.api.v1.EventConstants;
+import io.mifos.reporting.service.ServiceConstants;
+import io.mifos.reporting.service.internal.autocomplete.AutoCompleteIndex;
+import io.mifos.reporting.service.internal.cache.ReportResultCache;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Invalidates cached report results and auto complete terms when the tables they are read from change. Besides the
+ * explicit tables-changed operation, the events of the services owning the tables are consumed. Their destinations are
+ * declared here rather than taken from their API artifacts; every operation on a destination writes some of the
+ * service's tables, so each destination is mapped to all tables the reports read from that service.
+ */
+@SuppressWarnings("unused")
+@Component
+public class TableChangeEventListener {
+
+  private static final String CUSTOMER_DESTINATION = "customer-v1";
+  private static final String DEPOSIT_DESTINATION = "deposit-v1";
+  private static final String PORTFOLIO_DESTINATION = "portfolio-v1";
+  private static final String TELLER_DESTINATION = "teller-v1";
+
+  private static final List<String> CUSTOMER_TABLES = Arrays.asList("maat_customers", "maat_addresses");
+  // opening accounts and posting transactions is booked in accounting, so balances change with all of these
+  private static final List<String> DEPOSIT_TABLES =
+      Arrays.asList("shed_product_instances", "shed_product_definitions", "thoth_accounts");
+  private static final List<String> PORTFOLIO_TABLES =
+      Arrays.asList("bastet_cases", "bastet_il_cases", "thoth_accounts");
+  private static final List<String> TELLER_TABLES =
+      Arrays.asList("tajet_teller", "tajet_teller_transactions", "thoth_accounts");
+
+  private final Logger logger;
+  private final ReportResultCache reportResultCache;
+  private final AutoCompleteIndex autoCompleteIndex;
+  private final Gson gson;
+
+  @Autowired
+  public TableChangeEventListener(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                                  final ReportResultCache reportResultCache,
+                                  final AutoCompleteIndex autoCompleteIndex) {
+    super();
+    this.logger = logger;
+    this.reportResultCache = reportResultCache;
+    this.autoCompleteIndex = autoCompleteIndex;
+    this.gson = new Gson();
+  }
+
+  @JmsListener(
+      subscription = EventConstants.DESTINATION,
+      destination = EventConstants.DESTINATION,
+      selector = EventConstants.SELECTOR_TABLES_CHANGED
+  )
+  public void onTablesChanged(@Header(TenantHeaderFilter.TENANT_HEADER) final String tenant,
+                              final String payload) {
+    this.invalidate(tenant, Arrays.asList(this.gson.fromJson(payload, String[].class)));
+  }
+
+  @JmsListener(
+      subscription = CUSTOMER_DESTINATION,
+      destination = CUSTOMER_DESTINATION
+  )
+  public void onCustomerEvent(@Header(TenantHeaderFilter.TENANT_HEADER) final String tenant,
+                              final String payload) {
+    this.invalidate(tenant, CUSTOMER_TABLES);
+  }
+
+  @JmsListener(
+      subscription = DEPOSIT_DESTINATION,
+      destination = DEPOSIT_DESTINATION
+  )
+  public void onDepositEvent(@Header(TenantHeaderFilter.TENANT_HEADER) final String tenant,
+                             final String payload) {
+    this.invalidate(tenant, DEPOSIT_TABLES);
+  }
+
+  @JmsListener(
+      subscription = PORTFOLIO_DESTINATION,
+      destination = PORTFOLIO_DESTINATION
+  )
+  public void onPortfolioEvent(@Header(TenantHeaderFilter.TENANT_HEADER) final String tenant,
+                               final String payload) {
+    this.invalidate(tenant, PORTFOLIO_TABLES);
+  }
+
+  @JmsListener(
+      subscription = TELLER_DESTINATION,
+      destination = TELLER_DESTINATION
+  )
+  public void onTellerEvent(@Header(TenantHeaderFilter.TENANT_HEADER) final String tenant,
+                            final String payload) {
+    this.invalidate(tenant, TELLER_TABLES);
+  }
+
+  private void invalidate(final String tenant, final List<String> tables) {
+    this.logger.debug("Invalidating cached reports and auto complete terms of tenant {} reading {}.", tenant, tables);
+    this.reportResultCache.invalidate(tenant, tables);
+    this.autoCompleteIndex.invalidate(tenant, tables);
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.metrics;
+
+import io.mifos.reporting.api.v1.domain.PhaseStatistics;
+import io.mifos.reporting.api.v1.domain.ReportStatistics;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregates recordings per tenant and report. Updates only touch striped counters, so recording a request never
+ * blocks another one.
+ */
+@Component
+public class ReportMetrics {
+
+  private static final int BUCKETS = 16;
+
+  private final ConcurrentHashMap<String, Accumulator> accumulators = new ConcurrentHashMap<>();
+
+  public ReportMetrics() {
+    super();
+  }
+
+  public void record(final ReportRecording reportRecording, final long serializationNanos, final long bytes) {
+    final String key = reportRecording.getTenant() + "~" + reportRecording.getCategory() + "~"
+        + reportRecording.getIdentifier();
+    final Accumulator accumulator = this.accumulators.computeIfAbsent(key, (k) -> new Accumulator(reportRecording));
+    accumulator.requests.increment();
+    accumulator.statements.add(reportRecording.getStatements());
+    accumulator.rows.add(reportRecording.getRows());
+    accumulator.bytes.add(bytes);
+    for (final ReportRecording.Phase phase : ReportRecording.Phase.values()) {
+      final long nanos = phase == ReportRecording.Phase.SERIALIZATION
+          ? serializationNanos
+          : reportRecording.getNanos(phase);
+      accumulator.phases[phase.ordinal()].add(nanos);
+    }
+  }
+
+  public List<ReportStatistics> fetchStatistics(final String tenant) {
+    return this.accumulators.values()
+        .stream()
+        .filter(accumulator -> accumulator.tenant.equals(tenant))
+        .map(Accumulator::toStatistics)
+        .collect(Collectors.toList());
+  }
+
+  private static int bucketOf(final long nanos) {
+    final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+    return millis <= 0L ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+  }
+
+  private static class Accumulator {
+
+    private final String tenant;
+    private final String category;
+    private final String identifier;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final Histogram[] phases;
+
+    private Accumulator(final ReportRecording reportRecording) {
+      super();
+      this.tenant = reportRecording.getTenant();
+      this.category = reportRecording.getCategory();
+      this.identifier = reportRecording.getIdentifier();
+      this.phases = new Histogram[ReportRecording.Phase.values().length];
+      for (int i = 0; i < this.phases.length; i++) {
+        this.phases[i] = new Histogram();
+      }
+    }
+
+    private ReportStatistics toStatistics() {
+      final ReportStatistics reportStatistics = new ReportStatistics();
+      reportStatistics.setCategory(this.category);
+      reportStatistics.setIdentifier(this.identifier);
+      reportStatistics.setRequests(this.requests.sum());
+      reportStatistics.setStatements(this.statements.sum());
+      reportStatistics.setRows(this.rows.sum());
+      reportStatistics.setBytes(this.bytes.sum());
+      final ArrayList<PhaseStatistics> phaseStatistics = new ArrayList<>(this.phases.length);
+      for (final ReportRecording.Phase phase : ReportRecording.Phase.values()) {
+        phaseStatistics.add(this.phases[phase.ordinal()].toStatistics(phase));
+      }
+      reportStatistics.setPhases(phaseStatistics);
+      return reportStatistics;
+    }
+  }
+
+  private static class Histogram {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder[] buckets;
+
+    private Histogram() {
+      super();
+      this.buckets = new LongAdder[BUCKETS];
+      for (int i = 0; i < BUCKETS; i++) {
+        this.buckets[i] = new LongAdder();
+      }
+    }
+
+    private void add(final long nanos) {
+      this.count.increment();
+      this.totalNanos.add(nanos);
+      this.buckets[ReportMetrics.bucketOf(nanos)].increment();
+    }
+
+    private PhaseStatistics toStatistics(final ReportRecording.Phase phase) {
+      final PhaseStatistics phaseStatistics = new PhaseStatistics();
+      phaseStatistics.setPhase(phase.name());
+      phaseStatistics.setCount(this.count.sum());
+      phaseStatistics.setTotalMillis(this.totalNanos.sum() / 1000000.0D);
+      final ArrayList<Long> histogram = new ArrayList<>(BUCKETS);
+      for (final LongAdder bucket : this.buckets) {
+        histogram.add(bucket.sum());
+      }
+      phaseStatistics.setHistogram(histogram);
+      return phaseStatistics;
+    }
+  }
+}
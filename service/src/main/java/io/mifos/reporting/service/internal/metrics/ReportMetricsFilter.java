@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Completes the recording of a generated report page. The page is serialized after the controller returned, so
+ * serialization time and response size can only be taken here, around the whole request.
+ */
+@Component
+public class ReportMetricsFilter extends OncePerRequestFilter {
+
+  private static final Pattern GENERATE_REPORT = Pattern.compile(".*/categories/[^/]+/reports/[^/]+");
+
+  private final ReportMetrics reportMetrics;
+
+  @Autowired
+  public ReportMetricsFilter(final ReportMetrics reportMetrics) {
+    super();
+    this.reportMetrics = reportMetrics;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(final HttpServletRequest request) throws ServletException {
+    return !"POST".equals(request.getMethod()) || !GENERATE_REPORT.matcher(request.getRequestURI()).matches();
+  }
+
+  @Override
+  protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+                                  final FilterChain filterChain) throws ServletException, IOException {
+    final CountingResponseWrapper countingResponse = new CountingResponseWrapper(response);
+    try {
+      filterChain.doFilter(request, countingResponse);
+      countingResponse.flushBuffer();
+      ReportRecording.current()
+          .filter(ReportRecording::isHandled)
+          .ifPresent(reportRecording -> this.reportMetrics.record(
+              reportRecording,
+              System.nanoTime() - reportRecording.getHandledAt(),
+              countingResponse.getByteCount()));
+    } finally {
+      ReportRecording.clear();
+    }
+  }
+
+  private static class CountingResponseWrapper extends HttpServletResponseWrapper {
+
+    private CountingOutputStream countingOutputStream;
+
+    private CountingResponseWrapper(final HttpServletResponse response) {
+      super(response);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (this.countingOutputStream == null) {
+        this.countingOutputStream = new CountingOutputStream(super.getOutputStream());
+      }
+      return this.countingOutputStream;
+    }
+
+    private long getByteCount() {
+      return this.countingOutputStream != null ? this.countingOutputStream.byteCount : 0L;
+    }
+  }
+
+  private static class CountingOutputStream extends ServletOutputStream {
+
+    private final ServletOutputStream delegate;
+    private long byteCount;
+
+    private CountingOutputStream(final ServletOutputStream delegate) {
+      super();
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      this.delegate.write(b);
+      this.byteCount++;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      this.delegate.write(b, off, len);
+      this.byteCount += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      this.delegate.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.delegate.close();
+    }
+
+    @Override
+    public boolean isReady() {
+      return this.delegate.isReady();
+    }
+
+    @Override
+    public void setWriteListener(final WriteListener writeListener) {
+      this.delegate.setWriteListener(writeListener);
+    }
+  }
+}
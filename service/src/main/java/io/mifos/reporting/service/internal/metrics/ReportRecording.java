@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.metrics;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects what one report request spends, bound to the threads working on it. Sections forked to other threads
+ * add to the same recording, so all counters are safe to update concurrently.
+ */
+public class ReportRecording {
+
+  public enum Phase {
+    VALIDATE,
+    PLAN,
+    QUERY,
+    ASSEMBLY,
+    SERIALIZATION
+  }
+
+  private static final ThreadLocal<ReportRecording> CURRENT = new ThreadLocal<>();
+
+  private final String tenant;
+  private final String category;
+  private final String identifier;
+  private final LongAdder[] phaseNanos;
+  private final LongAdder statements = new LongAdder();
+  private volatile long rows;
+  private volatile long handledAt;
+
+  private ReportRecording(final String tenant, final String category, final String identifier) {
+    super();
+    this.tenant = tenant;
+    this.category = category;
+    this.identifier = identifier;
+    this.phaseNanos = new LongAdder[Phase.values().length];
+    for (int i = 0; i < this.phaseNanos.length; i++) {
+      this.phaseNanos[i] = new LongAdder();
+    }
+  }
+
+  public static ReportRecording start(final String tenant, final String category, final String identifier) {
+    final ReportRecording reportRecording = new ReportRecording(tenant, category, identifier);
+    CURRENT.set(reportRecording);
+    return reportRecording;
+  }
+
+  public static Optional<ReportRecording> current() {
+    return Optional.ofNullable(CURRENT.get());
+  }
+
+  public static void attach(final ReportRecording reportRecording) {
+    CURRENT.set(reportRecording);
+  }
+
+  public static void clear() {
+    CURRENT.remove();
+  }
+
+  public static void record(final Phase phase, final long nanos) {
+    final ReportRecording reportRecording = CURRENT.get();
+    if (reportRecording != null) {
+      reportRecording.add(phase, nanos);
+    }
+  }
+
+  public static void recordStatement(final long nanos) {
+    final ReportRecording reportRecording = CURRENT.get();
+    if (reportRecording != null) {
+      reportRecording.statements.increment();
+      reportRecording.add(Phase.QUERY, nanos);
+    }
+  }
+
+  public void add(final Phase phase, final long nanos) {
+    this.phaseNanos[phase.ordinal()].add(nanos);
+  }
+
+  // whatever generating the page took beyond planning and statements was spent assembling rows
+  public void handled(final long generateNanos, final long rows) {
+    final long planAndQueryNanos = this.getNanos(Phase.PLAN) + this.getNanos(Phase.QUERY);
+    this.add(Phase.ASSEMBLY, Math.max(0L, generateNanos - planAndQueryNanos));
+    this.rows = rows;
+    this.handledAt = System.nanoTime();
+  }
+
+  public boolean isHandled() {
+    return this.handledAt != 0L;
+  }
+
+  public String getTenant() {
+    return this.tenant;
+  }
+
+  public String getCategory() {
+    return this.category;
+  }
+
+  public String getIdentifier() {
+    return this.identifier;
+  }
+
+  public long getNanos(final Phase phase) {
+    return this.phaseNanos[phase.ordinal()].sum();
+  }
+
+  public long getStatements() {
+    return this.statements.sum();
+  }
+
+  public long getRows() {
+    return this.rows;
+  }
+
+  public long getHandledAt() {
+    return this.handledAt;
+  }
+}
@@ -35,14 +35,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Component
 @Scope(ConfigurableBeanFactory.SCOPE_SINGLETON)
 public class ReportSpecificationProvider implements ApplicationContextAware {
 
   private final Logger logger;
-  private final HashMap<String, ReportSpecification> reportSpecificationCache = new HashMap<>();
-  private final HashMap<String, List<ReportDefinition>> reportCategoryCache = new HashMap<>();
+  private volatile Registry registry = new Registry(Collections.emptyMap());
 
   private ApplicationContext applicationContext;
 
@@ -59,49 +59,78 @@ public class ReportSpecificationProvider implements ApplicationContextAware {
   }
 
   public List<String> getAvailableCategories() {
-    return new ArrayList<>(this.reportCategoryCache.keySet());
+    return this.registry.categories;
   }
 
   public List<ReportDefinition> getAvailableReports(final String category) {
     this.logger.debug("Looking up report definitions for category {}.", category);
-    return this.reportCategoryCache.getOrDefault(category, Collections.emptyList());
+    return this.registry.reportDefinitionsByCategory.getOrDefault(category, Collections.emptyList());
   }
 
   public Optional<ReportSpecification> getReportSpecification(final String category, final String identifier) {
-    final String keyForReportSpecificationCache = this.buildKeyForSpecificationCache(category, identifier);
+    final String keyForReportSpecificationCache =
+        ReportSpecificationProvider.buildKeyForSpecificationCache(category, identifier);
     this.logger.debug("Looking up report specification for {}.", keyForReportSpecificationCache);
-    return Optional.ofNullable(this.reportSpecificationCache.get(keyForReportSpecificationCache));
+    return Optional.ofNullable(this.registry.reportSpecifications.get(keyForReportSpecificationCache));
   }
 
   private void initialize() {
     final Map<String, Object> beansWithAnnotation = this.applicationContext.getBeansWithAnnotation(Report.class);
 
+    final HashMap<String, ReportSpecification> reportSpecifications = new HashMap<>();
     beansWithAnnotation.values().forEach(bean -> {
       final ReportSpecification reportSpecification = ReportSpecification.class.cast(bean);
       final Report report = reportSpecification.getClass().getAnnotation(Report.class);
       final String keyForReportSpecificationCache =
-          this.buildKeyForSpecificationCache(report.category(), report.identifier());
+          ReportSpecificationProvider.buildKeyForSpecificationCache(report.category(), report.identifier());
       this.logger.debug("Adding report specification for {}", keyForReportSpecificationCache);
 
-      this.reportCategoryCache.computeIfAbsent(report.category(), (key) -> new ArrayList<>());
-      this.reportCategoryCache.get(report.category()).add(reportSpecification.getReportDefinition());
-      this.reportSpecificationCache.put(keyForReportSpecificationCache, reportSpecification);
+      reportSpecifications.put(keyForReportSpecificationCache, reportSpecification);
     });
+
+    this.registry = new Registry(reportSpecifications);
   }
 
-  private String buildKeyForSpecificationCache(final String category, final String identifier) {
+  private static String buildKeyForSpecificationCache(final String category, final String identifier) {
     return category + "~" + identifier;
   }
 
   public Optional<ReportDefinition> findReportDefinition(final String category, final String identifier) {
-    final List<ReportDefinition> reportDefinitions = this.reportCategoryCache.get(category);
-    if (reportDefinitions != null) {
-      return reportDefinitions
-          .stream()
-          .filter(reportDefinition -> reportDefinition.getIdentifier().equals(identifier))
-          .findAny();
-    } else {
-      return Optional.empty();
+    return Optional.ofNullable(
+        this.registry.reportDefinitions.get(ReportSpecificationProvider.buildKeyForSpecificationCache(category, identifier))
+    );
+  }
+
+  // built once and never modified, so lookups need no locking
+  private static class Registry {
+
+    private final Map<String, ReportSpecification> reportSpecifications;
+    private final Map<String, ReportDefinition> reportDefinitions;
+    private final Map<String, List<ReportDefinition>> reportDefinitionsByCategory;
+    private final List<String> categories;
+
+    private Registry(final Map<String, ReportSpecification> reportSpecifications) {
+      super();
+      final HashMap<String, ReportDefinition> reportDefinitions = new HashMap<>();
+      final HashMap<String, List<ReportDefinition>> reportDefinitionsByCategory = new HashMap<>();
+      reportSpecifications.values().forEach(reportSpecification -> {
+        final Report report = reportSpecification.getClass().getAnnotation(Report.class);
+        final ReportDefinition reportDefinition = reportSpecification.getReportDefinition();
+        reportDefinitions.put(
+            ReportSpecificationProvider.buildKeyForSpecificationCache(report.category(), report.identifier()),
+            reportDefinition
+        );
+        reportDefinitionsByCategory.computeIfAbsent(report.category(), (key) -> new ArrayList<>()).add(reportDefinition);
+      });
+
+      this.reportSpecifications = Collections.unmodifiableMap(new HashMap<>(reportSpecifications));
+      this.reportDefinitions = Collections.unmodifiableMap(reportDefinitions);
+      this.reportDefinitionsByCategory = Collections.unmodifiableMap(
+          reportDefinitionsByCategory.entrySet()
+              .stream()
+              .collect(Collectors.toMap(Map.Entry::getKey, entry -> Collections.unmodifiableList(entry.getValue())))
+      );
+      this.categories = Collections.unmodifiableList(new ArrayList<>(reportDefinitionsByCategory.keySet()));
     }
   }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.internal.specification;
+
+import java.math.BigDecimal;
+
+/**
+ * Sums account balances of one report section, adding each balance exactly once.
+ *
+ * <p>Balances stay {@link BigDecimal}s. They arrive from the driver as such, and reading their unscaled value into
+ * a {@code long} allocates a {@link java.math.BigInteger} per account, just as adding them does.</p>
+ */
+class BalanceAccumulator {
+
+  private BigDecimal total = new BigDecimal("0.000");
+
+  BalanceAccumulator() {
+    super();
+  }
+
+  void add(final Object balance) {
+    if (balance != null) {
+      this.total = this.total.add((BigDecimal) balance);
+    }
+  }
+
+  BigDecimal total() {
+    return this.total;
+  }
+}
@@ -30,11 +30,12 @@ import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.stream.Collectors;
 
-@Report(category = "Accounting", identifier = "Balancesheet")
+@Report(category = "Accounting", identifier = "Balancesheet", tables = {"thoth_accounts"})
 public class BalanceSheetReportSpecification implements ReportSpecification {
 
     private static final String DATE_RANGE = "Date range";
@@ -45,12 +46,16 @@ public class BalanceSheetReportSpecification implements ReportSpecification {
     private static final String BALANCE = "Balance";
     private static final String STATE = "State";
 
+    private static final String[] SECTIONS = {"ASSET", "LIABILITY", "EQUITY"};
+    private static final String[] SECTION_TOTALS = {"TOTAL ASSETS ", "TOTAL LIABILITIES ", "TOTAL EQUITY "};
+
     private final Logger logger;
 
     private final EntityManager entityManager;
 
     private final HashMap<String, String> accountingColumnMapping = new HashMap<>();
     private final HashMap<String, String> allColumnMapping = new HashMap<>();
+    private final ReportDefinition reportDefinition;
 
 
     public BalanceSheetReportSpecification(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
@@ -59,16 +64,21 @@ public class BalanceSheetReportSpecification implements ReportSpecification {
         this.logger = logger;
         this.entityManager = entityManager;
         this.initializeMapping();
+        this.reportDefinition = this.buildReportDefinition();
     }
 
     @Override
     public ReportDefinition getReportDefinition() {
+        return this.reportDefinition;
+    }
+
+    private ReportDefinition buildReportDefinition() {
         final ReportDefinition reportDefinition = new ReportDefinition();
         reportDefinition.setIdentifier("Balancesheet");
         reportDefinition.setName("Balance Sheet");
         reportDefinition.setDescription("Balance Sheet Report");
-        reportDefinition.setQueryParameters(this.buildQueryParameters());
-        reportDefinition.setDisplayableFields(this.buildDisplayableFields());
+        reportDefinition.setQueryParameters(Collections.unmodifiableList(this.buildQueryParameters()));
+        reportDefinition.setDisplayableFields(Collections.unmodifiableList(this.buildDisplayableFields()));
         return reportDefinition;
     }
 
@@ -82,14 +92,11 @@ public class BalanceSheetReportSpecification implements ReportSpecification {
         reportPage.setDescription(reportDefinition.getDescription());
         reportPage.setHeader(this.createHeader(reportRequest.getDisplayableFields()));
 
-        final Query accountQuery = this.entityManager.createNativeQuery(this.buildAssetQuery(reportRequest, pageIndex, size));
-        final List<?> accountResultList =  accountQuery.getResultList();
+        final Query accountQuery = this.entityManager.createNativeQuery(this.buildAccountQuery(reportRequest));
+        final List<?> accountResultList =  Statements.resultList(accountQuery);
         reportPage.setRows(this.buildRows(reportRequest, accountResultList));
-
-        reportPage.setHasMore(
-                !this.entityManager.createNativeQuery(this.buildAssetQuery(reportRequest, pageIndex + 1, size))
-                        .getResultList().isEmpty()
-        );
+        // all accounts are part of the first page, so there is never a next page to probe
+        reportPage.setHasMore(false);
 
         reportPage.setGeneratedBy(UserContextHolder.checkedGetUser());
         reportPage.setGeneratedOn(DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC())));
@@ -141,197 +148,76 @@ public class BalanceSheetReportSpecification implements ReportSpecification {
         return header;
     }
 
-    private List<Row> buildRows(ReportRequest reportRequest, List<?> accountResultList) {
+    List<Row> buildRows(ReportRequest reportRequest, List<?> accountResultList) {
         final ArrayList<Row> rows = new ArrayList<>();
-
-        final Row totalAssetRow = new Row();
-        totalAssetRow.setValues(new ArrayList<>());
-
-        final Value subAssetTotal = new Value();
-
-        final BigDecimal[] assetSubTotal = {new BigDecimal("0.000")};
-
-        accountResultList.forEach(result -> {
-
-            final Row row = new Row();
-            row.setValues(new ArrayList<>());
-
-            if (result instanceof Object[]) {
-                final Object[] resultValues;
-                resultValues = (Object[]) result;
-
-                for (int i = 0; i < resultValues.length; i++){
-                    final Value assetValue = new Value();
-                    if (resultValues[i] != null){
-                        assetValue.setValues(new String[]{resultValues[i].toString()});
-                    }else assetValue.setValues(new String[]{});
-
-                    row.getValues().add(assetValue);
-
-                    assetSubTotal[0] = assetSubTotal[0].add((BigDecimal)resultValues[3]);
-
+        final int balanceIndex = this.findBalanceIndex(reportRequest);
+
+        // accounts are ordered by section, the section type is the trailing column of each result
+        final BalanceAccumulator[] sectionTotals = new BalanceAccumulator[SECTIONS.length];
+        int resultIndex = 0;
+        for (int section = 0; section < SECTIONS.length; section++) {
+            sectionTotals[section] = new BalanceAccumulator();
+
+            while (resultIndex < accountResultList.size()) {
+                final Object[] resultValues = (Object[]) accountResultList.get(resultIndex);
+                final int typeIndex = resultValues.length - 1;
+                if (!SECTIONS[section].equals(resultValues[typeIndex])) {
+                    break;
                 }
-            } else {
-                final Value value = new Value();
-                value.setValues(new String[]{result.toString()});
-                row.getValues().add(value);
-            }
-
-            rows.add(row);
-        });
-
-        subAssetTotal.setValues(new String[]{new StringBuilder().append("TOTAL ASSETS ").append(assetSubTotal[0]).toString()});
-        totalAssetRow.getValues().add(subAssetTotal);
-
-        rows.add(totalAssetRow);
-
-
-        final String liabilityQueryString = this.buildLiabilityQuery(reportRequest);
-        final Query liabilityQuery = this.entityManager.createNativeQuery(liabilityQueryString);
-        final List<?> liabilityResultList = liabilityQuery.getResultList();
-
-        final Row totalLiabilityRow = new Row();
-        totalLiabilityRow.setValues(new ArrayList<>());
-        final Value subLiabilityTotal = new Value();
-
-        final BigDecimal[] liabilitySubTotal = {new BigDecimal("0.000")};
-
-        liabilityResultList.forEach(result -> {
-
-            final Row row = new Row();
-            row.setValues(new ArrayList<>());
-
-            if (result instanceof Object[]) {
-                final Object[] resultValues;
-                resultValues = (Object[]) result;
-
-                for (int i = 0; i < resultValues.length; i++){
-                    final Value liabilityValue = new Value();
-                    if (resultValues[i] != null) liabilityValue.setValues(new String[]{resultValues[i].toString()});
-                    else liabilityValue.setValues(new String[]{});
-
-                    row.getValues().add(liabilityValue);
-
-                    liabilitySubTotal[0] = liabilitySubTotal[0].add((BigDecimal)resultValues[3]);
 
+                final Row row = new Row();
+                row.setValues(new ArrayList<>(typeIndex));
+                for (int i = 0; i < typeIndex; i++) {
+                    final Value value = new Value();
+                    if (resultValues[i] != null) {
+                        value.setValues(new String[]{resultValues[i].toString()});
+                    } else {
+                        value.setValues(new String[]{});
+                    }
+                    row.getValues().add(value);
                 }
-            } else {
-                final Value value;
-                value = new Value();
-                value.setValues(new String[]{result.toString()});
-                row.getValues().add(value);
-            }
-
-            rows.add(row);
-        });
-
-        subLiabilityTotal.setValues(new String[]{new StringBuilder().append("TOTAL LIABILITIES ").append(liabilitySubTotal[0]).toString()});
-        totalLiabilityRow.getValues().add(subLiabilityTotal);
-        rows.add(totalLiabilityRow);
-
-
-
-        final String equityQueryString = this.buildEquityQuery(reportRequest);
-        final Query equityQuery = this.entityManager.createNativeQuery(equityQueryString);
-        final List<?> equityResultList = equityQuery.getResultList();
-
-        final Row totalEquityRow = new Row();
-        totalEquityRow.setValues(new ArrayList<>());
-        final Value subEquityTotal = new Value();
-
-        final Row totalLiabilityAndEquityRow = new Row();
-        totalLiabilityAndEquityRow.setValues(new ArrayList<>());
-        final Value totalLiabilityAndEquityValue = new Value();
-
-        final BigDecimal[] equitySubTotal = {new BigDecimal("0.000")};
-
-        equityResultList.forEach(result -> {
-
-            final Row row = new Row();
-            row.setValues(new ArrayList<>());
-
-            if (result instanceof Object[]) {
-                final Object[] resultValues;
-                resultValues = (Object[]) result;
-
-                for (int i = 0; i < resultValues.length; i++){
-                    final Value equityValue = new Value();
-                    if (resultValues[i] != null) equityValue.setValues(new String[]{resultValues[i].toString()});
-                    else equityValue.setValues(new String[]{});
-
-                    row.getValues().add(equityValue);
-
-                    equitySubTotal[0] = equitySubTotal[0].add((BigDecimal)resultValues[3]);
+                rows.add(row);
 
+                if (balanceIndex >= 0) {
+                    sectionTotals[section].add(resultValues[balanceIndex]);
                 }
-            } else {
-                final Value value;
-                value = new Value();
-                value.setValues(new String[]{result.toString()});
-                row.getValues().add(value);
+                resultIndex++;
             }
 
-            rows.add(row);
-        });
-
-        subEquityTotal.setValues(new String[]{new StringBuilder().append("TOTAL EQUITY ").append(equitySubTotal[0]).toString()});
-        totalEquityRow.getValues().add(subEquityTotal);
-        rows.add(totalEquityRow);
-
+            rows.add(this.buildTotalRow(SECTION_TOTALS[section], sectionTotals[section].total()));
+        }
 
-        final BigDecimal liabilityAndEquity = liabilitySubTotal[0].add(equitySubTotal[0]);
-        totalLiabilityAndEquityValue.setValues(new String[]{new StringBuilder().append("TOTAL LIABILITIES and EQUITY ").append(liabilityAndEquity).toString()});
-        totalLiabilityAndEquityRow.getValues().add(totalLiabilityAndEquityValue);
-        rows.add(totalLiabilityAndEquityRow);
+        rows.add(this.buildTotalRow("TOTAL LIABILITIES and EQUITY ",
+                sectionTotals[1].total().add(sectionTotals[2].total())));
 
         return rows;
     }
 
-    private String buildAssetQuery(final ReportRequest reportRequest, int pageIndex, int size) {
-        final StringBuilder query = new StringBuilder("SELECT ");
+    private Row buildTotalRow(final String label, final BigDecimal total) {
+        final Value totalValue = new Value();
+        totalValue.setValues(new String[]{label + total});
 
-        final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
-        final ArrayList<String> columns = new ArrayList<>();
-        displayableFields.forEach(displayableField -> {
-            final String column = this.accountingColumnMapping.get(displayableField.getName());
-            if (column != null) {
-                columns.add(column);
-            }
-        });
-
-        query.append(columns.stream().collect(Collectors.joining(", ")))
-                .append(" FROM ")
-                .append("thoth_accounts acc ")
-                .append("WHERE acc.a_type = 'ASSET' ");
-
-        query.append(" ORDER BY acc.identifier");
-
-        return query.toString();
+        final Row totalRow = new Row();
+        totalRow.setValues(new ArrayList<>());
+        totalRow.getValues().add(totalValue);
+        return totalRow;
     }
 
-    private String buildLiabilityQuery(final ReportRequest reportRequest) {
-        final StringBuilder query = new StringBuilder("SELECT ");
-
+    private int findBalanceIndex(final ReportRequest reportRequest) {
         final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
-        final ArrayList<String> columns = new ArrayList<>();
-        displayableFields.forEach(displayableField -> {
-            final String column = this.accountingColumnMapping.get(displayableField.getName());
-            if (column != null) {
-                columns.add(column);
+        int columnIndex = 0;
+        for (final DisplayableField displayableField : displayableFields) {
+            if (displayableField.getName().equals(BALANCE)) {
+                return columnIndex;
             }
-        });
-
-        query.append(columns.stream().collect(Collectors.joining(", ")))
-                .append(" FROM ")
-                .append("thoth_accounts acc ")
-                .append("WHERE acc.a_type = 'LIABILITY' ");
-
-        query.append(" ORDER BY acc.identifier");
-
-        return query.toString();
+            if (this.accountingColumnMapping.containsKey(displayableField.getName())) {
+                columnIndex++;
+            }
+        }
+        return -1;
     }
 
-    private String buildEquityQuery(final ReportRequest reportRequest) {
+    private String buildAccountQuery(final ReportRequest reportRequest) {
         final StringBuilder query = new StringBuilder("SELECT ");
 
         final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
@@ -342,13 +228,15 @@ public class BalanceSheetReportSpecification implements ReportSpecification {
                 columns.add(column);
             }
         });
+        columns.add("acc.a_type");
 
+        final String sections = Arrays.stream(SECTIONS).map(section -> "'" + section + "'").collect(Collectors.joining(", "));
         query.append(columns.stream().collect(Collectors.joining(", ")))
                 .append(" FROM ")
                 .append("thoth_accounts acc ")
-                .append("WHERE acc.a_type = 'EQUITY' ");
+                .append("WHERE acc.a_type IN (").append(sections).append(") ");
 
-        query.append(" ORDER BY acc.identifier");
+        query.append(" ORDER BY FIELD(acc.a_type, ").append(sections).append("), acc.identifier");
 
         return query.toString();
     }
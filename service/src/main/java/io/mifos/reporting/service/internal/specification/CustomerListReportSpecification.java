@@ -17,6 +17,8 @@ package io.mifos.reporting.service.internal.specification;
 
 import io.mifos.core.api.util.UserContextHolder;
 import io.mifos.core.lang.DateConverter;
+import io.mifos.reporting.api.v1.domain.Aggregate;
+import io.mifos.reporting.api.v1.domain.CountMode;
 import io.mifos.reporting.api.v1.domain.DisplayableField;
 import io.mifos.reporting.api.v1.domain.Header;
 import io.mifos.reporting.api.v1.domain.QueryParameter;
@@ -29,9 +31,16 @@ import io.mifos.reporting.api.v1.domain.Value;
 import io.mifos.reporting.service.ServiceConstants;
 import io.mifos.reporting.service.spi.CriteriaBuilder;
 import io.mifos.reporting.service.spi.DisplayableFieldBuilder;
+import io.mifos.reporting.service.spi.FooterAggregates;
+import io.mifos.reporting.service.spi.PageToken;
+import io.mifos.reporting.service.spi.Pagination;
 import io.mifos.reporting.service.spi.QueryParameterBuilder;
+import io.mifos.reporting.service.spi.QueryPlanCache;
 import io.mifos.reporting.service.spi.Report;
 import io.mifos.reporting.service.spi.ReportSpecification;
+import io.mifos.reporting.service.spi.RowCount;
+import io.mifos.reporting.service.spi.SectionExecutor;
+import io.mifos.reporting.service.spi.Statements;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -43,11 +52,15 @@ import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
-@Report(category = "Customer", identifier = "Listing")
+@Report(category = "Customer", identifier = "Listing", cacheTimeToLive = 120,
+    tables = {"maat_customers", "maat_addresses", "thoth_accounts"})
 public class CustomerListReportSpecification implements ReportSpecification {
 
   private static final String DATE_RANGE = "Date range";
@@ -58,37 +71,68 @@ public class CustomerListReportSpecification implements ReportSpecification {
   private static final String LAST_NAME = "Last name";
   private static final String ACCOUNT_NUMBER = "Account number";
   private static final String ADDRESS = "Address";
+  private static final String[] KEY_COLUMNS = {"cst.identifier"};
 
   private final Logger logger;
 
   private final EntityManager entityManager;
+  private final QueryPlanCache queryPlanCache;
+  private final SectionExecutor sectionExecutor;
   private final HashMap<String, String> customerColumnMapping = new HashMap<>();
   private final HashMap<String, String> addressColumnMapping = new HashMap<>();
   private final HashMap<String, String> accountColumnMapping = new HashMap<>();
   private final HashMap<String, String> allColumnMapping = new HashMap<>();
+  private final HashMap<String, String> accountAggregateMapping = new HashMap<>();
+  private final FooterAggregates footerAggregates;
+  private final RowCount rowCount;
+  private final ReportDefinition reportDefinition;
 
   @Autowired
   public CustomerListReportSpecification(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
-                                         final EntityManager entityManager) {
+                                         final EntityManager entityManager,
+                                         final QueryPlanCache queryPlanCache,
+                                         final SectionExecutor sectionExecutor) {
     super();
     this.logger = logger;
     this.entityManager = entityManager;
+    this.queryPlanCache = queryPlanCache;
+    this.sectionExecutor = sectionExecutor;
     this.initializeMapping();
+    this.footerAggregates = FooterAggregates.create(this.customerColumnMapping)
+        .source("maat_customers cst", this.customerColumnMapping)
+        .source("thoth_accounts acc JOIN maat_customers cst ON acc.holders = cst.identifier",
+            this.accountAggregateMapping);
+    this.rowCount = RowCount.create("maat_customers cst", this.customerColumnMapping);
+    this.reportDefinition = this.buildReportDefinition();
   }
 
   @Override
   public ReportDefinition getReportDefinition() {
+    return this.reportDefinition;
+  }
+
+  private ReportDefinition buildReportDefinition() {
     final ReportDefinition reportDefinition = new ReportDefinition();
     reportDefinition.setIdentifier("Listing");
     reportDefinition.setName("Customer Listing");
     reportDefinition.setDescription("List of all customers.");
-    reportDefinition.setQueryParameters(this.buildQueryParameters());
-    reportDefinition.setDisplayableFields(this.buildDisplayableFields());
+    reportDefinition.setQueryParameters(Collections.unmodifiableList(this.buildQueryParameters()));
+    reportDefinition.setDisplayableFields(Collections.unmodifiableList(this.buildDisplayableFields()));
     return reportDefinition;
   }
 
   @Override
   public ReportPage generateReport(final ReportRequest reportRequest, final int pageIndex, final int size) {
+    return this.buildReportPage(reportRequest, pageIndex, null, size);
+  }
+
+  @Override
+  public ReportPage generateReport(final ReportRequest reportRequest, final String pageToken, final int size) {
+    return this.buildReportPage(reportRequest, 0, PageToken.decode(pageToken, KEY_COLUMNS.length), size);
+  }
+
+  private ReportPage buildReportPage(final ReportRequest reportRequest, final int pageIndex,
+                                    final String[] seekKeys, final int size) {
     final ReportDefinition reportDefinition = this.getReportDefinition();
     this.logger.info("Generating report {0}.", reportDefinition.getIdentifier());
 
@@ -97,20 +141,31 @@ public class CustomerListReportSpecification implements ReportSpecification {
     reportPage.setDescription(reportDefinition.getDescription());
     reportPage.setHeader(this.createHeader(reportRequest.getDisplayableFields()));
 
-    final Query customerQuery = this.entityManager.createNativeQuery(this.buildCustomerQuery(reportRequest, pageIndex, size));
-    final List<?> customerResultList =  customerQuery.getResultList();
-    reportPage.setRows(this.buildRows(reportRequest, customerResultList));
-
-    reportPage.setHasMore(
-        !this.entityManager.createNativeQuery(this.buildCustomerQuery(reportRequest, pageIndex + 1, size))
-            .getResultList().isEmpty()
-    );
+    final String customerQueryString = this.queryPlanCache.plan("Customer~Listing", reportRequest, seekKeys != null,
+        () -> this.buildCustomerQuery(reportRequest, seekKeys != null));
+    final Query customerQuery = this.entityManager.createNativeQuery(customerQueryString);
+    CriteriaBuilder.bindCriteria(customerQuery, reportRequest.getQueryParameters());
+    Pagination.bindLimit(customerQuery, pageIndex, size);
+    Pagination.bindSeek(customerQuery, seekKeys);
+    final List<?> customerResultList =  Statements.resultList(customerQuery);
+    reportPage.setRows(this.buildRows(reportRequest, Pagination.currentPage(customerResultList, size, KEY_COLUMNS.length)));
+    reportPage.setHasMore(Pagination.hasMore(customerResultList, size));
+    reportPage.setNextPageToken(Pagination.buildNextPageToken(customerResultList, size, KEY_COLUMNS.length));
+    if (pageIndex == 0 && seekKeys == null) {
+      reportPage.setFooter(this.footerAggregates.fetchFooter(this.entityManager, this.queryPlanCache,
+          "Customer~Listing~footer", reportRequest));
+    }
 
     reportPage.setGeneratedBy(UserContextHolder.checkedGetUser());
     reportPage.setGeneratedOn(DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC())));
     return reportPage;
   }
 
+  @Override
+  public Long countRows(final ReportRequest reportRequest, final CountMode countMode) {
+    return this.rowCount.count(this.entityManager, this.queryPlanCache, "Customer~Listing", reportRequest, countMode);
+  }
+
   @Override
   public void validate(final ReportRequest reportRequest) throws IllegalArgumentException {
     final ArrayList<String> unknownFields =  new ArrayList<>();
@@ -131,6 +186,8 @@ public class CustomerListReportSpecification implements ReportSpecification {
           "Unspecified fields requested: " + unknownFields.stream().collect(Collectors.joining(", "))
       );
     }
+
+    FooterAggregates.validate(this.reportDefinition, reportRequest);
   }
 
   private void initializeMapping() {
@@ -142,6 +199,8 @@ public class CustomerListReportSpecification implements ReportSpecification {
     this.customerColumnMapping.put(LAST_NAME, "cst.surname");
 
     this.accountColumnMapping.put(ACCOUNT_NUMBER, "acc.identifier, acc.balance");
+    // the cell shows number and balance, the footer only counts the accounts
+    this.accountAggregateMapping.put(ACCOUNT_NUMBER, "acc.identifier");
 
     this.addressColumnMapping.put(ADDRESS, "CONCAT(adr.street, ', ', adr.postal_code, ', ', adr.city)");
 
@@ -161,19 +220,18 @@ public class CustomerListReportSpecification implements ReportSpecification {
     return header;
   }
 
-  private List<Row> buildRows(final ReportRequest reportRequest, final List<?> customerResultList) {
+  List<Row> buildRows(final ReportRequest reportRequest, final List<?> customerResultList) {
     final ArrayList<Row> rows = new ArrayList<>();
+    final ArrayList<String> customerIdentifiers = new ArrayList<>(customerResultList.size());
 
     customerResultList.forEach(result -> {
       final Row row = new Row();
       row.setValues(new ArrayList<>());
 
-      final String customerIdentifier;
-
       if (result instanceof Object[]) {
         final Object[] resultValues = (Object[]) result;
 
-        customerIdentifier = resultValues[0].toString();
+        customerIdentifiers.add(resultValues[0].toString());
 
         for (final Object resultValue : resultValues) {
           final Value value = new Value();
@@ -186,63 +244,117 @@ public class CustomerListReportSpecification implements ReportSpecification {
           row.getValues().add(value);
         }
       } else {
-        customerIdentifier = result.toString();
+        customerIdentifiers.add(result.toString());
 
         final Value value = new Value();
         value.setValues(new String[]{result.toString()});
         row.getValues().add(value);
       }
 
-      final DecimalFormat decimalFormat = new DecimalFormat("0.00");
-      final Query accountQuery = this.entityManager.createNativeQuery(this.buildAccountQuery(reportRequest, customerIdentifier));
-      final List<?> accountResultList = accountQuery.getResultList();
-      final ArrayList<String> values = new ArrayList<>();
-      accountResultList.forEach(accountResult -> {
-        if (accountResult instanceof Object[]) {
-          final Object[] accountResultValues = (Object[]) accountResult;
-          final String accountValue = accountResultValues[0].toString() + " (" +
-              decimalFormat.format(Double.valueOf(accountResultValues[1].toString())) + ")";
-          values.add(accountValue);
-        }
-      });
+      rows.add(row);
+    });
+
+    if (rows.isEmpty()) {
+      return rows;
+    }
+
+    final CompletableFuture<Map<String, String>> addresses =
+        this.sectionExecutor.fork(() -> this.fetchAddresses(reportRequest, customerIdentifiers));
+    final Map<String, List<String>> accountsByCustomer = this.fetchAccounts(reportRequest, customerIdentifiers);
+    final Map<String, String> addressesByCustomer = SectionExecutor.join(addresses);
+
+    for (int i = 0; i < rows.size(); i++) {
+      final Row row = rows.get(i);
+      final String customerIdentifier = customerIdentifiers.get(i);
+
+      final List<String> accounts = accountsByCustomer.getOrDefault(customerIdentifier, Collections.emptyList());
       final Value accountValue = new Value();
-      accountValue.setValues(values.toArray(new String[values.size()]));
+      accountValue.setValues(accounts.toArray(new String[accounts.size()]));
       row.getValues().add(accountValue);
 
-      final String addressQueryString = this.buildAddressQuery(reportRequest, customerIdentifier);
-      if (addressQueryString != null) {
-        final Query addressQuery = this.entityManager.createNativeQuery(addressQueryString);
-        final List<?> resultList = addressQuery.getResultList();
+      if (addressesByCustomer != null) {
+        final String address = addressesByCustomer.get(customerIdentifier);
         final Value addressValue = new Value();
-        addressValue.setValues(new String[]{resultList.get(0).toString()});
+        addressValue.setValues(address != null ? new String[]{address} : new String[]{});
         row.getValues().add(addressValue);
       }
+    }
 
-      rows.add(row);
+    return rows;
+  }
+
+  private Map<String, List<String>> fetchAccounts(final ReportRequest reportRequest,
+                                                  final List<String> customerIdentifiers) {
+    final HashMap<String, List<String>> accountsByCustomer = new HashMap<>();
+    final String accountQueryString = this.queryPlanCache.plan("Customer~Listing~accounts", reportRequest, false,
+        () -> this.buildAccountQuery(reportRequest));
+    if (accountQueryString == null) {
+      return accountsByCustomer;
+    }
+
+    final Query accountQuery = this.entityManager.createNativeQuery(accountQueryString);
+    accountQuery.setParameter("customerIdentifiers", customerIdentifiers);
+    final List<?> accountResultList = Statements.resultList(accountQuery);
+
+    final DecimalFormat decimalFormat = new DecimalFormat("0.00");
+    accountResultList.forEach(accountResult -> {
+      if (accountResult instanceof Object[]) {
+        final Object[] accountResultValues = (Object[]) accountResult;
+        final String accountValue = accountResultValues[1].toString() + " (" +
+            decimalFormat.format(Double.valueOf(accountResultValues[2].toString())) + ")";
+        accountsByCustomer
+            .computeIfAbsent(accountResultValues[0].toString(), key -> new ArrayList<>())
+            .add(accountValue);
+      }
     });
 
-    return rows;
+    return accountsByCustomer;
+  }
+
+  private Map<String, String> fetchAddresses(final ReportRequest reportRequest,
+                                             final List<String> customerIdentifiers) {
+    final String addressQueryString = this.queryPlanCache.plan("Customer~Listing~addresses", reportRequest, false,
+        () -> this.buildAddressQuery(reportRequest));
+    if (addressQueryString == null) {
+      return null;
+    }
+
+    final Query addressQuery = this.entityManager.createNativeQuery(addressQueryString);
+    addressQuery.setParameter("customerIdentifiers", customerIdentifiers);
+    final List<?> addressResultList = Statements.resultList(addressQuery);
+
+    final HashMap<String, String> addressesByCustomer = new HashMap<>();
+    addressResultList.forEach(addressResult -> {
+      final Object[] addressResultValues = (Object[]) addressResult;
+      if (addressResultValues[1] != null) {
+        addressesByCustomer.putIfAbsent(addressResultValues[0].toString(), addressResultValues[1].toString());
+      }
+    });
+
+    return addressesByCustomer;
   }
 
   private List<QueryParameter> buildQueryParameters() {
     return Arrays.asList(
         QueryParameterBuilder.create(DATE_RANGE, Type.DATE).operator(QueryParameter.Operator.BETWEEN).build(),
-        QueryParameterBuilder.create(STATE, Type.TEXT).operator(QueryParameter.Operator.IN).build()
+        QueryParameterBuilder.create(STATE, Type.TEXT).operator(QueryParameter.Operator.IN).build(),
+        QueryParameterBuilder.create(CUSTOMER, Type.TEXT).autoComplete("/autocomplete/customers", "term").build()
     );
   }
 
   private List<DisplayableField> buildDisplayableFields() {
     return Arrays.asList(
-        DisplayableFieldBuilder.create(CUSTOMER, Type.TEXT).mandatory().build(),
+        DisplayableFieldBuilder.create(CUSTOMER, Type.TEXT).mandatory().aggregates(Aggregate.COUNT).build(),
         DisplayableFieldBuilder.create(FIRST_NAME, Type.TEXT).build(),
         DisplayableFieldBuilder.create(MIDDLE_NAME, Type.TEXT).build(),
         DisplayableFieldBuilder.create(LAST_NAME, Type.TEXT).build(),
-        DisplayableFieldBuilder.create(ACCOUNT_NUMBER, Type.TEXT).mandatory().build(),
+        DisplayableFieldBuilder.create(ACCOUNT_NUMBER, Type.TEXT).mandatory()
+            .aggregates(Aggregate.COUNT, Aggregate.COUNT_DISTINCT).build(),
         DisplayableFieldBuilder.create(ADDRESS, Type.TEXT).build()
     );
   }
 
-  private String buildCustomerQuery(final ReportRequest reportRequest, int pageIndex, int size) {
+  private String buildCustomerQuery(final ReportRequest reportRequest, final boolean seek) {
     final StringBuilder query = new StringBuilder("SELECT ");
 
     final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
@@ -254,40 +366,26 @@ public class CustomerListReportSpecification implements ReportSpecification {
       }
     });
 
+    columns.addAll(Arrays.asList(KEY_COLUMNS));
+
     query.append(columns.stream().collect(Collectors.joining(", ")))
         .append(" FROM ")
         .append("maat_customers cst ");
 
-    final List<QueryParameter> queryParameters = reportRequest.getQueryParameters();
-    if (!queryParameters.isEmpty()) {
-      final ArrayList<String> criteria = new ArrayList<>();
-      queryParameters.forEach(queryParameter -> {
-        if(queryParameter.getValue() != null && !queryParameter.getValue().isEmpty()) {
-          criteria.add(
-            CriteriaBuilder.buildCriteria(this.customerColumnMapping.get(queryParameter.getName()), queryParameter)
-          );
-        }
-      });
-
-      if (!criteria.isEmpty()) {
-        query.append(" WHERE ");
-        query.append(criteria.stream().collect(Collectors.joining(" AND ")));
-      }
-
+    final ArrayList<String> criteria =
+        CriteriaBuilder.buildCriteria(this.customerColumnMapping, reportRequest.getQueryParameters());
+    if (seek) {
+      criteria.add(Pagination.buildSeek(KEY_COLUMNS));
     }
+    query.append(CriteriaBuilder.buildWhere(criteria));
     query.append(" ORDER BY cst.identifier");
 
-    query.append(" LIMIT ");
-    query.append(size);
-    if (pageIndex > 0) {
-      query.append(" OFFSET ");
-      query.append(size * pageIndex);
-    }
+    query.append(Pagination.buildLimit());
 
     return query.toString();
   }
 
-  private String buildAccountQuery(final ReportRequest reportRequest, final String customerIdentifier) {
+  private String buildAccountQuery(final ReportRequest reportRequest) {
     final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
     final ArrayList<String> columns = new ArrayList<>();
     displayableFields.forEach(displayableField -> {
@@ -297,14 +395,17 @@ public class CustomerListReportSpecification implements ReportSpecification {
       }
     });
 
-    return "SELECT " + columns.stream().collect(Collectors.joining(", ")) + " " +
-        "FROM thoth_accounts acc " +
-            "LEFT JOIN maat_customers cst on acc.holders = cst.identifier " +
-        "WHERE cst.identifier ='" + customerIdentifier + "' " +
-        "ORDER BY acc.identifier";
+    if (!columns.isEmpty()) {
+      return "SELECT cst.identifier, " + columns.stream().collect(Collectors.joining(", ")) + " " +
+          "FROM thoth_accounts acc " +
+              "LEFT JOIN maat_customers cst on acc.holders = cst.identifier " +
+          "WHERE cst.identifier IN (:customerIdentifiers) " +
+          "ORDER BY cst.identifier, acc.identifier";
+    }
+    return null;
   }
 
-  private String buildAddressQuery(final ReportRequest reportRequest, final String customerIdentifier) {
+  private String buildAddressQuery(final ReportRequest reportRequest) {
 
     final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
     final ArrayList<String> columns = new ArrayList<>();
@@ -316,10 +417,10 @@ public class CustomerListReportSpecification implements ReportSpecification {
     });
 
     if (!columns.isEmpty()) {
-      return "SELECT " + columns.stream().collect(Collectors.joining(", ")) + " " +
+      return "SELECT cst.identifier, " + columns.stream().collect(Collectors.joining(", ")) + " " +
           "FROM maat_addresses adr " +
               "LEFT JOIN maat_customers cst on adr.id = cst.address_id " +
-          "WHERE cst.identifier ='" + customerIdentifier + "' ";
+          "WHERE cst.identifier IN (:customerIdentifiers) ";
     }
     return null;
   }
@@ -30,11 +30,15 @@ import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
-@Report(category = "Deposit", identifier = "Listing")
+@Report(category = "Deposit", identifier = "Listing", cacheTimeToLive = 120,
+        tables = {"maat_customers", "shed_product_instances", "shed_product_definitions"})
 public class DepositListReportSpecification implements ReportSpecification {
 
     private static final String CUSTOMER = "Customer Account";
@@ -48,8 +52,10 @@ public class DepositListReportSpecification implements ReportSpecification {
     private static final String STATE = "Status";
     private static final String OFFICE = "Office";
     private static final String DATE_RANGE = "Date Created";
+    private static final String[] KEY_COLUMNS = {"cst.identifier"};
 
     private final EntityManager entityManager;
+    private final QueryPlanCache queryPlanCache;
 
     private final Logger logger;
 
@@ -57,30 +63,54 @@ public class DepositListReportSpecification implements ReportSpecification {
     private final HashMap<String, String> depositAccountColumnMapping = new HashMap<>();
     private final HashMap<String, String> depositProductColumnMapping = new HashMap<>();
     private final HashMap<String, String> allColumnMapping = new HashMap<>();
+    private final FooterAggregates footerAggregates;
+    private final RowCount rowCount;
+    private final ReportDefinition reportDefinition;
 
 
     @Autowired
-    public DepositListReportSpecification(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger, final EntityManager entityManager) {
+    public DepositListReportSpecification(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger, final EntityManager entityManager,
+                                          final QueryPlanCache queryPlanCache) {
         this.entityManager = entityManager;
+        this.queryPlanCache = queryPlanCache;
         this.logger = logger;
         this.initializeMapping();
+        this.footerAggregates = FooterAggregates.create(this.customerColumnMapping)
+                .source("maat_customers cst", this.customerColumnMapping)
+                .source("shed_product_instances pi JOIN maat_customers cst ON pi.customer_identifier = cst.identifier", this.depositAccountColumnMapping);
+        this.rowCount = RowCount.create("maat_customers cst", this.customerColumnMapping);
+        this.reportDefinition = this.buildReportDefinition();
     }
 
 
     @Override
     public ReportDefinition getReportDefinition() {
+        return this.reportDefinition;
+    }
+
+    private ReportDefinition buildReportDefinition() {
 
         final ReportDefinition reportDefinition = new ReportDefinition();
         reportDefinition.setIdentifier("Listing");
         reportDefinition.setName("Deposit Account Listing");
         reportDefinition.setDescription("List of all deposit accounts.");
-        reportDefinition.setQueryParameters(this.buildQueryParameters());
-        reportDefinition.setDisplayableFields(this.buildDisplayableFields());
+        reportDefinition.setQueryParameters(Collections.unmodifiableList(this.buildQueryParameters()));
+        reportDefinition.setDisplayableFields(Collections.unmodifiableList(this.buildDisplayableFields()));
         return reportDefinition;
     }
 
     @Override
     public ReportPage generateReport(ReportRequest reportRequest, int pageIndex, int size) {
+        return this.buildReportPage(reportRequest, pageIndex, null, size);
+    }
+
+    @Override
+    public ReportPage generateReport(final ReportRequest reportRequest, final String pageToken, final int size) {
+        return this.buildReportPage(reportRequest, 0, PageToken.decode(pageToken, KEY_COLUMNS.length), size);
+    }
+
+    private ReportPage buildReportPage(final ReportRequest reportRequest, final int pageIndex,
+                                      final String[] seekKeys, final int size) {
         final ReportDefinition reportDefinition = this.getReportDefinition();
         this.logger.info("Generating report {0} ", reportDefinition.getIdentifier());
 
@@ -89,21 +119,32 @@ public class DepositListReportSpecification implements ReportSpecification {
         reportPage.setDescription(reportDefinition.getDescription());
         reportPage.setHeader(this.createHeader(reportRequest.getDisplayableFields()));
 
-        final Query customerQuery = this.entityManager.createNativeQuery(this.buildCustomerQuery(reportRequest, pageIndex, size));
-
-        final List<?> customerResultList = customerQuery.getResultList();
-        reportPage.setRows(this.buildRows(reportRequest, customerResultList));
-
-        reportPage.setHasMore(
-                !this.entityManager.createNativeQuery(this.buildCustomerQuery(reportRequest, pageIndex + 1, size))
-                        .getResultList().isEmpty()
-        );
+        final String customerQueryString = this.queryPlanCache.plan("Deposit~Listing", reportRequest, seekKeys != null,
+                () -> this.buildCustomerQuery(reportRequest, seekKeys != null));
+        final Query customerQuery = this.entityManager.createNativeQuery(customerQueryString);
+        CriteriaBuilder.bindCriteria(customerQuery, reportRequest.getQueryParameters());
+        Pagination.bindLimit(customerQuery, pageIndex, size);
+        Pagination.bindSeek(customerQuery, seekKeys);
+
+        final List<?> customerResultList = Statements.resultList(customerQuery);
+        reportPage.setRows(this.buildRows(reportRequest, Pagination.currentPage(customerResultList, size, KEY_COLUMNS.length)));
+        reportPage.setHasMore(Pagination.hasMore(customerResultList, size));
+        reportPage.setNextPageToken(Pagination.buildNextPageToken(customerResultList, size, KEY_COLUMNS.length));
+        if (pageIndex == 0 && seekKeys == null) {
+            reportPage.setFooter(this.footerAggregates.fetchFooter(this.entityManager, this.queryPlanCache,
+                    "Deposit~Listing~footer", reportRequest));
+        }
 
         reportPage.setGeneratedBy(UserContextHolder.checkedGetUser());
         reportPage.setGeneratedOn(DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC())));
         return reportPage;
     }
 
+    @Override
+    public Long countRows(final ReportRequest reportRequest, final CountMode countMode) {
+        return this.rowCount.count(this.entityManager, this.queryPlanCache, "Deposit~Listing", reportRequest, countMode);
+    }
+
     @Override
     public void validate(ReportRequest reportRequest) throws IllegalArgumentException {
         final ArrayList<String> unknownFields = new ArrayList<>();
@@ -125,6 +166,8 @@ public class DepositListReportSpecification implements ReportSpecification {
             );
         }
 
+        FooterAggregates.validate(this.reportDefinition, reportRequest);
+
     }
 
     private void initializeMapping() {
@@ -157,19 +200,18 @@ public class DepositListReportSpecification implements ReportSpecification {
         return header;
     }
 
-    private List<Row> buildRows(final ReportRequest reportRequest, final List<?> customerResultList) {
+    List<Row> buildRows(final ReportRequest reportRequest, final List<?> customerResultList) {
         final ArrayList<Row> rows = new ArrayList<>();
+        final ArrayList<String> customerIdentifiers = new ArrayList<>(customerResultList.size());
 
         customerResultList.forEach(result -> {
             final Row row = new Row();
             row.setValues(new ArrayList<>());
 
-            final String customerIdentifier;
-
             if (result instanceof Object[]) {
                 final Object[] resultValues = (Object[]) result;
 
-                customerIdentifier = resultValues[0].toString();
+                customerIdentifiers.add(resultValues[0].toString());
 
                 for (final Object resultValue : resultValues) {
                     final Value value = new Value();
@@ -182,103 +224,83 @@ public class DepositListReportSpecification implements ReportSpecification {
                     row.getValues().add(value);
                 }
             } else {
-                customerIdentifier = result.toString();
+                customerIdentifiers.add(result.toString());
 
                 final Value value = new Value();
                 value.setValues(new String[]{result.toString()});
                 row.getValues().add(value);
             }
 
-            final Query accountQuery = this.entityManager.createNativeQuery(this.buildDepositAccountQuery(reportRequest, customerIdentifier));
-            final List<?> accountResultList = accountQuery.getResultList();
-
-            final ArrayList<String> products = new ArrayList<>();
-            final ArrayList<String> depositAccountNumber = new ArrayList<>();
-            final ArrayList<String> depositType = new ArrayList<>();
-            final ArrayList<String> status = new ArrayList<>();
-            final ArrayList<String> createdBy = new ArrayList<>();
-            final ArrayList<String> dateCreated = new ArrayList<>();
-
-            accountResultList.forEach(accountResult -> {
-
-                final String productIdentifier;
-                if (accountResult instanceof Object[]) {
-                    final Object[] accountResultValues = (Object[]) accountResult;
-
-                    productIdentifier = accountResultValues[0].toString();
-
-                    final Query depositProductQuery = this.entityManager.createNativeQuery(this.buildDepositProductQuery(reportRequest, productIdentifier));
-                    final List<?> depositProductResultList = depositProductQuery.getResultList();
-
-                    depositProductResultList.forEach(product -> {
-                        final Object[] productResultValues = (Object[]) product;
-
-                        for (int i = 0; i < productResultValues.length; i++) {
-
-                            if (i == 0 && productResultValues[0] != null) {
-                                products.add(productResultValues[0].toString());
-                            }
-
-                            if (i == 1 && productResultValues[1] != null) {
-                                depositType.add(productResultValues[1].toString());
-                            }
-
-                        }
-                    });
-
-
-                    for (int i = 1; i < accountResultValues.length ; i++) {
-                        if (i == 1 && accountResultValues[1] != null){
-                            depositAccountNumber.add(accountResultValues[1].toString());
-                        }
-
-                        if (i == 2  && accountResultValues[2] != null){
-                            status.add(accountResultValues[2].toString());
-                        }
-
-                        if (i == 3 && accountResultValues[3] != null){
-                            createdBy.add(accountResultValues[3].toString());
-                        }
-
-                        if (i == 4 && accountResultValues[4] != null){
-                            dateCreated.add(accountResultValues[4].toString());
-                        }
-
-                    }
-                }
-            });
-
-            final Value productValue = new Value();
-            productValue.setValues(products.toArray(new String[products.size()]));
-            row.getValues().add(productValue);
+            rows.add(row);
+        });
 
-            final Value depositTypeValue = new Value();
-            depositTypeValue.setValues(depositType.toArray(new String[depositAccountNumber.size()]));
-            row.getValues().add(depositTypeValue);
+        if (rows.isEmpty()) {
+            return rows;
+        }
 
-            final Value depositAccountNumberValue = new Value();
-            depositAccountNumberValue.setValues(depositAccountNumber.toArray(new String[depositType.size()]));
-            row.getValues().add(depositAccountNumberValue);
+        final Map<String, DepositAccounts> depositAccountsByCustomer =
+                this.fetchDepositAccounts(reportRequest, customerIdentifiers);
 
-            final Value statusValue = new Value();
-            statusValue.setValues(status.toArray(new String[status.size()]));
-            row.getValues().add(statusValue);
+        for (int i = 0; i < rows.size(); i++) {
+            final DepositAccounts depositAccounts =
+                    depositAccountsByCustomer.getOrDefault(customerIdentifiers.get(i), DepositAccounts.EMPTY);
+            final List<Value> values = rows.get(i).getValues();
 
-            final Value createdByValue = new Value();
-            createdByValue.setValues(createdBy.toArray(new String[createdBy.size()]));
-            row.getValues().add(createdByValue);
+            values.add(DepositAccounts.toValue(depositAccounts.products));
+            values.add(DepositAccounts.toValue(depositAccounts.depositType));
+            values.add(DepositAccounts.toValue(depositAccounts.depositAccountNumber));
+            values.add(DepositAccounts.toValue(depositAccounts.status));
+            values.add(DepositAccounts.toValue(depositAccounts.createdBy));
+            values.add(DepositAccounts.toValue(depositAccounts.dateCreated));
+        }
 
-            final Value dateCreatedValue = new Value();
-            dateCreatedValue.setValues(dateCreated.toArray(new String[dateCreated.size()]));
-            row.getValues().add(dateCreatedValue);
+        return rows;
+    }
 
-            rows.add(row);
+    private Map<String, DepositAccounts> fetchDepositAccounts(final ReportRequest reportRequest,
+                                                              final List<String> customerIdentifiers) {
+        final Set<String> requestedFields = reportRequest.getDisplayableFields()
+                .stream()
+                .map(DisplayableField::getName)
+                .collect(Collectors.toSet());
+        final boolean withProduct = requestedFields.contains(ACCOUNT_TYPE);
+        final boolean withAccountNumber = requestedFields.contains(ACCOUNT_NUMBER);
+        final boolean withStatus = requestedFields.contains(STATE);
+        final boolean withCreatedBy = requestedFields.contains(EMPLOYEE);
+        final boolean withDateCreated = requestedFields.contains(DATE_RANGE);
+
+        final Query depositAccountQuery = this.entityManager.createNativeQuery(this.buildDepositAccountQuery());
+        depositAccountQuery.setParameter("customerIdentifiers", customerIdentifiers);
+        final List<?> depositAccountResultList = Statements.resultList(depositAccountQuery);
+
+        final HashMap<String, DepositAccounts> depositAccountsByCustomer = new HashMap<>();
+        depositAccountResultList.forEach(depositAccountResult -> {
+            final Object[] resultValues = (Object[]) depositAccountResult;
+            final DepositAccounts depositAccounts =
+                    depositAccountsByCustomer.computeIfAbsent(resultValues[0].toString(), key -> new DepositAccounts());
+
+            if (withProduct) {
+                DepositAccounts.addIfPresent(depositAccounts.products, resultValues[1]);
+                DepositAccounts.addIfPresent(depositAccounts.depositType, resultValues[2]);
+            }
+            if (withAccountNumber) {
+                DepositAccounts.addIfPresent(depositAccounts.depositAccountNumber, resultValues[3]);
+            }
+            if (withStatus) {
+                DepositAccounts.addIfPresent(depositAccounts.status, resultValues[4]);
+            }
+            if (withCreatedBy) {
+                DepositAccounts.addIfPresent(depositAccounts.createdBy, resultValues[5]);
+            }
+            if (withDateCreated) {
+                DepositAccounts.addIfPresent(depositAccounts.dateCreated, resultValues[6]);
+            }
         });
 
-        return rows;
+        return depositAccountsByCustomer;
     }
 
-    private String buildCustomerQuery(final ReportRequest reportRequest, int pageIndex, int size) {
+    private String buildCustomerQuery(final ReportRequest reportRequest, final boolean seek) {
         final StringBuilder query = new StringBuilder("SELECT ");
 
         final List<DisplayableField> displayableFields;
@@ -291,76 +313,39 @@ public class DepositListReportSpecification implements ReportSpecification {
             }
         });
 
+        columns.addAll(Arrays.asList(KEY_COLUMNS));
+
         query.append(columns.stream().collect(Collectors.joining(", ")))
                 .append(" FROM ")
                 .append("maat_customers cst ");
 
-        final List<QueryParameter> queryParameters = reportRequest.getQueryParameters();
-        if (!queryParameters.isEmpty()) {
-            final ArrayList<String> criteria = new ArrayList<>();
-            queryParameters.forEach(queryParameter -> {
-                if(queryParameter.getValue() != null && !queryParameter.getValue().isEmpty()) {
-                    criteria.add(
-                            CriteriaBuilder.buildCriteria(this.customerColumnMapping.get(queryParameter.getName()), queryParameter)
-                    );
-                }
-            });
-
-            if (!criteria.isEmpty()) {
-                query.append(" WHERE ");
-                query.append(criteria.stream().collect(Collectors.joining(" AND ")));
-            }
-
+        final ArrayList<String> criteria =
+                CriteriaBuilder.buildCriteria(this.customerColumnMapping, reportRequest.getQueryParameters());
+        if (seek) {
+            criteria.add(Pagination.buildSeek(KEY_COLUMNS));
         }
+        query.append(CriteriaBuilder.buildWhere(criteria));
         query.append(" ORDER BY cst.identifier");
 
-        query.append(" LIMIT ");
-        query.append(size);
-        if (pageIndex > 0) {
-            query.append(" OFFSET ");
-            query.append(size * pageIndex);
-        }
+        query.append(Pagination.buildLimit());
 
         return query.toString();
     }
 
-    private String buildDepositAccountQuery(final ReportRequest reportRequest, final String customerIdentifier) {
-        final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
-        final ArrayList<String> columns = new ArrayList<>();
-        displayableFields.forEach(displayableField -> {
-            final String column = this.depositAccountColumnMapping.get(displayableField.getName());
-            if (column != null) {
-                columns.add(column);
-            }
-        });
-
-        return "SELECT " + columns.stream().collect(Collectors.joining(", ")) + " " +
+    private String buildDepositAccountQuery() {
+        return "SELECT cst.identifier, pd.a_name, pd.a_type, " +
+                "pi.account_identifier, pi.a_state, pi.created_by, pi.created_on " +
                 "FROM shed_product_instances pi " +
                 "LEFT JOIN maat_customers cst on pi.customer_identifier = cst.identifier " +
-                "WHERE cst.identifier ='" + customerIdentifier + "' " +
-                "ORDER BY pi.account_identifier";
-    }
-
-    private String buildDepositProductQuery(final ReportRequest reportRequest, final String productIdentifier){
-        final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
-        final ArrayList<String> columns = new ArrayList<>();
-        displayableFields.forEach(displayableField -> {
-            final String column = this.depositProductColumnMapping.get(displayableField.getName());
-            if (column != null) {
-                columns.add(column);
-            }
-        });
-
-        return "SELECT DISTINCT " + columns.stream().collect(Collectors.joining(", ")) + " " +
-                "FROM shed_product_definitions pd " +
-                "LEFT JOIN shed_product_instances pi on pd.id = pi.product_definition_id " +
-                "WHERE pi.product_definition_id ='" + productIdentifier + "' ";
+                "LEFT JOIN shed_product_definitions pd on pd.id = pi.product_definition_id " +
+                "WHERE cst.identifier IN (:customerIdentifiers) " +
+                "ORDER BY cst.identifier, pi.account_identifier";
     }
 
     private List<DisplayableField> buildDisplayableFields() {
 
         return Arrays.asList(
-                DisplayableFieldBuilder.create(CUSTOMER, Type.TEXT).mandatory().build(),
+                DisplayableFieldBuilder.create(CUSTOMER, Type.TEXT).mandatory().aggregates(Aggregate.COUNT).build(),
                 DisplayableFieldBuilder.create(FIRST_NAME, Type.TEXT).mandatory().build(),
                 DisplayableFieldBuilder.create(MIDDLE_NAME, Type.TEXT).build(),
                 DisplayableFieldBuilder.create(LAST_NAME, Type.TEXT).mandatory().build(),
@@ -368,7 +353,7 @@ public class DepositListReportSpecification implements ReportSpecification {
 
                 DisplayableFieldBuilder.create(PRODUCT, Type.TEXT).mandatory().build(),
                 DisplayableFieldBuilder.create(ACCOUNT_TYPE, Type.TEXT).mandatory().build(),
-                DisplayableFieldBuilder.create(ACCOUNT_NUMBER, Type.TEXT).mandatory().build(),
+                DisplayableFieldBuilder.create(ACCOUNT_NUMBER, Type.TEXT).mandatory().aggregates(Aggregate.COUNT).build(),
                 DisplayableFieldBuilder.create(STATE,Type.TEXT).mandatory().build(),
                 DisplayableFieldBuilder.create(EMPLOYEE, Type.TEXT).mandatory().build(),
                 DisplayableFieldBuilder.create(DATE_RANGE, Type.DATE).mandatory().build()
@@ -379,9 +364,32 @@ public class DepositListReportSpecification implements ReportSpecification {
     private List<QueryParameter> buildQueryParameters() {
         return Arrays.asList(
                 QueryParameterBuilder.create(DATE_RANGE, Type.DATE).operator(QueryParameter.Operator.BETWEEN).build(),
-                QueryParameterBuilder.create(STATE, Type.TEXT).operator(QueryParameter.Operator.IN).build()
+                QueryParameterBuilder.create(STATE, Type.TEXT).operator(QueryParameter.Operator.IN).build(),
+                QueryParameterBuilder.create(CUSTOMER, Type.TEXT).autoComplete("/autocomplete/customers", "term").build()
         );
     }
 
+    private static class DepositAccounts {
+
+        private static final DepositAccounts EMPTY = new DepositAccounts();
 
+        private final ArrayList<String> products = new ArrayList<>();
+        private final ArrayList<String> depositType = new ArrayList<>();
+        private final ArrayList<String> depositAccountNumber = new ArrayList<>();
+        private final ArrayList<String> status = new ArrayList<>();
+        private final ArrayList<String> createdBy = new ArrayList<>();
+        private final ArrayList<String> dateCreated = new ArrayList<>();
+
+        private static void addIfPresent(final List<String> values, final Object value) {
+            if (value != null) {
+                values.add(value.toString());
+            }
+        }
+
+        private static Value toValue(final List<String> values) {
+            final Value value = new Value();
+            value.setValues(values.toArray(new String[values.size()]));
+            return value;
+        }
+    }
 }
@@ -30,11 +30,13 @@ import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.stream.Collectors;
 
-@Report(category = "Organization", identifier = "Employee")
+@Report(category = "Organization", identifier = "Employee", cacheTimeToLive = 300,
+        tables = {"horus_employees", "horus_offices"})
 public class EmployeeListReportSpecification implements ReportSpecification {
 
     private static final String USERNAME = "Username";
@@ -45,38 +47,63 @@ public class EmployeeListReportSpecification implements ReportSpecification {
 
     private static final String OFFICE = "Office Id";
     private static final String OFFICE_NAME = "Office Name";
+    private static final String[] KEY_COLUMNS = {"he.identifier"};
 
     private final Logger logger;
 
     private final EntityManager entityManager;
+    private final QueryPlanCache queryPlanCache;
 
     private final HashMap<String, String> employeeColumnMapping = new HashMap<>();
     private final HashMap<String, String> officeColumnMapping = new HashMap<>();
     private final HashMap<String, String> allColumnMapping = new HashMap<>();
+    private final FooterAggregates footerAggregates;
+    private final RowCount rowCount;
+    private final ReportDefinition reportDefinition;
 
 
     @Autowired
     public EmployeeListReportSpecification(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
-                                           final EntityManager entityManager) {
+                                           final EntityManager entityManager,
+                                           final QueryPlanCache queryPlanCache) {
         super();
         this.logger = logger;
         this.entityManager = entityManager;
+        this.queryPlanCache = queryPlanCache;
         this.initializeMapping();
+        this.footerAggregates = FooterAggregates.create(this.employeeColumnMapping)
+                .source("horus_employees he", this.employeeColumnMapping);
+        this.rowCount = RowCount.create("horus_employees he", this.employeeColumnMapping);
+        this.reportDefinition = this.buildReportDefinition();
     }
 
     @Override
     public ReportDefinition getReportDefinition() {
+        return this.reportDefinition;
+    }
+
+    private ReportDefinition buildReportDefinition() {
         final ReportDefinition reportDefinition = new ReportDefinition();
         reportDefinition.setIdentifier("Employee");
         reportDefinition.setName("Employee Listing");
         reportDefinition.setDescription("List of all employees.");
-        reportDefinition.setQueryParameters(this.buildQueryParameters());
-        reportDefinition.setDisplayableFields(this.buildDisplayableFields());
+        reportDefinition.setQueryParameters(Collections.unmodifiableList(this.buildQueryParameters()));
+        reportDefinition.setDisplayableFields(Collections.unmodifiableList(this.buildDisplayableFields()));
         return reportDefinition;
     }
 
     @Override
     public ReportPage generateReport(final ReportRequest reportRequest, final int pageIndex, final int size) {
+        return this.buildReportPage(reportRequest, pageIndex, null, size);
+    }
+
+    @Override
+    public ReportPage generateReport(final ReportRequest reportRequest, final String pageToken, final int size) {
+        return this.buildReportPage(reportRequest, 0, PageToken.decode(pageToken, KEY_COLUMNS.length), size);
+    }
+
+    private ReportPage buildReportPage(final ReportRequest reportRequest, final int pageIndex,
+                                      final String[] seekKeys, final int size) {
         final ReportDefinition reportDefinition = this.getReportDefinition();
         this.logger.info("Generating report {0}.", reportDefinition.getIdentifier());
 
@@ -85,20 +112,31 @@ public class EmployeeListReportSpecification implements ReportSpecification {
         reportPage.setDescription(reportDefinition.getDescription());
         reportPage.setHeader(this.createHeader(reportRequest.getDisplayableFields()));
 
-        final Query customerQuery = this.entityManager.createNativeQuery(this.buildEmployeeQuery(reportRequest, pageIndex, size));
-        final List<?> customerResultList =  customerQuery.getResultList();
-        reportPage.setRows(this.buildRows(reportRequest, customerResultList));
-
-        reportPage.setHasMore(
-                !this.entityManager.createNativeQuery(this.buildEmployeeQuery(reportRequest, pageIndex + 1, size))
-                        .getResultList().isEmpty()
-        );
+        final String customerQueryString = this.queryPlanCache.plan("Organization~Employee", reportRequest, seekKeys != null,
+                () -> this.buildEmployeeQuery(reportRequest, seekKeys != null));
+        final Query customerQuery = this.entityManager.createNativeQuery(customerQueryString);
+        CriteriaBuilder.bindCriteria(customerQuery, reportRequest.getQueryParameters());
+        Pagination.bindLimit(customerQuery, pageIndex, size);
+        Pagination.bindSeek(customerQuery, seekKeys);
+        final List<?> customerResultList =  Statements.resultList(customerQuery);
+        reportPage.setRows(this.buildRows(reportRequest, Pagination.currentPage(customerResultList, size, KEY_COLUMNS.length)));
+        reportPage.setHasMore(Pagination.hasMore(customerResultList, size));
+        reportPage.setNextPageToken(Pagination.buildNextPageToken(customerResultList, size, KEY_COLUMNS.length));
+        if (pageIndex == 0 && seekKeys == null) {
+            reportPage.setFooter(this.footerAggregates.fetchFooter(this.entityManager, this.queryPlanCache,
+                    "Organization~Employee~footer", reportRequest));
+        }
 
         reportPage.setGeneratedBy(UserContextHolder.checkedGetUser());
         reportPage.setGeneratedOn(DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC())));
         return reportPage;
     }
 
+    @Override
+    public Long countRows(final ReportRequest reportRequest, final CountMode countMode) {
+        return this.rowCount.count(this.entityManager, this.queryPlanCache, "Organization~Employee", reportRequest, countMode);
+    }
+
     @Override
     public void validate(final ReportRequest reportRequest) throws IllegalArgumentException {
         final ArrayList<String> unknownFields =  new ArrayList<>();
@@ -119,6 +157,8 @@ public class EmployeeListReportSpecification implements ReportSpecification {
                     "Unspecified fields requested: " + unknownFields.stream().collect(Collectors.joining(", "))
             );
         }
+
+        FooterAggregates.validate(this.reportDefinition, reportRequest);
     }
 
     private void initializeMapping() {
@@ -147,8 +187,10 @@ public class EmployeeListReportSpecification implements ReportSpecification {
     }
 
 
-    private List<Row> buildRows(final ReportRequest reportRequest, final List<?> employeeResultList) {
+    List<Row> buildRows(final ReportRequest reportRequest, final List<?> employeeResultList) {
         final ArrayList<Row> rows = new ArrayList<>();
+        final String officeQueryString = this.queryPlanCache.plan("Organization~Employee~office", reportRequest, false,
+                () -> this.buildOfficeQuery(reportRequest));
 
         employeeResultList.forEach(result -> {
             final Row row = new Row();
@@ -179,10 +221,10 @@ public class EmployeeListReportSpecification implements ReportSpecification {
                 row.getValues().add(value);
             }
 
-            final String officeQueryString = this.buildOfficeQuery(reportRequest, officeIdentifier);
             if (officeQueryString != null) {
                 final Query officeQuery = this.entityManager.createNativeQuery(officeQueryString);
-                final List<?> resultList = officeQuery.getResultList();
+                officeQuery.setParameter("officeIdentifier", officeIdentifier);
+                final List<?> resultList = Statements.resultList(officeQuery);
                 final Value officeValue = new Value();
                 officeValue.setValues(new String[]{resultList.get(0).toString()});
                 row.getValues().add(officeValue);
@@ -204,7 +246,7 @@ public class EmployeeListReportSpecification implements ReportSpecification {
     private List<DisplayableField> buildDisplayableFields() {
         return Arrays.asList(
                 DisplayableFieldBuilder.create(OFFICE, Type.TEXT).mandatory().build(),
-                DisplayableFieldBuilder.create(USERNAME, Type.TEXT).mandatory().build(),
+                DisplayableFieldBuilder.create(USERNAME, Type.TEXT).mandatory().aggregates(Aggregate.COUNT).build(),
                 DisplayableFieldBuilder.create(FIRST_NAME, Type.TEXT).mandatory().build(),
                 DisplayableFieldBuilder.create(MIDDLE_NAME, Type.TEXT).build(),
                 DisplayableFieldBuilder.create(LAST_NAME, Type.TEXT).mandatory().build(),
@@ -213,7 +255,7 @@ public class EmployeeListReportSpecification implements ReportSpecification {
         );
     }
 
-    private String buildEmployeeQuery(final ReportRequest reportRequest, int pageIndex, int size) {
+    private String buildEmployeeQuery(final ReportRequest reportRequest, final boolean seek) {
         final StringBuilder query = new StringBuilder("SELECT ");
 
         final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
@@ -225,40 +267,26 @@ public class EmployeeListReportSpecification implements ReportSpecification {
             }
         });
 
+        columns.addAll(Arrays.asList(KEY_COLUMNS));
+
         query.append(columns.stream().collect(Collectors.joining(", ")))
                 .append(" FROM ")
                 .append("horus_employees he ");
 
-        final List<QueryParameter> queryParameters = reportRequest.getQueryParameters();
-        if (!queryParameters.isEmpty()) {
-            final ArrayList<String> criteria = new ArrayList<>();
-            queryParameters.forEach(queryParameter -> {
-                if(queryParameter.getValue() != null && !queryParameter.getValue().isEmpty()) {
-                    criteria.add(
-                            CriteriaBuilder.buildCriteria(this.employeeColumnMapping.get(queryParameter.getName()), queryParameter)
-                    );
-                }
-            });
-
-            if (!criteria.isEmpty()) {
-                query.append(" WHERE ");
-                query.append(criteria.stream().collect(Collectors.joining(" AND ")));
-            }
-
+        final ArrayList<String> criteria =
+                CriteriaBuilder.buildCriteria(this.employeeColumnMapping, reportRequest.getQueryParameters());
+        if (seek) {
+            criteria.add(Pagination.buildSeek(KEY_COLUMNS));
         }
+        query.append(CriteriaBuilder.buildWhere(criteria));
         query.append(" ORDER BY he.identifier");
 
-        query.append(" LIMIT ");
-        query.append(size);
-        if (pageIndex > 0) {
-            query.append(" OFFSET ");
-            query.append(size * pageIndex);
-        }
+        query.append(Pagination.buildLimit());
 
         return query.toString();
     }
 
-    private String buildOfficeQuery(final ReportRequest reportRequest, final String officeIdentifier) {
+    private String buildOfficeQuery(final ReportRequest reportRequest) {
         final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
         final ArrayList<String> columns = new ArrayList<>();
         displayableFields.forEach(displayableField -> {
@@ -271,7 +299,7 @@ public class EmployeeListReportSpecification implements ReportSpecification {
         return "SELECT DISTINCT " + columns.get(0).toString() + " " +
                 "FROM horus_offices ho " +
                 "LEFT JOIN horus_employees he on ho.id = he.assigned_office_id " +
-                "WHERE he.assigned_office_id ='" + officeIdentifier + "' ";
+                "WHERE he.assigned_office_id = :officeIdentifier";
         }
         return null;
     }
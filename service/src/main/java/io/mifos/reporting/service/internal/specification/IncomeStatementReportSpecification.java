@@ -30,11 +30,13 @@ import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
-@Report(category = "Accounting", identifier = "Incomestatement")
+@Report(category = "Accounting", identifier = "Incomestatement", tables = {"thoth_accounts"})
 public class IncomeStatementReportSpecification implements ReportSpecification {
 
     private static final String DATE_RANGE = "Date range";
@@ -44,31 +46,44 @@ public class IncomeStatementReportSpecification implements ReportSpecification {
     private static final String HOLDER = "Holder";
     private static final String BALANCE = "Balance";
     private static final String STATE = "State";
+    private static final String DETAILS = "Details";
+
+    private static final String[] SECTIONS = {"REVENUE", "EXPENSE"};
+    private static final String[] SECTION_TOTALS = {"TOTAL REVENUES ", "TOTAL EXPENSES "};
 
     private final Logger logger;
 
     private final EntityManager entityManager;
+    private final SectionExecutor sectionExecutor;
 
     private final HashMap<String, String> accountColumnMapping = new HashMap<>();
     private final HashMap<String, String> allColumnMapping = new HashMap<>();
+    private final ReportDefinition reportDefinition;
 
 
     public IncomeStatementReportSpecification(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
-                                              final EntityManager entityManager){
+                                              final EntityManager entityManager,
+                                              final SectionExecutor sectionExecutor){
         super();
         this.logger = logger;
         this.entityManager = entityManager;
+        this.sectionExecutor = sectionExecutor;
         this.initializeMapping();
+        this.reportDefinition = this.buildReportDefinition();
     }
 
     @Override
     public ReportDefinition getReportDefinition() {
+        return this.reportDefinition;
+    }
+
+    private ReportDefinition buildReportDefinition() {
         final ReportDefinition reportDefinition = new ReportDefinition();
         reportDefinition.setIdentifier("Incomestatement");
         reportDefinition.setName("Income Statement");
         reportDefinition.setDescription("Income statement report");
-        reportDefinition.setQueryParameters(this.buildQueryParameters());
-        reportDefinition.setDisplayableFields(this.buildDisplayableFields());
+        reportDefinition.setQueryParameters(Collections.unmodifiableList(this.buildQueryParameters()));
+        reportDefinition.setDisplayableFields(Collections.unmodifiableList(this.buildDisplayableFields()));
         return reportDefinition;
     }
 
@@ -82,14 +97,31 @@ public class IncomeStatementReportSpecification implements ReportSpecification {
         reportPage.setDescription(reportDefinition.getDescription());
         reportPage.setHeader(this.createHeader(reportRequest.getDisplayableFields()));
 
-        final Query accountQuery = this.entityManager.createNativeQuery(this.buildAccountQuery(reportRequest, pageIndex, size));
-        final List<?> accountResultList =  accountQuery.getResultList();
-        reportPage.setRows(this.buildRows(reportRequest, accountResultList));
+        final List<QueryParameter> criteriaParameters = reportRequest.getQueryParameters()
+                .stream()
+                .filter(queryParameter -> !queryParameter.getName().equals(DETAILS))
+                .collect(Collectors.toList());
+
+        // totals and details are independent, the details run on a section thread while the totals are summed here
+        final CompletableFuture<List<?>> details;
+        if (this.isDetailsRequested(reportRequest)) {
+            details = this.sectionExecutor.fork(() -> {
+                final Query accountQuery =
+                        this.entityManager.createNativeQuery(this.buildAccountQuery(reportRequest, criteriaParameters));
+                CriteriaBuilder.bindCriteria(accountQuery, criteriaParameters);
+                return Statements.resultList(accountQuery);
+            });
+        } else {
+            details = CompletableFuture.completedFuture(Collections.emptyList());
+        }
 
-        reportPage.setHasMore(
-                !this.entityManager.createNativeQuery(this.buildAccountQuery(reportRequest, pageIndex + 1, size))
-                        .getResultList().isEmpty()
-        );
+        final Query totalQuery = this.entityManager.createNativeQuery(this.buildTotalQuery(criteriaParameters));
+        CriteriaBuilder.bindCriteria(totalQuery, criteriaParameters);
+        final Object[] totals = (Object[]) Statements.singleResult(totalQuery);
+
+        reportPage.setRows(this.buildRows(SectionExecutor.join(details), totals));
+        // all accounts are part of the first page, so there is never a next page to probe
+        reportPage.setHasMore(false);
 
         reportPage.setGeneratedBy(UserContextHolder.checkedGetUser());
         reportPage.setGeneratedOn(DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC())));
@@ -100,7 +132,9 @@ public class IncomeStatementReportSpecification implements ReportSpecification {
     public void validate(ReportRequest reportRequest) throws IllegalArgumentException {
         final ArrayList<String> unknownFields =  new ArrayList<>();
         reportRequest.getQueryParameters().forEach(queryParameter -> {
-            if (!this.allColumnMapping.keySet().contains(queryParameter.getName())) {
+            if (queryParameter.getName().equals(DETAILS)) {
+                this.parseDetails(queryParameter.getValue());
+            } else if (!this.allColumnMapping.keySet().contains(queryParameter.getName())) {
                 unknownFields.add(queryParameter.getName());
             }
         });
@@ -141,129 +175,87 @@ public class IncomeStatementReportSpecification implements ReportSpecification {
         return header;
     }
 
-    private List<Row> buildRows(ReportRequest reportRequest, List<?> accountResultList) {
-        final ArrayList<Row> rows = new ArrayList<>();
-        
-        final Row totalRevenueRow = new Row();
-        totalRevenueRow.setValues(new ArrayList<>());
-
-        final Value subRevenueTotal = new Value();
-
-        final BigDecimal[] revenueSubTotal = {new BigDecimal("0.000")};
-
-        accountResultList.forEach(result -> {
-
-            final Row row = new Row();
-            row.setValues(new ArrayList<>());
-
-            if (result instanceof Object[]) {
-                final Object[] resultValues;
-                resultValues = (Object[]) result;
-
-                for (int i = 0; i < resultValues.length; i++){
-                    final Value revValue = new Value();
-                    if (resultValues[i] != null){
-                        revValue.setValues(new String[]{resultValues[i].toString()});
-                    }else revValue.setValues(new String[]{});
+    private boolean isDetailsRequested(final ReportRequest reportRequest) {
+        return reportRequest.getQueryParameters()
+                .stream()
+                .filter(queryParameter -> queryParameter.getName().equals(DETAILS))
+                .findFirst()
+                .map(queryParameter -> this.parseDetails(queryParameter.getValue()))
+                .orElse(false);
+    }
 
-                    row.getValues().add(revValue);
+    private boolean parseDetails(final String value) {
+        if (value == null || value.isEmpty() || value.equalsIgnoreCase("false")) {
+            return false;
+        }
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        }
+        throw new IllegalArgumentException("Invalid value for " + DETAILS + ": " + value);
+    }
 
-                    revenueSubTotal[0] = revenueSubTotal[0].add((BigDecimal)resultValues[3]);
+    List<Row> buildRows(final List<?> accountResultList, final Object[] totals) {
+        final ArrayList<Row> rows = new ArrayList<>();
 
+        // detail rows are ordered by section, the section type is the trailing column of each result
+        int resultIndex = 0;
+        for (int section = 0; section < SECTIONS.length; section++) {
+            while (resultIndex < accountResultList.size()) {
+                final Object[] resultValues = (Object[]) accountResultList.get(resultIndex);
+                final int typeIndex = resultValues.length - 1;
+                if (!SECTIONS[section].equals(resultValues[typeIndex])) {
+                    break;
                 }
-            } else {
-                final Value value = new Value();
-                value.setValues(new String[]{result.toString()});
-                row.getValues().add(value);
-            }
-
-            rows.add(row);
-        });
-
-        subRevenueTotal.setValues(new String[]{new StringBuilder().append("TOTAL REVENUES ").append(revenueSubTotal[0]).toString()});
-        totalRevenueRow.getValues().add(subRevenueTotal);
-
-        rows.add(totalRevenueRow);
-
-
-        final String expenseQueryString = this.buildExpenseQuery(reportRequest);
-        final Query expenseQuery = this.entityManager.createNativeQuery(expenseQueryString);
-        final List<?> expenseResultList = expenseQuery.getResultList();
-
-        final Row totalExpenseRow = new Row();
-        totalExpenseRow.setValues(new ArrayList<>());
-        final Value subExpenseTotal = new Value();
-
-        final Row netIncomeRow = new Row();
-        netIncomeRow.setValues(new ArrayList<>());
-        final Value netIncomeTotal = new Value();
-
-        final BigDecimal[] expenseSubTotal = {new BigDecimal("0.000")};
-
-        expenseResultList.forEach(result -> {
-
-            final Row row = new Row();
-            row.setValues(new ArrayList<>());
-
-            if (result instanceof Object[]) {
-                final Object[] resultValues;
-                resultValues = (Object[]) result;
-
-                for (int i = 0; i < resultValues.length; i++){
-                    final Value expValue = new Value();
-                    if (resultValues[i] != null) expValue.setValues(new String[]{resultValues[i].toString()});
-                    else expValue.setValues(new String[]{});
-
-                    row.getValues().add(expValue);
-
-                    expenseSubTotal[0] = expenseSubTotal[0].add((BigDecimal)resultValues[3]);
 
+                final Row row = new Row();
+                row.setValues(new ArrayList<>(typeIndex));
+                for (int i = 0; i < typeIndex; i++) {
+                    final Value value = new Value();
+                    if (resultValues[i] != null) {
+                        value.setValues(new String[]{resultValues[i].toString()});
+                    } else {
+                        value.setValues(new String[]{});
+                    }
+                    row.getValues().add(value);
                 }
-            } else {
-                final Value value;
-                value = new Value();
-                value.setValues(new String[]{result.toString()});
-                row.getValues().add(value);
+                rows.add(row);
+                resultIndex++;
             }
 
-            rows.add(row);
-        });
-
-        subExpenseTotal.setValues(new String[]{new StringBuilder().append("TOTAL EXPENSES ").append(expenseSubTotal[0]).toString()});
-        totalExpenseRow.getValues().add(subExpenseTotal);
-        rows.add(totalExpenseRow);
+            rows.add(this.buildTotalRow(SECTION_TOTALS[section], (BigDecimal) totals[section]));
+        }
 
-        final BigDecimal netIncome = revenueSubTotal[0].subtract(expenseSubTotal[0]);
-        netIncomeTotal.setValues(new String[]{new StringBuilder().append("NET INCOME ").append(netIncome).toString()});
-        netIncomeRow.getValues().add(netIncomeTotal);
-        rows.add(netIncomeRow);
+        rows.add(this.buildTotalRow("NET INCOME ", (BigDecimal) totals[2]));
 
         return rows;
     }
 
-    private String buildAccountQuery(final ReportRequest reportRequest, int pageIndex, int size) {
-        final StringBuilder query = new StringBuilder("SELECT ");
+    private Row buildTotalRow(final String label, final BigDecimal total) {
+        final Value totalValue = new Value();
+        totalValue.setValues(new String[]{label + total});
 
-        final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
-        final ArrayList<String> columns = new ArrayList<>();
-        displayableFields.forEach(displayableField -> {
-            final String column = this.accountColumnMapping.get(displayableField.getName());
-            if (column != null) {
-                columns.add(column);
-            }
-        });
+        final Row totalRow = new Row();
+        totalRow.setValues(new ArrayList<>());
+        totalRow.getValues().add(totalValue);
+        return totalRow;
+    }
 
-        query.append(columns.stream().collect(Collectors.joining(", ")))
+    private String buildTotalQuery(final List<QueryParameter> criteriaParameters) {
+        final StringBuilder query = new StringBuilder("SELECT ")
+                // sums over no accounts are NULL, the statement reports them as zero
+                .append("COALESCE(SUM(CASE WHEN acc.a_type = 'REVENUE' THEN acc.balance ELSE 0 END), 0.000), ")
+                .append("COALESCE(SUM(CASE WHEN acc.a_type = 'EXPENSE' THEN acc.balance ELSE 0 END), 0.000), ")
+                .append("COALESCE(SUM(CASE WHEN acc.a_type = 'REVENUE' THEN acc.balance ELSE -acc.balance END), 0.000)")
                 .append(" FROM ")
                 .append("thoth_accounts acc ")
-                .append("WHERE acc.a_type = 'REVENUE' ");
+                .append("WHERE acc.a_type IN ('REVENUE', 'EXPENSE')");
 
-        query.append(" ORDER BY acc.identifier");
+        this.appendCriteria(query, criteriaParameters);
 
         return query.toString();
     }
 
-    private String buildExpenseQuery(final ReportRequest reportRequest) {
+    private String buildAccountQuery(final ReportRequest reportRequest, final List<QueryParameter> criteriaParameters) {
         final StringBuilder query = new StringBuilder("SELECT ");
 
         final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
@@ -274,17 +266,29 @@ public class IncomeStatementReportSpecification implements ReportSpecification {
                 columns.add(column);
             }
         });
+        columns.add("acc.a_type");
 
         query.append(columns.stream().collect(Collectors.joining(", ")))
                 .append(" FROM ")
                 .append("thoth_accounts acc ")
-                .append("WHERE acc.a_type = 'EXPENSE' ");
+                .append("WHERE acc.a_type IN ('REVENUE', 'EXPENSE')");
+
+        this.appendCriteria(query, criteriaParameters);
 
-        query.append(" ORDER BY acc.identifier");
+        query.append(" ORDER BY FIELD(acc.a_type, 'REVENUE', 'EXPENSE'), acc.identifier");
 
         return query.toString();
     }
 
+    private void appendCriteria(final StringBuilder query, final List<QueryParameter> criteriaParameters) {
+        final ArrayList<String> criteria = CriteriaBuilder.buildCriteria(this.accountColumnMapping, criteriaParameters);
+
+        if (!criteria.isEmpty()) {
+            query.append(" AND ");
+            query.append(CriteriaBuilder.joinCriteria(criteria));
+        }
+    }
+
     private List<DisplayableField> buildDisplayableFields() {
         return Arrays.asList(
                 DisplayableFieldBuilder.create(TYPE, Type.TEXT).mandatory().build(),
@@ -298,7 +302,8 @@ public class IncomeStatementReportSpecification implements ReportSpecification {
 
     private List<QueryParameter> buildQueryParameters() {
         return Arrays.asList(
-               // QueryParameterBuilder.create(DATE_RANGE, Type.DATE).operator(QueryParameter.Operator.BETWEEN).build(),
+                QueryParameterBuilder.create(DATE_RANGE, Type.DATE).operator(QueryParameter.Operator.BETWEEN).build(),
+                QueryParameterBuilder.create(DETAILS, Type.TEXT).operator(QueryParameter.Operator.EQUALS).build()
                 //QueryParameterBuilder.create(STATE, Type.TEXT).operator(QueryParameter.Operator.IN).build()
         );
     }
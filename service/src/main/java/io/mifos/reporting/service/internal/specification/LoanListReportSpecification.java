@@ -30,11 +30,14 @@ import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
-@Report(category = "Loan", identifier = "Listing")
+@Report(category = "Loan", identifier = "Listing", cacheTimeToLive = 120,
+        tables = {"maat_customers", "bastet_cases", "bastet_il_cases"})
 public class LoanListReportSpecification implements ReportSpecification {
 
 
@@ -53,38 +56,64 @@ public class LoanListReportSpecification implements ReportSpecification {
     private static final String STATE = "State";
     private static final String DATE_RANGE = "Created On";
     private static final String EMPLOYEE = "Created By";
+    private static final String[] KEY_COLUMNS = {"cst.identifier"};
 
     private final Logger logger;
 
     private final EntityManager entityManager;
+    private final QueryPlanCache queryPlanCache;
 
     private final HashMap<String, String> customerColumnMapping = new HashMap<>();
     private final HashMap<String, String> loanColumnMapping = new HashMap<>();
     private final HashMap<String, String> caseColumnMapping = new HashMap<>();
     private final HashMap<String, String> allColumnMapping = new HashMap<>();
+    private final FooterAggregates footerAggregates;
+    private final RowCount rowCount;
+    private final ReportDefinition reportDefinition;
 
     @Autowired
     public LoanListReportSpecification(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
-                                       final EntityManager entityManager) {
+                                       final EntityManager entityManager,
+                                       final QueryPlanCache queryPlanCache) {
         super();
         this.logger = logger;
         this.entityManager = entityManager;
+        this.queryPlanCache = queryPlanCache;
         this.initializeMapping();
+        this.footerAggregates = FooterAggregates.create(this.customerColumnMapping)
+                .source("maat_customers cst", this.customerColumnMapping)
+                .source("bastet_il_cases il_cases JOIN maat_customers cst ON il_cases.customer_identifier = cst.identifier", this.loanColumnMapping);
+        this.rowCount = RowCount.create("maat_customers cst", this.customerColumnMapping);
+        this.reportDefinition = this.buildReportDefinition();
     }
 
     @Override
     public ReportDefinition getReportDefinition() {
+        return this.reportDefinition;
+    }
+
+    private ReportDefinition buildReportDefinition() {
         final ReportDefinition reportDefinition = new ReportDefinition();
         reportDefinition.setIdentifier("Listing");
         reportDefinition.setName("Loan Account Listing");
         reportDefinition.setDescription("List of all loan accounts.");
-        reportDefinition.setQueryParameters(this.buildQueryParameters());
-        reportDefinition.setDisplayableFields(this.buildDisplayableFields());
+        reportDefinition.setQueryParameters(Collections.unmodifiableList(this.buildQueryParameters()));
+        reportDefinition.setDisplayableFields(Collections.unmodifiableList(this.buildDisplayableFields()));
         return reportDefinition;
     }
 
     @Override
     public ReportPage generateReport(ReportRequest reportRequest, int pageIndex, int size) {
+        return this.buildReportPage(reportRequest, pageIndex, null, size);
+    }
+
+    @Override
+    public ReportPage generateReport(final ReportRequest reportRequest, final String pageToken, final int size) {
+        return this.buildReportPage(reportRequest, 0, PageToken.decode(pageToken, KEY_COLUMNS.length), size);
+    }
+
+    private ReportPage buildReportPage(final ReportRequest reportRequest, final int pageIndex,
+                                      final String[] seekKeys, final int size) {
         final ReportDefinition reportDefinition = this.getReportDefinition();
         this.logger.info("Generating report {0}.", reportDefinition.getIdentifier());
 
@@ -93,21 +122,31 @@ public class LoanListReportSpecification implements ReportSpecification {
         reportPage.setDescription(reportDefinition.getDescription());
         reportPage.setHeader(this.createHeader(reportRequest.getDisplayableFields()));
 
-        final Query customerQuery;
-        customerQuery = this.entityManager.createNativeQuery(this.buildCustomerQuery(reportRequest, pageIndex, size));
-        final List<?> customerResultList =  customerQuery.getResultList();
-        reportPage.setRows(this.buildRows(reportRequest, customerResultList));
-
-        reportPage.setHasMore(
-                !this.entityManager.createNativeQuery(this.buildCustomerQuery(reportRequest, pageIndex + 1, size))
-                        .getResultList().isEmpty()
-        );
+        final String customerQueryString = this.queryPlanCache.plan("Loan~Listing", reportRequest, seekKeys != null,
+                () -> this.buildCustomerQuery(reportRequest, seekKeys != null));
+        final Query customerQuery = this.entityManager.createNativeQuery(customerQueryString);
+        CriteriaBuilder.bindCriteria(customerQuery, reportRequest.getQueryParameters());
+        Pagination.bindLimit(customerQuery, pageIndex, size);
+        Pagination.bindSeek(customerQuery, seekKeys);
+        final List<?> customerResultList =  Statements.resultList(customerQuery);
+        reportPage.setRows(this.buildRows(reportRequest, Pagination.currentPage(customerResultList, size, KEY_COLUMNS.length)));
+        reportPage.setHasMore(Pagination.hasMore(customerResultList, size));
+        reportPage.setNextPageToken(Pagination.buildNextPageToken(customerResultList, size, KEY_COLUMNS.length));
+        if (pageIndex == 0 && seekKeys == null) {
+            reportPage.setFooter(this.footerAggregates.fetchFooter(this.entityManager, this.queryPlanCache,
+                    "Loan~Listing~footer", reportRequest));
+        }
 
         reportPage.setGeneratedBy(UserContextHolder.checkedGetUser());
         reportPage.setGeneratedOn(DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC())));
         return reportPage;
     }
 
+    @Override
+    public Long countRows(final ReportRequest reportRequest, final CountMode countMode) {
+        return this.rowCount.count(this.entityManager, this.queryPlanCache, "Loan~Listing", reportRequest, countMode);
+    }
+
     @Override
     public void validate(ReportRequest reportRequest) throws IllegalArgumentException {
         final ArrayList<String> unknownFields =  new ArrayList<>();
@@ -128,6 +167,8 @@ public class LoanListReportSpecification implements ReportSpecification {
                     "Unspecified fields requested: " + unknownFields.stream().collect(Collectors.joining(", "))
             );
         }
+
+        FooterAggregates.validate(this.reportDefinition, reportRequest);
     }
 
     private void initializeMapping() {
@@ -164,20 +205,19 @@ public class LoanListReportSpecification implements ReportSpecification {
         return header;
     }
 
-    private List<Row> buildRows(ReportRequest reportRequest, List<?> customerResultList) {
+    List<Row> buildRows(final ReportRequest reportRequest, final List<?> customerResultList) {
         final ArrayList<Row> rows = new ArrayList<>();
+        final ArrayList<String> customerIdentifiers = new ArrayList<>(customerResultList.size());
 
         customerResultList.forEach(result -> {
             final Row row = new Row();
             row.setValues(new ArrayList<>());
 
-            final String customerIdentifier;
-
             if (result instanceof Object[]) {
                 final Object[] resultValues;
                 resultValues = (Object[]) result;
 
-                customerIdentifier = resultValues[0].toString();
+                customerIdentifiers.add(resultValues[0].toString());
 
                 for (final Object resultValue : resultValues) {
                     final Value value = new Value();
@@ -190,78 +230,82 @@ public class LoanListReportSpecification implements ReportSpecification {
                     row.getValues().add(value);
                 }
             } else {
-                customerIdentifier = result.toString();
+                customerIdentifiers.add(result.toString());
 
                 final Value value = new Value();
                 value.setValues(new String[]{result.toString()});
                 row.getValues().add(value);
             }
 
-            final Query accountQuery = this.entityManager.createNativeQuery(this.buildLoanAccountQuery(reportRequest, customerIdentifier));
-            final List<?> accountResultList = accountQuery.getResultList();
+            rows.add(row);
+        });
 
-            accountResultList.forEach(accountResult -> {
+        if (rows.isEmpty()) {
+            return rows;
+        }
 
-                final String caseIdentifier;
+        final Map<String, List<Value>> loansByCustomer =
+                this.fetchLoans(reportRequest, customerIdentifiers);
 
-                if (accountResult instanceof Object[]) {
-                    final Object[] accountResultValues;
-                    accountResultValues = (Object[]) accountResult;
+        for (int i = 0; i < rows.size(); i++) {
+            final List<Value> loanValues = loansByCustomer.get(customerIdentifiers.get(i));
+            if (loanValues != null) {
+                rows.get(i).getValues().addAll(loanValues);
+            }
+        }
 
-                    caseIdentifier = accountResultValues[0].toString();
+        return rows;
+    }
 
-                    for (final Object loan: accountResultValues) {
-                        final Value value = new Value();
-                        if (loan != null) {
-                            value.setValues(new String[]{loan.toString()});
-                        } else {
-                            value.setValues(new String[]{});
-                        }
+    private Map<String, List<Value>> fetchLoans(final ReportRequest reportRequest,
+                                                final List<String> customerIdentifiers) {
+        final HashMap<String, List<Value>> loansByCustomer = new HashMap<>();
 
-                        row.getValues().add(value);
-                    }
-                }else {
-                    caseIdentifier = accountResult.toString();
+        final List<String> loanColumns = this.selectColumns(reportRequest, this.loanColumnMapping);
+        final List<String> caseColumns = this.selectColumns(reportRequest, this.caseColumnMapping);
+        if (loanColumns.isEmpty() && caseColumns.isEmpty()) {
+            return loansByCustomer;
+        }
 
-                    final Value value = new Value();
-                    value.setValues(new String[]{accountResult.toString()});
-                    row.getValues().add(value);
+        final String loanQueryString = this.queryPlanCache.plan("Loan~Listing~loans", reportRequest, false,
+                () -> this.buildLoanQuery(loanColumns, caseColumns));
+        final Query loanQuery = this.entityManager.createNativeQuery(loanQueryString);
+        loanQuery.setParameter("customerIdentifiers", customerIdentifiers);
+        final List<?> loanResultList = Statements.resultList(loanQuery);
+
+        // first two columns are the customer identifier and the case key, the latter being null if the
+        // loan has no matching case
+        final int caseOffset = 2 + loanColumns.size();
+        loanResultList.forEach(loanResult -> {
+            final Object[] loanResultValues = (Object[]) loanResult;
+            final List<Value> values =
+                    loansByCustomer.computeIfAbsent(loanResultValues[0].toString(), key -> new ArrayList<>());
+
+            final int end = loanResultValues[1] != null ? loanResultValues.length : caseOffset;
+            for (int i = 2; i < end; i++) {
+                final Value value = new Value();
+                if (loanResultValues[i] != null) {
+                    value.setValues(new String[]{loanResultValues[i].toString()});
+                } else {
+                    value.setValues(new String[]{});
                 }
-
-                final Query caseQuery = this.entityManager.createNativeQuery(this.buildCaseQuery(reportRequest, caseIdentifier));
-
-                final List<?> caseResultList = caseQuery.getResultList();
-
-                caseResultList.forEach(loanCase -> {
-                    final Object[] loanCaseResultValues = (Object[]) loanCase;
-
-                    for (final Object loan : loanCaseResultValues) {
-                        final Value value = new Value();
-                        if (loan != null) {
-                            value.setValues(new String[]{loan.toString()});
-                        } else {
-                            value.setValues(new String[]{});
-                        }
-                        row.getValues().add(value);
-                    }
-                });
-            });
-
-            rows.add(row);
+                values.add(value);
+            }
         });
 
-        return rows;
+        return loansByCustomer;
     }
 
     private List<DisplayableField> buildDisplayableFields() {
         return Arrays.asList(
-                DisplayableFieldBuilder.create(CUSTOMER, Type.TEXT).mandatory().build(),
+                DisplayableFieldBuilder.create(CUSTOMER, Type.TEXT).mandatory().aggregates(Aggregate.COUNT).build(),
                 DisplayableFieldBuilder.create(FIRST_NAME, Type.TEXT).mandatory().build(),
                 DisplayableFieldBuilder.create(MIDDLE_NAME, Type.TEXT).build(),
                 DisplayableFieldBuilder.create(LAST_NAME, Type.TEXT).mandatory().build(),
                 DisplayableFieldBuilder.create(OFFICE, Type.TEXT).build(),
                 DisplayableFieldBuilder.create(CASE, Type.TEXT).mandatory().build(),
-                DisplayableFieldBuilder.create(PRINCIPAL, Type.TEXT).mandatory().build(),
+                DisplayableFieldBuilder.create(PRINCIPAL, Type.TEXT).mandatory()
+                        .aggregates(Aggregate.SUM, Aggregate.MIN, Aggregate.MAX).build(),
                 DisplayableFieldBuilder.create(LOAN_TERM, Type.TEXT).mandatory().build(),
                 DisplayableFieldBuilder.create(TIME_UNIT, Type.TEXT).mandatory().build(),
 
@@ -280,7 +324,7 @@ public class LoanListReportSpecification implements ReportSpecification {
         );
     }
 
-    private String buildCustomerQuery(final ReportRequest reportRequest, int pageIndex, int size){
+    private String buildCustomerQuery(final ReportRequest reportRequest, final boolean seek){
         final StringBuilder query = new StringBuilder("SELECT ");
 
         final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
@@ -293,69 +337,49 @@ public class LoanListReportSpecification implements ReportSpecification {
             }
         });
 
+        columns.addAll(Arrays.asList(KEY_COLUMNS));
+
         query.append(columns.stream().collect(Collectors.joining(", ")))
                 .append(" FROM ")
                 .append("maat_customers cst ");
 
-        final List<QueryParameter> queryParameters = reportRequest.getQueryParameters();
-        if (!queryParameters.isEmpty()) {
-            final ArrayList<String> criteria = new ArrayList<>();
-            queryParameters.forEach(queryParameter -> {
-                if((queryParameter.getValue() != null) && !queryParameter.getValue().isEmpty()) {
-                    criteria.add(
-                            CriteriaBuilder.buildCriteria(this.customerColumnMapping.get(queryParameter.getName()), queryParameter)
-                    );
-                }
-            });
-
-            if (!criteria.isEmpty()) {
-                query.append(" WHERE ");
-                query.append(criteria.stream().collect(Collectors.joining(" AND ")));
-            }
-
+        final ArrayList<String> criteria =
+                CriteriaBuilder.buildCriteria(this.customerColumnMapping, reportRequest.getQueryParameters());
+        if (seek) {
+            criteria.add(Pagination.buildSeek(KEY_COLUMNS));
         }
+        query.append(CriteriaBuilder.buildWhere(criteria));
         query.append(" ORDER BY cst.identifier");
 
-        query.append(" LIMIT ");
-        query.append(size);
-        if (pageIndex > 0) {
-            query.append(" OFFSET ");
-            query.append(size * pageIndex);
-        }
+        query.append(Pagination.buildLimit());
 
         return query.toString();
     }
 
-    private String buildLoanAccountQuery(final ReportRequest reportRequest, final String customerIdentifier){
+    private List<String> selectColumns(final ReportRequest reportRequest, final Map<String, String> columnMapping) {
         final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
         final ArrayList<String> columns = new ArrayList<>();
         displayableFields.forEach(displayableField -> {
-            final String column = this.loanColumnMapping.get(displayableField.getName());
+            final String column = columnMapping.get(displayableField.getName());
             if (column != null) {
                 columns.add(column);
             }
         });
-
-        return "SELECT " + columns.stream().collect(Collectors.joining(", ")) + " " +
-                "FROM bastet_il_cases il_cases " +
-                "LEFT JOIN maat_customers cst on il_cases.customer_identifier = cst.identifier " +
-                "WHERE cst.identifier ='" + customerIdentifier + "' " +
-                "ORDER BY il_cases.case_id";
+        return columns;
     }
 
-    private String buildCaseQuery(final ReportRequest reportRequest, final String caseIdentifier){
-        final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
+    private String buildLoanQuery(final List<String> loanColumns, final List<String> caseColumns) {
         final ArrayList<String> columns = new ArrayList<>();
-        displayableFields.forEach(displayableField -> {
-            final String column = this.caseColumnMapping.get(displayableField.getName());
-            if (column != null) {
-                columns.add(column);
-            }
-        });
+        columns.add("cst.identifier");
+        columns.add("cases.id");
+        columns.addAll(loanColumns);
+        columns.addAll(caseColumns);
 
         return "SELECT " + columns.stream().collect(Collectors.joining(", ")) + " " +
-                "FROM bastet_cases cases " +
-                "LEFT JOIN bastet_il_cases il_cases on cases.id = il_cases.case_id " +
-                "WHERE il_cases.case_id ='" + caseIdentifier + "' ";
+                "FROM bastet_il_cases il_cases " +
+                "LEFT JOIN maat_customers cst on il_cases.customer_identifier = cst.identifier " +
+                "LEFT JOIN bastet_cases cases on cases.id = il_cases.case_id " +
+                "WHERE cst.identifier IN (:customerIdentifiers) " +
+                "ORDER BY cst.identifier, il_cases.case_id";
     }
 }
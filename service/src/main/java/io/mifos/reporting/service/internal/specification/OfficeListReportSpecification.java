@@ -30,10 +30,12 @@ import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.stream.Collectors;
-@Report(category = "Organization", identifier = "Office")
+@Report(category = "Organization", identifier = "Office", cacheTimeToLive = 300,
+        tables = {"horus_offices", "horus_addresses"})
 public class OfficeListReportSpecification implements ReportSpecification {
 
     private static final String OFFICE = "Identifier";
@@ -46,36 +48,61 @@ public class OfficeListReportSpecification implements ReportSpecification {
    // private static final String POSTAL_CODE = "Postal Code";
    // private static final String COUNTRY = "Country";
     private static final String ADDRESS = "Address";
+    private static final String[] KEY_COLUMNS = {"ho.a_name", "ho.id"};
 
     private final Logger logger;
 
     private final EntityManager entityManager;
+    private final QueryPlanCache queryPlanCache;
     private final HashMap<String, String> officeColumnMapping = new HashMap<>();
     private final HashMap<String, String> addressColumnMapping = new HashMap<>();
     private final HashMap<String, String> allColumnMapping = new HashMap<>();
+    private final FooterAggregates footerAggregates;
+    private final RowCount rowCount;
+    private final ReportDefinition reportDefinition;
 
     @Autowired
     public OfficeListReportSpecification(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
-                                           final EntityManager entityManager) {
+                                           final EntityManager entityManager,
+                                           final QueryPlanCache queryPlanCache) {
         super();
         this.logger = logger;
         this.entityManager = entityManager;
+        this.queryPlanCache = queryPlanCache;
         this.initializeMapping();
+        this.footerAggregates = FooterAggregates.create(this.officeColumnMapping)
+                .source("horus_offices ho", this.officeColumnMapping);
+        this.rowCount = RowCount.create("horus_offices ho", this.officeColumnMapping);
+        this.reportDefinition = this.buildReportDefinition();
     }
 
     @Override
     public ReportDefinition getReportDefinition() {
+        return this.reportDefinition;
+    }
+
+    private ReportDefinition buildReportDefinition() {
         final ReportDefinition reportDefinition = new ReportDefinition();
         reportDefinition.setIdentifier("Office");
         reportDefinition.setName("Office Listing");
         reportDefinition.setDescription("List of all Offices.");
-        reportDefinition.setQueryParameters(this.buildQueryParameters());
-        reportDefinition.setDisplayableFields(this.buildDisplayableFields());
+        reportDefinition.setQueryParameters(Collections.unmodifiableList(this.buildQueryParameters()));
+        reportDefinition.setDisplayableFields(Collections.unmodifiableList(this.buildDisplayableFields()));
         return reportDefinition;
     }
 
     @Override
     public ReportPage generateReport(final ReportRequest reportRequest, final int pageIndex, final int size) {
+        return this.buildReportPage(reportRequest, pageIndex, null, size);
+    }
+
+    @Override
+    public ReportPage generateReport(final ReportRequest reportRequest, final String pageToken, final int size) {
+        return this.buildReportPage(reportRequest, 0, PageToken.decode(pageToken, KEY_COLUMNS.length), size);
+    }
+
+    private ReportPage buildReportPage(final ReportRequest reportRequest, final int pageIndex,
+                                      final String[] seekKeys, final int size) {
         final ReportDefinition reportDefinition = this.getReportDefinition();
         this.logger.info("Generating report {0}.", reportDefinition.getIdentifier());
 
@@ -84,20 +111,31 @@ public class OfficeListReportSpecification implements ReportSpecification {
         reportPage.setDescription(reportDefinition.getDescription());
         reportPage.setHeader(this.createHeader(reportRequest.getDisplayableFields()));
 
-        final Query customerQuery = this.entityManager.createNativeQuery(this.buildOfficeQuery(reportRequest, pageIndex, size));
-        final List<?> customerResultList =  customerQuery.getResultList();
-        reportPage.setRows(this.buildRows(reportRequest, customerResultList));
-
-        reportPage.setHasMore(
-                !this.entityManager.createNativeQuery(this.buildOfficeQuery(reportRequest, pageIndex + 1, size))
-                        .getResultList().isEmpty()
-        );
+        final String customerQueryString = this.queryPlanCache.plan("Organization~Office", reportRequest, seekKeys != null,
+                () -> this.buildOfficeQuery(reportRequest, seekKeys != null));
+        final Query customerQuery = this.entityManager.createNativeQuery(customerQueryString);
+        CriteriaBuilder.bindCriteria(customerQuery, reportRequest.getQueryParameters());
+        Pagination.bindLimit(customerQuery, pageIndex, size);
+        Pagination.bindSeek(customerQuery, seekKeys);
+        final List<?> customerResultList =  Statements.resultList(customerQuery);
+        reportPage.setRows(this.buildRows(reportRequest, Pagination.currentPage(customerResultList, size, KEY_COLUMNS.length)));
+        reportPage.setHasMore(Pagination.hasMore(customerResultList, size));
+        reportPage.setNextPageToken(Pagination.buildNextPageToken(customerResultList, size, KEY_COLUMNS.length));
+        if (pageIndex == 0 && seekKeys == null) {
+            reportPage.setFooter(this.footerAggregates.fetchFooter(this.entityManager, this.queryPlanCache,
+                    "Organization~Office~footer", reportRequest));
+        }
 
         reportPage.setGeneratedBy(UserContextHolder.checkedGetUser());
         reportPage.setGeneratedOn(DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC())));
         return reportPage;
     }
 
+    @Override
+    public Long countRows(final ReportRequest reportRequest, final CountMode countMode) {
+        return this.rowCount.count(this.entityManager, this.queryPlanCache, "Organization~Office", reportRequest, countMode);
+    }
+
     @Override
     public void validate(final ReportRequest reportRequest) throws IllegalArgumentException {
         final ArrayList<String> unknownFields =  new ArrayList<>();
@@ -118,6 +156,8 @@ public class OfficeListReportSpecification implements ReportSpecification {
                     "Unspecified fields requested: " + unknownFields.stream().collect(Collectors.joining(", "))
             );
         }
+
+        FooterAggregates.validate(this.reportDefinition, reportRequest);
     }
 
     private void initializeMapping() {
@@ -154,7 +194,7 @@ public class OfficeListReportSpecification implements ReportSpecification {
 
     private List<DisplayableField> buildDisplayableFields() {
         return Arrays.asList(
-                DisplayableFieldBuilder.create(OFFICE, Type.TEXT).mandatory().build(),
+                DisplayableFieldBuilder.create(OFFICE, Type.TEXT).mandatory().aggregates(Aggregate.COUNT).build(),
                 DisplayableFieldBuilder.create(OFFICE_NAME, Type.TEXT).mandatory().build(),
                 DisplayableFieldBuilder.create(DESCRIPTION, Type.TEXT).mandatory().build(),
                 DisplayableFieldBuilder.create(CREATED_BY, Type.TEXT).build(),
@@ -162,8 +202,10 @@ public class OfficeListReportSpecification implements ReportSpecification {
         );
     }
 
-    private List<Row> buildRows(final ReportRequest reportRequest, final List<?> officeResultList) {
+    List<Row> buildRows(final ReportRequest reportRequest, final List<?> officeResultList) {
         final ArrayList<Row> rows = new ArrayList<>();
+        final String addressQueryString = this.queryPlanCache.plan("Organization~Office~address", reportRequest, false,
+                () -> this.buildAddressQuery(reportRequest));
 
         officeResultList.forEach(result -> {
             final Row row = new Row();
@@ -194,10 +236,10 @@ public class OfficeListReportSpecification implements ReportSpecification {
                 row.getValues().add(value);
             }
 
-            final String addressQueryString = this.buildAddressQuery(reportRequest, officeIdentifier);
             if (addressQueryString != null) {
                 final Query addressQuery = this.entityManager.createNativeQuery(addressQueryString);
-                final List<?> resultList = addressQuery.getResultList();
+                addressQuery.setParameter("officeIdentifier", officeIdentifier);
+                final List<?> resultList = Statements.resultList(addressQuery);
                 final Value addressValue = new Value();
                 addressValue.setValues(new String[]{resultList.get(0).toString()});
                 row.getValues().add(addressValue);
@@ -209,7 +251,7 @@ public class OfficeListReportSpecification implements ReportSpecification {
         return rows;
     }
 
-    private String buildOfficeQuery(final ReportRequest reportRequest, int pageIndex, int size) {
+    private String buildOfficeQuery(final ReportRequest reportRequest, final boolean seek) {
         final StringBuilder query = new StringBuilder("SELECT ");
 
         final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
@@ -221,40 +263,26 @@ public class OfficeListReportSpecification implements ReportSpecification {
             }
         });
 
+        columns.addAll(Arrays.asList(KEY_COLUMNS));
+
         query.append(columns.stream().collect(Collectors.joining(", ")))
                 .append(" FROM ")
                 .append("horus_offices ho ");
 
-        final List<QueryParameter> queryParameters = reportRequest.getQueryParameters();
-        if (!queryParameters.isEmpty()) {
-            final ArrayList<String> criteria = new ArrayList<>();
-            queryParameters.forEach(queryParameter -> {
-                if(queryParameter.getValue() != null && !queryParameter.getValue().isEmpty()) {
-                    criteria.add(
-                            CriteriaBuilder.buildCriteria(this.officeColumnMapping.get(queryParameter.getName()), queryParameter)
-                    );
-                }
-            });
-
-            if (!criteria.isEmpty()) {
-                query.append(" WHERE ");
-                query.append(criteria.stream().collect(Collectors.joining(" AND ")));
-            }
-
+        final ArrayList<String> criteria =
+                CriteriaBuilder.buildCriteria(this.officeColumnMapping, reportRequest.getQueryParameters());
+        if (seek) {
+            criteria.add(Pagination.buildSeek(KEY_COLUMNS));
         }
-        query.append(" ORDER BY ho.a_name");
+        query.append(CriteriaBuilder.buildWhere(criteria));
+        query.append(" ORDER BY ho.a_name, ho.id");
 
-        query.append(" LIMIT ");
-        query.append(size);
-        if (pageIndex > 0) {
-            query.append(" OFFSET ");
-            query.append(size * pageIndex);
-        }
+        query.append(Pagination.buildLimit());
 
         return query.toString();
     }
 
-    private String buildAddressQuery(final ReportRequest reportRequest, final String officeIdentifier) {
+    private String buildAddressQuery(final ReportRequest reportRequest) {
 
         final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
         final ArrayList<String> columns = new ArrayList<>();
@@ -269,7 +297,7 @@ public class OfficeListReportSpecification implements ReportSpecification {
             return "SELECT " + columns.stream().collect(Collectors.joining(", ")) + " " +
                     "FROM horus_addresses ha " +
                     "LEFT JOIN horus_offices ho on ha.office_id = ho.id " +
-                    "WHERE ho.id ='" + officeIdentifier + "' ";
+                    "WHERE ho.id = :officeIdentifier";
         }
         return null;
     }
@@ -26,15 +26,17 @@ import org.springframework.beans.factory.annotation.Qualifier;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import java.io.IOException;
 import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.stream.Collectors;
 
-@Report(category = "Teller" , identifier = "Listing")
+@Report(category = "Teller" , identifier = "Listing", cacheTimeToLive = 120, tables = {"tajet_teller"})
 public class TellerListReportSpecification implements ReportSpecification {
 
     private static final String TELLER = "Teller";
@@ -43,37 +45,75 @@ public class TellerListReportSpecification implements ReportSpecification {
     private static final String CASHDRAW_LIMIT = "Cashdraw limit";
     private static final String STATE = "State";
     private static final String DATE_RANGE = "Date";
+    private static final String[] KEY_COLUMNS = {"tl.identifier"};
 
     private final Logger logger;
 
     private final EntityManager entityManager;
+    private final QueryPlanCache queryPlanCache;
 
     private final HashMap<String, String> tellerColumnMapping = new HashMap<>();
     private final HashMap<String, String> allColumnMapping = new HashMap<>();
+    private final FooterAggregates footerAggregates;
+    private final RowCount rowCount;
+    private final ReportDefinition reportDefinition;
 
 
     @Autowired
     public TellerListReportSpecification(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
-                                         final EntityManager entityManager) {
+                                         final EntityManager entityManager,
+                                         final QueryPlanCache queryPlanCache) {
         super();
         this.logger = logger;
         this.entityManager = entityManager;
+        this.queryPlanCache = queryPlanCache;
         this.initializeMapping();
+        this.footerAggregates = FooterAggregates.create(this.tellerColumnMapping)
+                .source("tajet_teller tl", this.tellerColumnMapping);
+        this.rowCount = RowCount.create("tajet_teller tl", this.tellerColumnMapping);
+        this.reportDefinition = this.buildReportDefinition();
     }
 
     @Override
     public ReportDefinition getReportDefinition() {
+        return this.reportDefinition;
+    }
+
+    private ReportDefinition buildReportDefinition() {
         final ReportDefinition reportDefinition = new ReportDefinition();
         reportDefinition.setIdentifier("Listing");
         reportDefinition.setName("Teller Listing");
         reportDefinition.setDescription("List of all Tellers.");
-        reportDefinition.setQueryParameters(this.buildQueryParameters());
-        reportDefinition.setDisplayableFields(this.buildDisplayableFields());
+        reportDefinition.setQueryParameters(Collections.unmodifiableList(this.buildQueryParameters()));
+        reportDefinition.setDisplayableFields(Collections.unmodifiableList(this.buildDisplayableFields()));
         return reportDefinition;
     }
 
     @Override
     public ReportPage generateReport(ReportRequest reportRequest, int pageIndex, int size) {
+        return this.buildReportPage(reportRequest, pageIndex, null, size);
+    }
+
+    @Override
+    public ReportPage generateReport(final ReportRequest reportRequest, final String pageToken, final int size) {
+        return this.buildReportPage(reportRequest, 0, PageToken.decode(pageToken, KEY_COLUMNS.length), size);
+    }
+
+    @Override
+    public void exportReport(final ReportRequest reportRequest, final int fetchSize, final RowWriter rowWriter)
+            throws IOException {
+        final String tellerQueryString = this.queryPlanCache.plan("Teller~Listing", reportRequest, false,
+                () -> this.buildTellerQuery(reportRequest, false));
+        final Query tellerQuery = this.entityManager.createNativeQuery(tellerQueryString);
+        CriteriaBuilder.bindCriteria(tellerQuery, reportRequest.getQueryParameters());
+        Pagination.bindUnlimited(tellerQuery);
+        // rows are built from the cursor alone, no other statement interrupts streaming
+        ScrollableExport.export(tellerQuery, fetchSize, KEY_COLUMNS.length,
+                chunk -> this.buildRows(reportRequest, chunk), rowWriter);
+    }
+
+    private ReportPage buildReportPage(final ReportRequest reportRequest, final int pageIndex,
+                                      final String[] seekKeys, final int size) {
         final ReportDefinition reportDefinition = this.getReportDefinition();
         this.logger.info("Generating report {0}.", reportDefinition.getIdentifier());
 
@@ -82,20 +122,31 @@ public class TellerListReportSpecification implements ReportSpecification {
         reportPage.setDescription(reportDefinition.getDescription());
         reportPage.setHeader(this.createHeader(reportRequest.getDisplayableFields()));
 
-        final Query tellerQuery = this.entityManager.createNativeQuery(this.buildTellerQuery(reportRequest, pageIndex, size));
-        final List<?> tellerResultList =  tellerQuery.getResultList();
-        reportPage.setRows(this.buildRows(reportRequest, tellerResultList));
-
-        reportPage.setHasMore(
-                !this.entityManager.createNativeQuery(this.buildTellerQuery(reportRequest, pageIndex + 1, size))
-                        .getResultList().isEmpty()
-        );
+        final String tellerQueryString = this.queryPlanCache.plan("Teller~Listing", reportRequest, seekKeys != null,
+                () -> this.buildTellerQuery(reportRequest, seekKeys != null));
+        final Query tellerQuery = this.entityManager.createNativeQuery(tellerQueryString);
+        CriteriaBuilder.bindCriteria(tellerQuery, reportRequest.getQueryParameters());
+        Pagination.bindLimit(tellerQuery, pageIndex, size);
+        Pagination.bindSeek(tellerQuery, seekKeys);
+        final List<?> tellerResultList =  Statements.resultList(tellerQuery);
+        reportPage.setRows(this.buildRows(reportRequest, Pagination.currentPage(tellerResultList, size, KEY_COLUMNS.length)));
+        reportPage.setHasMore(Pagination.hasMore(tellerResultList, size));
+        reportPage.setNextPageToken(Pagination.buildNextPageToken(tellerResultList, size, KEY_COLUMNS.length));
+        if (pageIndex == 0 && seekKeys == null) {
+            reportPage.setFooter(this.footerAggregates.fetchFooter(this.entityManager, this.queryPlanCache,
+                    "Teller~Listing~footer", reportRequest));
+        }
 
         reportPage.setGeneratedBy(UserContextHolder.checkedGetUser());
         reportPage.setGeneratedOn(DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC())));
         return reportPage;
     }
 
+    @Override
+    public Long countRows(final ReportRequest reportRequest, final CountMode countMode) {
+        return this.rowCount.count(this.entityManager, this.queryPlanCache, "Teller~Listing", reportRequest, countMode);
+    }
+
     @Override
     public void validate(final ReportRequest reportRequest) throws IllegalArgumentException {
         final ArrayList<String> unknownFields =  new ArrayList<>();
@@ -116,6 +167,8 @@ public class TellerListReportSpecification implements ReportSpecification {
                     "Unspecified fields requested: " + unknownFields.stream().collect(Collectors.joining(", "))
             );
         }
+
+        FooterAggregates.validate(this.reportDefinition, reportRequest);
     }
 
     private void initializeMapping() {
@@ -140,7 +193,7 @@ public class TellerListReportSpecification implements ReportSpecification {
         return header;
     }
 
-    private List<Row> buildRows(ReportRequest reportRequest, List<?> tellerResultList) {
+    List<Row> buildRows(ReportRequest reportRequest, List<?> tellerResultList) {
         final ArrayList<Row> rows = new ArrayList<>();
         tellerResultList.forEach(result -> {
             final Row row = new Row();
@@ -175,21 +228,24 @@ public class TellerListReportSpecification implements ReportSpecification {
     private List<QueryParameter> buildQueryParameters() {
         return Arrays.asList(
                 QueryParameterBuilder.create(DATE_RANGE, Type.DATE).operator(QueryParameter.Operator.BETWEEN).build(),
-                QueryParameterBuilder.create(STATE, Type.TEXT).operator(QueryParameter.Operator.IN).build()
+                QueryParameterBuilder.create(STATE, Type.TEXT).operator(QueryParameter.Operator.IN).build(),
+                QueryParameterBuilder.create(TELLER, Type.TEXT).autoComplete("/autocomplete/tellers", "term").build(),
+                QueryParameterBuilder.create(OFFICE, Type.TEXT).autoComplete("/autocomplete/offices", "term").build()
         );
     }
 
     private List<DisplayableField> buildDisplayableFields() {
         return Arrays.asList(
-                DisplayableFieldBuilder.create(TELLER, Type.TEXT).mandatory().build(),
+                DisplayableFieldBuilder.create(TELLER, Type.TEXT).mandatory().aggregates(Aggregate.COUNT).build(),
                 DisplayableFieldBuilder.create(OFFICE, Type.TEXT).build(),
                 DisplayableFieldBuilder.create(EMPLOYEE, Type.TEXT).build(),
-                DisplayableFieldBuilder.create(CASHDRAW_LIMIT, Type.TEXT).build(),
-                DisplayableFieldBuilder.create(STATE, Type.TEXT).build()
+                DisplayableFieldBuilder.create(CASHDRAW_LIMIT, Type.TEXT)
+                        .aggregates(Aggregate.SUM, Aggregate.MIN, Aggregate.MAX).build(),
+                DisplayableFieldBuilder.create(STATE, Type.TEXT).aggregates(Aggregate.COUNT_DISTINCT).build()
         );
     }
 
-    private String buildTellerQuery(ReportRequest reportRequest, int pageIndex, int size) {
+    private String buildTellerQuery(ReportRequest reportRequest, final boolean seek) {
         final StringBuilder query = new StringBuilder("SELECT ");
 
         final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
@@ -201,35 +257,21 @@ public class TellerListReportSpecification implements ReportSpecification {
             }
         });
 
+        columns.addAll(Arrays.asList(KEY_COLUMNS));
+
         query.append(columns.stream().collect(Collectors.joining(", ")))
                 .append(" FROM ")
                 .append("tajet_teller tl ");
 
-        final List<QueryParameter> queryParameters = reportRequest.getQueryParameters();
-        if (!queryParameters.isEmpty()) {
-            final ArrayList<String> criteria = new ArrayList<>();
-            queryParameters.forEach(queryParameter -> {
-                if(queryParameter.getValue() != null && !queryParameter.getValue().isEmpty()) {
-                    criteria.add(
-                            CriteriaBuilder.buildCriteria(this.tellerColumnMapping.get(queryParameter.getName()), queryParameter)
-                    );
-                }
-            });
-
-            if (!criteria.isEmpty()) {
-                query.append(" WHERE ");
-                query.append(criteria.stream().collect(Collectors.joining(" AND ")));
-            }
-
+        final ArrayList<String> criteria =
+                CriteriaBuilder.buildCriteria(this.tellerColumnMapping, reportRequest.getQueryParameters());
+        if (seek) {
+            criteria.add(Pagination.buildSeek(KEY_COLUMNS));
         }
+        query.append(CriteriaBuilder.buildWhere(criteria));
         query.append(" ORDER BY tl.identifier");
 
-        query.append(" LIMIT ");
-        query.append(size);
-        if (pageIndex > 0) {
-            query.append(" OFFSET ");
-            query.append(size * pageIndex);
-        }
+        query.append(Pagination.buildLimit());
 
         return query.toString();
     }
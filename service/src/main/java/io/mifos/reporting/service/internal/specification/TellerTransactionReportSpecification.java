@@ -30,11 +30,14 @@ import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
-@Report(category = "Teller", identifier = "Transactions")
+@Report(category = "Teller", identifier = "Transactions", cacheTimeToLive = 60,
+        tables = {"tajet_teller", "tajet_teller_transactions"})
 public class TellerTransactionReportSpecification implements ReportSpecification {
 
     private static final String TELLER_ID = "Teller Id";
@@ -47,37 +50,63 @@ public class TellerTransactionReportSpecification implements ReportSpecification
     private static final String CLERK = "Clerk";
     private static final String AMOUNT = "Amount";
     private static final String STATUS = "Status";
+    private static final String MORE_TRANSACTIONS = "More Transactions";
+    private static final String TRANSACTION_PAGE = "Transaction Page";
+    private static final String[] KEY_COLUMNS = {"teller.id"};
 
     private final Logger logger;
 
     private final EntityManager entityManager;
+    private final QueryPlanCache queryPlanCache;
+    private final int transactionLimit;
     private final HashMap<String, String> tellerColumnMapping = new HashMap<>();
     private final HashMap<String, String> transactionColumnMapping = new HashMap<>();
     private final HashMap<String, String> allColumnMapping = new HashMap<>();
+    private final ReportDefinition reportDefinition;
 
     @Autowired
     public TellerTransactionReportSpecification(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
-                                                final EntityManager entityManager) {
+                                                final EntityManager entityManager,
+                                                final QueryPlanCache queryPlanCache,
+                                                @org.springframework.beans.factory.annotation.Value("${reporting.tellerTransactions.limit:100}")
+                                                final int transactionLimit) {
         super();
         this.logger = logger;
         this.entityManager = entityManager;
+        this.queryPlanCache = queryPlanCache;
+        this.transactionLimit = transactionLimit;
         this.initializeMapping();
+        this.reportDefinition = this.buildReportDefinition();
     }
 
     @Override
     public ReportDefinition getReportDefinition() {
+        return this.reportDefinition;
+    }
+
+    private ReportDefinition buildReportDefinition() {
         final ReportDefinition reportDefinition = new ReportDefinition();
         reportDefinition.setIdentifier("Transactions");
         reportDefinition.setName("Teller Transactions");
         reportDefinition.setDescription("List all teller-cashier transactions.");
-        reportDefinition.setQueryParameters(this.buildQueryParameters());
-        reportDefinition.setDisplayableFields(this.buildDisplayableFields());
+        reportDefinition.setQueryParameters(Collections.unmodifiableList(this.buildQueryParameters()));
+        reportDefinition.setDisplayableFields(Collections.unmodifiableList(this.buildDisplayableFields()));
         return reportDefinition;
     }
 
 
     @Override
     public ReportPage generateReport(ReportRequest reportRequest, int pageIndex, int size) {
+        return this.buildReportPage(reportRequest, pageIndex, null, size);
+    }
+
+    @Override
+    public ReportPage generateReport(final ReportRequest reportRequest, final String pageToken, final int size) {
+        return this.buildReportPage(reportRequest, 0, PageToken.decode(pageToken, KEY_COLUMNS.length), size);
+    }
+
+    private ReportPage buildReportPage(final ReportRequest reportRequest, final int pageIndex,
+                                      final String[] seekKeys, final int size) {
         final ReportDefinition reportDefinition = this.getReportDefinition();
         this.logger.info("Generating report {0}.", reportDefinition.getIdentifier());
 
@@ -86,14 +115,15 @@ public class TellerTransactionReportSpecification implements ReportSpecification
         reportPage.setDescription(reportDefinition.getDescription());
         reportPage.setHeader(this.createHeader(reportRequest.getDisplayableFields()));
 
-        final Query tellerQuery = this.entityManager.createNativeQuery(this.buildTellerQuery(reportRequest, pageIndex, size));
-        final List<?> tellerResultList = tellerQuery.getResultList();
-        reportPage.setRows(this.buildRows(reportRequest, tellerResultList));
-
-        reportPage.setHasMore(
-                !this.entityManager.createNativeQuery(this.buildTellerQuery(reportRequest, pageIndex + 1, size))
-                        .getResultList().isEmpty()
-        );
+        final String tellerQueryString = this.queryPlanCache.plan("Teller~Transactions", reportRequest, seekKeys != null,
+                () -> this.buildTellerQuery(reportRequest, seekKeys != null));
+        final Query tellerQuery = this.entityManager.createNativeQuery(tellerQueryString);
+        Pagination.bindLimit(tellerQuery, pageIndex, size);
+        Pagination.bindSeek(tellerQuery, seekKeys);
+        final List<?> tellerResultList = Statements.resultList(tellerQuery);
+        reportPage.setRows(this.buildRows(reportRequest, Pagination.currentPage(tellerResultList, size, KEY_COLUMNS.length)));
+        reportPage.setHasMore(Pagination.hasMore(tellerResultList, size));
+        reportPage.setNextPageToken(Pagination.buildNextPageToken(tellerResultList, size, KEY_COLUMNS.length));
 
         reportPage.setGeneratedBy(UserContextHolder.checkedGetUser());
         reportPage.setGeneratedOn(DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC())));
@@ -104,13 +134,16 @@ public class TellerTransactionReportSpecification implements ReportSpecification
     public void validate(ReportRequest reportRequest) throws IllegalArgumentException {
         final ArrayList<String> unknownFields = new ArrayList<>();
         reportRequest.getQueryParameters().forEach(queryParameter -> {
-            if (!this.allColumnMapping.keySet().contains(queryParameter.getName())) {
+            if (queryParameter.getName().equals(TRANSACTION_PAGE)) {
+                this.parseTransactionPage(queryParameter.getValue());
+            } else if (!this.allColumnMapping.keySet().contains(queryParameter.getName())) {
                 unknownFields.add(queryParameter.getName());
             }
         });
 
         reportRequest.getDisplayableFields().forEach(displayableField -> {
-            if (!this.allColumnMapping.keySet().contains(displayableField.getName())) {
+            if (!this.allColumnMapping.keySet().contains(displayableField.getName())
+                    && !displayableField.getName().equals(MORE_TRANSACTIONS)) {
                 unknownFields.add(displayableField.getName());
             }
         });
@@ -154,19 +187,18 @@ public class TellerTransactionReportSpecification implements ReportSpecification
     }
 
 
-    private List<Row> buildRows(ReportRequest reportRequest, List<?> tellerResultList) {
+    List<Row> buildRows(ReportRequest reportRequest, List<?> tellerResultList) {
         final ArrayList<Row> rows = new ArrayList<>();
+        final ArrayList<String> tellerIdentifiers = new ArrayList<>(tellerResultList.size());
 
         tellerResultList.forEach(result -> {
             final Row row = new Row();
             row.setValues(new ArrayList<>());
 
-            final String tellerIdentifier;
-
             if (result instanceof Object[]) {
                 final Object[] resultValues = (Object[]) result;
 
-                tellerIdentifier = resultValues[0].toString();
+                tellerIdentifiers.add(resultValues[0].toString());
 
                 for (final Object resultValue : resultValues) {
                     final Value value = new Value();
@@ -179,100 +211,115 @@ public class TellerTransactionReportSpecification implements ReportSpecification
                     row.getValues().add(value);
                 }
             } else {
-                tellerIdentifier = result.toString();
+                tellerIdentifiers.add(result.toString());
 
                 final Value value = new Value();
                 value.setValues(new String[]{result.toString()});
                 row.getValues().add(value);
             }
 
-            final String transactionQueryString = this.buildTellerTransactionQuery(reportRequest, tellerIdentifier);
-
-            final Query transactionQuery = this.entityManager.createNativeQuery(transactionQueryString);
-            final List<?> resultList = transactionQuery.getResultList();
-
-            final ArrayList<String> transactionType = new ArrayList<>();
-            final ArrayList<String> transactionDate = new ArrayList<>();
-            final ArrayList<String> customer = new ArrayList<>();
-            final ArrayList<String> source = new ArrayList<>();
-            final ArrayList<String> target = new ArrayList<>();
-            final ArrayList<String> clerk = new ArrayList<>();
-            final ArrayList<String> amount = new ArrayList<>();
-            final ArrayList<String> status = new ArrayList<>();
-            resultList.forEach(transaction -> {
-                        final Object[] transactionValue = (Object[]) transaction;
-
-                        for (int i = 0; i < transactionValue.length; i++) {
-                            if (i == 0 && transactionValue[0] != null) {
-                                transactionType.add(transactionValue[0].toString());
-                            }
-
-                            if (i == 1 && transactionValue[1] != null) {
-                                transactionDate.add(transactionValue[1].toString());
-                            }
-
-                            if (i == 2 && transactionValue[2] != null) {
-                                customer.add(transactionValue[2].toString());
-                            }
-
-                            if (i == 3 && transactionValue[3] != null) {
-                                source.add(transactionValue[3].toString());
-                            }
-
-                            if (i == 4 && transactionValue[4] != null) {
-                                target.add(transactionValue[4].toString());
-                            }
-                            if (i == 5 && transactionValue[5] != null) {
-                                clerk.add(transactionValue[5].toString());
-                            }
-                            if (i == 6 && transactionValue[6] != null) {
-                                amount.add(transactionValue[6].toString());
-                            }
-                            if (i == 7 && transactionValue[7] != null) {
-                                status.add(transactionValue[7].toString());
-                            }
-                        }
-                    }
-            );
+            rows.add(row);
+        });
 
-            final Value transactionTypeValue = new Value();
-            transactionTypeValue.setValues(transactionType.toArray(new String[transactionType.size()]));
-            row.getValues().add(transactionTypeValue);
+        if (rows.isEmpty()) {
+            return rows;
+        }
 
-            final Value transactionDateValue = new Value();
-            transactionDateValue.setValues(transactionDate.toArray(new String[transactionDate.size()]));
-            row.getValues().add(transactionDateValue);
+        final Map<String, TellerTransactions> transactionsByTeller =
+                this.fetchTransactions(reportRequest, tellerIdentifiers);
+        final boolean withMoreTransactions = reportRequest.getDisplayableFields()
+                .stream()
+                .anyMatch(displayableField -> displayableField.getName().equals(MORE_TRANSACTIONS));
 
-            final Value customerValue = new Value();
-            customerValue.setValues(customer.toArray(new String[customer.size()]));
-            row.getValues().add(customerValue);
+        for (int i = 0; i < rows.size(); i++) {
+            final TellerTransactions tellerTransactions =
+                    transactionsByTeller.getOrDefault(tellerIdentifiers.get(i), new TellerTransactions());
+            final List<Value> values = rows.get(i).getValues();
 
-            final Value sourceValue = new Value();
-            sourceValue.setValues(source.toArray(new String[source.size()]));
-            row.getValues().add(sourceValue);
+            for (final ArrayList<String> column : tellerTransactions.columns) {
+                final Value value = new Value();
+                value.setValues(column.toArray(new String[column.size()]));
+                values.add(value);
+            }
 
-            final Value targetValue = new Value();
-            targetValue.setValues(target.toArray(new String[target.size()]));
-            row.getValues().add(targetValue);
+            if (withMoreTransactions) {
+                final Value moreTransactionsValue = new Value();
+                moreTransactionsValue.setValues(new String[]{Boolean.toString(tellerTransactions.hasMore)});
+                values.add(moreTransactionsValue);
+            }
+        }
 
-            final Value clerkValue = new Value();
-            clerkValue.setValues(clerk.toArray(new String[clerk.size()]));
-            row.getValues().add(clerkValue);
+        return rows;
+    }
 
-            final Value amountValue = new Value();
-            amountValue.setValues(amount.toArray(new String[amount.size()]));
-            row.getValues().add(amountValue);
+    private Map<String, TellerTransactions> fetchTransactions(final ReportRequest reportRequest,
+                                                              final List<String> tellerIdentifiers) {
+        final HashMap<String, TellerTransactions> transactionsByTeller = new HashMap<>();
 
-            final Value statusValue = new Value();
-            statusValue.setValues(status.toArray(new String[status.size()]));
-            row.getValues().add(statusValue);
+        final String transactionQueryString = this.queryPlanCache.plan("Teller~Transactions~transactions", reportRequest, false,
+                () -> this.buildTellerTransactionQuery(reportRequest));
+        if (transactionQueryString == null) {
+            return transactionsByTeller;
+        }
 
-            rows.add(row);
+        final int firstRow = this.transactionLimit * this.findTransactionPage(reportRequest);
+
+        final Query transactionQuery = this.entityManager.createNativeQuery(transactionQueryString);
+        CriteriaBuilder.bindCriteria(transactionQuery, reportRequest.getQueryParameters()
+                .stream()
+                .filter(queryParameter -> !queryParameter.getName().equals(TRANSACTION_PAGE))
+                .collect(Collectors.toList()));
+        transactionQuery.setParameter("tellerIdentifiers", tellerIdentifiers);
+        transactionQuery.setParameter("firstRow", firstRow);
+        // fetch one extra row per teller to find out if the teller has more transactions
+        transactionQuery.setParameter("lastRow", firstRow + this.transactionLimit + 1);
+        final List<?> resultList = Statements.resultList(transactionQuery);
+
+        resultList.forEach(transaction -> {
+            final Object[] transactionValue = (Object[]) transaction;
+            final TellerTransactions tellerTransactions =
+                    transactionsByTeller.computeIfAbsent(transactionValue[0].toString(), key -> new TellerTransactions());
+
+            if (tellerTransactions.count == this.transactionLimit) {
+                tellerTransactions.hasMore = true;
+                return;
+            }
+            tellerTransactions.count++;
+
+            // first column is the teller the transaction belongs to, last column is its row number
+            for (int i = 1; i < transactionValue.length - 1 && i <= tellerTransactions.columns.length; i++) {
+                if (transactionValue[i] != null) {
+                    tellerTransactions.columns[i - 1].add(transactionValue[i].toString());
+                }
+            }
         });
 
-        return rows;
+        return transactionsByTeller;
+    }
+
+    private int findTransactionPage(final ReportRequest reportRequest) {
+        return reportRequest.getQueryParameters()
+                .stream()
+                .filter(queryParameter -> queryParameter.getName().equals(TRANSACTION_PAGE))
+                .findFirst()
+                .map(queryParameter -> this.parseTransactionPage(queryParameter.getValue()))
+                .orElse(0);
     }
 
+    private int parseTransactionPage(final String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            final int transactionPage = Integer.parseInt(value);
+            if (transactionPage < 0) {
+                throw new IllegalArgumentException("Transaction page must not be negative.");
+            }
+            return transactionPage;
+        } catch (final NumberFormatException nfex) {
+            throw new IllegalArgumentException("Transaction page must be a number.");
+        }
+    }
 
     private List<DisplayableField> buildDisplayableFields() {
         return Arrays.asList(
@@ -286,18 +333,20 @@ public class TellerTransactionReportSpecification implements ReportSpecification
                 DisplayableFieldBuilder.create(TARGET, Type.TEXT).mandatory().build(),
                 DisplayableFieldBuilder.create(CLERK, Type.TEXT).mandatory().build(),
                 DisplayableFieldBuilder.create(AMOUNT, Type.TEXT).mandatory().build(),
-                DisplayableFieldBuilder.create(STATUS, Type.TEXT).mandatory().build()
+                DisplayableFieldBuilder.create(STATUS, Type.TEXT).mandatory().build(),
+                DisplayableFieldBuilder.create(MORE_TRANSACTIONS, Type.TEXT).build()
         );
     }
 
     private List<QueryParameter> buildQueryParameters() {
         return Arrays.asList(
                 QueryParameterBuilder.create(TRANSACTION_DATE, Type.DATE).operator(QueryParameter.Operator.BETWEEN).build(),
-                QueryParameterBuilder.create(STATUS, Type.TEXT).operator(QueryParameter.Operator.IN).build()
+                QueryParameterBuilder.create(STATUS, Type.TEXT).operator(QueryParameter.Operator.IN).build(),
+                QueryParameterBuilder.create(TRANSACTION_PAGE, Type.NUMBER).build()
         );
     }
 
-    private String buildTellerQuery(ReportRequest reportRequest, int pageIndex, int size) {
+    private String buildTellerQuery(ReportRequest reportRequest, final boolean seek) {
         final StringBuilder query = new StringBuilder("SELECT ");
 
         final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
@@ -309,25 +358,26 @@ public class TellerTransactionReportSpecification implements ReportSpecification
             }
         });
 
+        columns.addAll(Arrays.asList(KEY_COLUMNS));
+
         query.append(columns.stream().collect(Collectors.joining(", ")))
                 .append(" FROM ")
                 .append("tajet_teller teller ");
 
+        if (seek) {
+            query.append(" WHERE ").append(Pagination.buildSeek(KEY_COLUMNS));
+        }
+
         query.append(" ORDER BY teller.id");
 
-        query.append(" LIMIT ");
-        query.append(size);
-        if (pageIndex > 0) {
-            query.append(" OFFSET ");
-            query.append(size * pageIndex);
-        }
+        query.append(Pagination.buildLimit());
 
         return query.toString();
     }
 
-    private String buildTellerTransactionQuery(final ReportRequest reportRequest, final String tellerIdentifier) {
+    private String buildTellerTransactionQuery(final ReportRequest reportRequest) {
 
-        final StringBuilder query = new StringBuilder("SELECT ");
+        final StringBuilder query = new StringBuilder("SELECT windowed.* FROM (SELECT trx.teller_id, ");
 
         final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
         final ArrayList<String> columns = new ArrayList<>();
@@ -338,33 +388,52 @@ public class TellerTransactionReportSpecification implements ReportSpecification
             }
         });
 
+        if (columns.isEmpty()) {
+            return null;
+        }
+
         query.append(columns.stream().collect(Collectors.joining(", ")))
+                .append(", ROW_NUMBER() OVER (PARTITION BY trx.teller_id ORDER BY trx.transaction_date, trx.id) AS row_num")
                 .append(" FROM ")
-                .append("tajet_teller_transactions trx " +
-                        "LEFT JOIN tajet_teller teller on trx.teller_id = teller.id ");
+                .append("tajet_teller_transactions trx ");
 
-        query.append("WHERE teller.id ='" + tellerIdentifier + "'");
+        query.append("WHERE trx.teller_id IN (:tellerIdentifiers)");
 
         final List<QueryParameter> queryParameters = reportRequest.getQueryParameters();
         if (!queryParameters.isEmpty()) {
-            final ArrayList<String> criteria = new ArrayList<>();
-            queryParameters.forEach(queryParameter -> {
-                if (queryParameter.getValue() != null && !queryParameter.getValue().isEmpty()) {
-                    criteria.add(
-                            CriteriaBuilder.buildCriteria(this.transactionColumnMapping.get(queryParameter.getName()), queryParameter)
-                    );
-                }
-            });
+            final ArrayList<String> criteria = CriteriaBuilder.buildCriteria(this.transactionColumnMapping,
+                    queryParameters
+                            .stream()
+                            .filter(queryParameter -> !queryParameter.getName().equals(TRANSACTION_PAGE))
+                            .collect(Collectors.toList()));
 
             if (!criteria.isEmpty()) {
                 query.append(" AND ");
-                query.append(criteria.stream().collect(Collectors.joining(" AND ")));
+                query.append(CriteriaBuilder.joinCriteria(criteria));
             }
 
         }
 
+        query.append(") windowed WHERE windowed.row_num > :firstRow AND windowed.row_num <= :lastRow")
+                .append(" ORDER BY windowed.teller_id, windowed.row_num");
+
         return query.toString();
     }
 
+    private static class TellerTransactions {
+
+        private final ArrayList<String>[] columns = TellerTransactions.createColumns();
+        private int count;
+        private boolean hasMore;
 
+        @SuppressWarnings("unchecked")
+        private static ArrayList<String>[] createColumns() {
+            // transaction type, date, customer, source, target, clerk, amount and status
+            final ArrayList<String>[] columns = new ArrayList[8];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = new ArrayList<>();
+            }
+            return columns;
+        }
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.rest;
+
+import io.mifos.anubis.annotation.AcceptedTokenType;
+import io.mifos.anubis.annotation.Permittable;
+import io.mifos.core.lang.ServiceException;
+import io.mifos.reporting.api.v1.PermittableGroupIds;
+import io.mifos.reporting.service.internal.autocomplete.AutoCompleteIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SuppressWarnings("unused")
+@RestController
+@RequestMapping("/autocomplete")
+public class AutoCompleteRestController {
+
+  private final AutoCompleteIndex autoCompleteIndex;
+  private final int maximumLimit;
+
+  @Autowired
+  public AutoCompleteRestController(final AutoCompleteIndex autoCompleteIndex,
+                                    @Value("${reporting.autoComplete.maximumLimit:100}") final int maximumLimit) {
+    super();
+    this.autoCompleteIndex = autoCompleteIndex;
+    this.maximumLimit = maximumLimit;
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.REPORT_MANAGEMENT)
+  @RequestMapping(
+      method = RequestMethod.GET,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public
+  ResponseEntity<List<String>> fetchResources() {
+    return ResponseEntity.ok(new ArrayList<>(this.autoCompleteIndex.getResources()));
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.REPORT_MANAGEMENT)
+  @RequestMapping(
+      value = "/{resource}",
+      method = RequestMethod.GET,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public
+  ResponseEntity<List<String>> complete(@PathVariable("resource") final String resource,
+                                        @RequestParam(value = "term", required = false, defaultValue = "") final String term,
+                                        @RequestParam(value = "limit", required = false, defaultValue = "10") final Integer limit) {
+    if (!this.autoCompleteIndex.supports(resource)) {
+      throw ServiceException.notFound("Auto complete resource {0} not found.", resource);
+    }
+    if (limit < 1 || limit > this.maximumLimit) {
+      throw ServiceException.badRequest("Limit must be between 1 and {0}.", this.maximumLimit);
+    }
+    return ResponseEntity.ok(this.autoCompleteIndex.complete(resource, term, limit));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.rest;
+
+import io.mifos.anubis.annotation.AcceptedTokenType;
+import io.mifos.anubis.annotation.Permittable;
+import io.mifos.reporting.api.v1.PermittableGroupIds;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.reporting.api.v1.domain.CacheStatistics;
+import io.mifos.reporting.api.v1.domain.ReportStatistics;
+import io.mifos.reporting.service.internal.cache.ReportResultCache;
+import io.mifos.reporting.service.internal.metrics.ReportMetrics;
+import io.mifos.reporting.service.spi.QueryPlanCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@SuppressWarnings("unused")
+@RestController
+@RequestMapping("/metrics")
+public class MetricsRestController {
+
+  private final QueryPlanCache queryPlanCache;
+  private final ReportResultCache reportResultCache;
+  private final ReportMetrics reportMetrics;
+
+  @Autowired
+  public MetricsRestController(final QueryPlanCache queryPlanCache,
+                               final ReportResultCache reportResultCache,
+                               final ReportMetrics reportMetrics) {
+    super();
+    this.queryPlanCache = queryPlanCache;
+    this.reportResultCache = reportResultCache;
+    this.reportMetrics = reportMetrics;
+  }
+
+  // the caches are shared by all tenants, so their figures are only shown to the system
+  @Permittable(value = AcceptedTokenType.SYSTEM)
+  @RequestMapping(
+      value = "/query-plans",
+      method = RequestMethod.GET,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public
+  ResponseEntity<CacheStatistics> fetchQueryPlanStatistics() {
+    final CacheStatistics cacheStatistics = new CacheStatistics();
+    cacheStatistics.setHits(this.queryPlanCache.getHits());
+    cacheStatistics.setMisses(this.queryPlanCache.getMisses());
+    cacheStatistics.setEvictions(this.queryPlanCache.getEvictions());
+    cacheStatistics.setSize(this.queryPlanCache.getSize());
+    return ResponseEntity.ok(cacheStatistics);
+  }
+
+  @Permittable(value = AcceptedTokenType.SYSTEM)
+  @RequestMapping(
+      value = "/report-results",
+      method = RequestMethod.GET,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public
+  ResponseEntity<CacheStatistics> fetchReportResultStatistics() {
+    final CacheStatistics cacheStatistics = new CacheStatistics();
+    cacheStatistics.setHits(this.reportResultCache.getHits());
+    cacheStatistics.setMisses(this.reportResultCache.getMisses());
+    cacheStatistics.setEvictions(this.reportResultCache.getEvictions());
+    cacheStatistics.setInvalidations(this.reportResultCache.getInvalidations());
+    cacheStatistics.setSize(this.reportResultCache.getSize());
+    cacheStatistics.setWeight(this.reportResultCache.getWeight());
+    return ResponseEntity.ok(cacheStatistics);
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.REPORT_MANAGEMENT)
+  @RequestMapping(
+      value = "/reports",
+      method = RequestMethod.GET,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public
+  ResponseEntity<List<ReportStatistics>> fetchReportStatistics() {
+    return ResponseEntity.ok(this.reportMetrics.fetchStatistics(TenantContextHolder.checkedGetIdentifier()));
+  }
+}
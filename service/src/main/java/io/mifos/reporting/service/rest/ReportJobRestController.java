@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.rest;
+
+import io.mifos.anubis.annotation.AcceptedTokenType;
+import io.mifos.anubis.annotation.Permittable;
+import io.mifos.core.lang.ServiceException;
+import io.mifos.reporting.api.v1.PermittableGroupIds;
+import io.mifos.reporting.api.v1.domain.ReportJob;
+import io.mifos.reporting.api.v1.domain.ReportPage;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.service.internal.job.ReportJobService;
+import io.mifos.reporting.service.internal.provider.ReportSpecificationProvider;
+import io.mifos.reporting.service.spi.ReportSpecification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.RejectedExecutionException;
+
+@SuppressWarnings("unused")
+@RestController
+@RequestMapping("/")
+public class ReportJobRestController {
+
+  private final ReportSpecificationProvider reportSpecificationProvider;
+  private final ReportJobService reportJobService;
+  private final int maximumPageSize;
+
+  @Autowired
+  public ReportJobRestController(final ReportSpecificationProvider reportSpecificationProvider,
+                                 final ReportJobService reportJobService,
+                                 @Value("${reporting.pages.maximumSize:10000}") final int maximumPageSize) {
+    super();
+    this.reportSpecificationProvider = reportSpecificationProvider;
+    this.reportJobService = reportJobService;
+    this.maximumPageSize = maximumPageSize;
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.REPORT_MANAGEMENT)
+  @RequestMapping(
+      value = "/categories/{category}/reports/{identifier}/jobs",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  public
+  ResponseEntity<ReportJob> submitReportJob(@PathVariable("category") final String category,
+                                            @PathVariable("identifier") final String identifier,
+                                            @RequestBody final ReportRequest reportRequest) {
+    final ReportSpecification reportSpecification =
+        this.reportSpecificationProvider.getReportSpecification(category, identifier)
+            .orElseThrow(() -> ServiceException.notFound("Report {0} not found.", identifier));
+
+    try {
+      reportSpecification.validate(reportRequest);
+    } catch (final IllegalArgumentException iaex) {
+      throw ServiceException.badRequest(iaex.getMessage());
+    }
+
+    try {
+      return ResponseEntity.status(HttpStatus.ACCEPTED)
+          .body(this.reportJobService.submit(category, identifier, reportSpecification, reportRequest));
+    } catch (final RejectedExecutionException rex) {
+      throw ServiceException.conflict("Report job for {0} not accepted, try again later.", identifier);
+    }
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.REPORT_MANAGEMENT)
+  @RequestMapping(
+      value = "/jobs/{jobIdentifier}",
+      method = RequestMethod.GET,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public
+  ResponseEntity<ReportJob> fetchReportJob(@PathVariable("jobIdentifier") final String jobIdentifier) {
+    return ResponseEntity.ok(this.reportJobService.findJob(jobIdentifier)
+        .orElseThrow(() -> ServiceException.notFound("Report job {0} not found.", jobIdentifier)));
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.REPORT_MANAGEMENT)
+  @RequestMapping(
+      value = "/jobs/{jobIdentifier}/pages",
+      method = RequestMethod.GET,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public
+  ResponseEntity<ReportPage> fetchReportJobPage(@PathVariable("jobIdentifier") final String jobIdentifier,
+                                                @RequestParam(value = "pageIndex", required = false, defaultValue = "0") final Integer pageIndex,
+                                                @RequestParam(value = "size", required = false, defaultValue = "20") final Integer size) {
+    if (pageIndex < 0 || size < 1 || size > this.maximumPageSize) {
+      throw ServiceException.badRequest("Invalid page {0} of size {1}.", pageIndex, size);
+    }
+
+    try {
+      return ResponseEntity.ok(this.reportJobService.fetchPage(jobIdentifier, pageIndex, size)
+          .orElseThrow(() -> ServiceException.notFound("Report job {0} not found.", jobIdentifier)));
+    } catch (final IllegalStateException isex) {
+      throw ServiceException.conflict(isex.getMessage());
+    }
+  }
+}
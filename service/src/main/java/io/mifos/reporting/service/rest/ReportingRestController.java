@@ -25,49 +25,93 @@ import io.mifos.core.lang.TenantContextHolder;
 import io.mifos.core.lang.config.TenantHeaderFilter;
 import io.mifos.reporting.api.v1.EventConstants;
 import io.mifos.reporting.api.v1.PermittableGroupIds;
+import io.mifos.reporting.api.v1.ReportingMediaTypes;
+import io.mifos.reporting.api.v1.client.ColumnarReportPages;
+import io.mifos.reporting.api.v1.domain.ColumnarReportPage;
+import io.mifos.reporting.api.v1.domain.CountMode;
+import io.mifos.reporting.api.v1.domain.DisplayableField;
 import io.mifos.reporting.api.v1.domain.ReportDefinition;
 import io.mifos.reporting.api.v1.domain.ReportPage;
 import io.mifos.reporting.api.v1.domain.ReportRequest;
 import io.mifos.reporting.service.ServiceConstants;
+import io.mifos.reporting.service.internal.cache.ReportResultCache;
+import io.mifos.reporting.service.internal.context.ContextSnapshot;
+import io.mifos.reporting.service.internal.export.ExportFormat;
+import io.mifos.reporting.service.internal.export.ExportWriter;
+import io.mifos.reporting.service.internal.metrics.ReportRecording;
 import io.mifos.reporting.service.internal.provider.ReportSpecificationProvider;
+import io.mifos.reporting.service.spi.InvalidPageTokenException;
 import io.mifos.reporting.service.spi.ReportSpecification;
+import io.mifos.reporting.service.spi.RowCount;
+import io.mifos.reporting.service.spi.SectionExecutor;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @SuppressWarnings("unused")
 @RestController
 @RequestMapping("/")
 public class ReportingRestController {
 
+  private static final MediaType COLUMNAR = MediaType.parseMediaType(ColumnarReportPage.MEDIA_TYPE);
+
   private final Logger logger;
   private final ReportSpecificationProvider reportSpecificationProvider;
   private final ApplicationName applicationName;
   private final JmsTemplate jmsTemplate;
+  private final ReportResultCache reportResultCache;
+  private final SectionExecutor sectionExecutor;
+  private final TransactionTemplate exportTransactionTemplate;
+  private final int exportFetchSize;
+  private final int maximumPageSize;
 
   @Autowired
   public ReportingRestController(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
                                  final ReportSpecificationProvider reportSpecificationProvider,
                                  final ApplicationName applicationName,
-                                 final JmsTemplate jmsTemplate) {
+                                 final JmsTemplate jmsTemplate,
+                                 final ReportResultCache reportResultCache,
+                                 final SectionExecutor sectionExecutor,
+                                 final PlatformTransactionManager transactionManager,
+                                 @Value("${reporting.export.fetchSize:500}") final int exportFetchSize,
+                                 @Value("${reporting.pages.maximumSize:10000}") final int maximumPageSize) {
     super();
     this.logger = logger;
     this.reportSpecificationProvider = reportSpecificationProvider;
     this.applicationName = applicationName;
     this.jmsTemplate = jmsTemplate;
+    this.reportResultCache = reportResultCache;
+    this.sectionExecutor = sectionExecutor;
+    this.exportTransactionTemplate = new TransactionTemplate(transactionManager);
+    this.exportTransactionTemplate.setReadOnly(true);
+    this.exportFetchSize = exportFetchSize;
+    this.maximumPageSize = maximumPageSize;
   }
 
   @Permittable(value = AcceptedTokenType.SYSTEM)
@@ -104,7 +148,7 @@ public class ReportingRestController {
   @RequestMapping(
       value = "/categories",
       method = RequestMethod.GET,
-      produces = MediaType.APPLICATION_JSON_VALUE,
+      produces = {MediaType.APPLICATION_JSON_VALUE, ReportingMediaTypes.SMILE, ReportingMediaTypes.CBOR},
       consumes = MediaType.ALL_VALUE
   )
   public
@@ -116,7 +160,7 @@ public class ReportingRestController {
   @RequestMapping(
       value = "categories/{category}",
       method = RequestMethod.GET,
-      produces = MediaType.APPLICATION_JSON_VALUE,
+      produces = {MediaType.APPLICATION_JSON_VALUE, ReportingMediaTypes.SMILE, ReportingMediaTypes.CBOR},
       consumes = MediaType.ALL_VALUE)
   public
   ResponseEntity<List<ReportDefinition>> fetchReportDefinitions(@PathVariable("category") final String category) {
@@ -127,38 +171,101 @@ public class ReportingRestController {
   @RequestMapping(
       value = "/categories/{category}/reports/{identifier}",
       method = RequestMethod.POST,
-      produces = MediaType.APPLICATION_JSON_VALUE,
+      produces = {
+          MediaType.APPLICATION_JSON_VALUE, ReportingMediaTypes.SMILE, ReportingMediaTypes.CBOR,
+          ColumnarReportPage.MEDIA_TYPE
+      },
       consumes = MediaType.APPLICATION_JSON_VALUE
   )
   public
-  ResponseEntity<ReportPage> generateReport(@PathVariable("category") final String category,
-                                           @PathVariable("identifier") final String identifier,
-                                           @RequestBody final ReportRequest reportRequest,
-                                           @RequestParam(value = "pageIndex", required = false) final Integer pageIndex,
-                                           @RequestParam(value = "size", required = false) final Integer size) {
+  ResponseEntity<?> generateReport(@PathVariable("category") final String category,
+                                   @PathVariable("identifier") final String identifier,
+                                   @RequestBody final ReportRequest reportRequest,
+                                   @RequestParam(value = "pageIndex", required = false) final Integer pageIndex,
+                                   @RequestParam(value = "size", required = false) final Integer size,
+                                   @RequestParam(value = "pageToken", required = false) final String pageToken,
+                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept) {
 
-    final Optional<ReportSpecification> optionalReportSpecification =
-        this.reportSpecificationProvider.getReportSpecification(category, identifier);
-    if (optionalReportSpecification.isPresent()) {
-      final ReportSpecification reportSpecification = optionalReportSpecification.get();
+    final ReportPage reportPage = this.produceReportPage(category, identifier, reportRequest, pageIndex, size, pageToken);
+    // the columnar form has to be asked for by name, wildcards keep getting the row based page
+    if (accept != null && MediaType.parseMediaTypes(accept).stream().anyMatch(mediaType ->
+        !mediaType.isWildcardType() && !mediaType.isWildcardSubtype() && mediaType.isCompatibleWith(COLUMNAR))) {
+      return ResponseEntity.ok().contentType(COLUMNAR).body(ColumnarReportPages.encode(reportPage));
+    }
+    return ResponseEntity.ok(reportPage);
+  }
 
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.REPORT_MANAGEMENT)
+  @RequestMapping(
+      value = "/categories/{category}/reports/{identifier}/export",
+      method = RequestMethod.POST,
+      produces = {"application/x-ndjson", "text/csv"},
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  public
+  ResponseEntity<StreamingResponseBody> exportReport(@PathVariable("category") final String category,
+                                                     @PathVariable("identifier") final String identifier,
+                                                     @RequestBody final ReportRequest reportRequest,
+                                                     @RequestParam(value = "format", required = false, defaultValue = "ndjson") final String format) {
+
+    final ReportSpecification reportSpecification =
+        this.reportSpecificationProvider.getReportSpecification(category, identifier)
+            .orElseThrow(() -> ServiceException.notFound("Report {0} not found.", identifier));
+
+    final ExportFormat exportFormat;
+    try {
+      exportFormat = ExportFormat.parse(format);
+      reportSpecification.validate(reportRequest);
+    } catch (final IllegalArgumentException iaex) {
+      throw ServiceException.badRequest(iaex.getMessage());
+    }
+
+    final List<String> columnNames = reportRequest.getDisplayableFields()
+        .stream()
+        .map(DisplayableField::getName)
+        .collect(Collectors.toList());
+
+    // the body is written on another thread, which needs the caller's tenant and an open transaction for the cursor
+    final ContextSnapshot contextSnapshot = ContextSnapshot.capture();
+    final StreamingResponseBody responseBody = outputStream -> {
+      contextSnapshot.apply();
       try {
-        reportSpecification.validate(reportRequest);
-      } catch (final IllegalArgumentException iaex) {
-        throw ServiceException.badRequest(iaex.getMessage());
+        final ExportWriter exportWriter = exportFormat.createWriter(outputStream);
+        exportWriter.writeHeader(columnNames);
+        this.exportTransactionTemplate.execute(status -> {
+          try {
+            reportSpecification.exportReport(reportRequest, this.exportFetchSize, exportWriter);
+          } catch (final IOException ioex) {
+            throw new UncheckedIOException(ioex);
+          }
+          return null;
+        });
+        exportWriter.flush();
+      } catch (final UncheckedIOException uioex) {
+        throw uioex.getCause();
+      } finally {
+        ContextSnapshot.clear();
       }
+    };
 
-      return ResponseEntity.ok(reportSpecification.generateReport(reportRequest, pageIndex, size));
-    } else {
-      throw ServiceException.notFound("Report {0} not found.", identifier);
-    }
+    this.logger.info("Exporting report {} as {}.", identifier, exportFormat);
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+        .body(responseBody);
+  }
+
+  // export bodies are handed to the export pool after the handler returned, so a full pool is only seen here
+  @ExceptionHandler(TaskRejectedException.class)
+  public ResponseEntity<Void> rejectExport(final TaskRejectedException trex) {
+    this.logger.warn("Export not accepted, all export threads are busy.");
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
   }
 
   @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.REPORT_MANAGEMENT)
   @RequestMapping(
       value = "categories/{category}/definitions/{identifier}",
       method = RequestMethod.GET,
-      produces = MediaType.APPLICATION_JSON_VALUE,
+      produces = {MediaType.APPLICATION_JSON_VALUE, ReportingMediaTypes.SMILE, ReportingMediaTypes.CBOR},
       consumes = MediaType.ALL_VALUE)
   public
   ResponseEntity<ReportDefinition> findReportDefinition(
@@ -169,4 +276,62 @@ public class ReportingRestController {
             .orElseThrow(() -> ServiceException.notFound("Report definition {0} not found.", identifier))
     );
   }
+
+  private ReportPage produceReportPage(final String category, final String identifier,
+                                       final ReportRequest reportRequest, final Integer pageIndex,
+                                       final Integer size, final String pageToken) {
+    // pages are addressed either by a token or by an index, both need a bounded size
+    if (size == null || size < 1 || size > this.maximumPageSize) {
+      throw ServiceException.badRequest("Invalid page size {0}.", size);
+    }
+    if (pageToken == null && (pageIndex == null || pageIndex < 0)) {
+      throw ServiceException.badRequest("Invalid page index {0}.", pageIndex);
+    }
+
+    final Optional<ReportSpecification> optionalReportSpecification =
+        this.reportSpecificationProvider.getReportSpecification(category, identifier);
+    if (optionalReportSpecification.isPresent()) {
+      final ReportSpecification reportSpecification = optionalReportSpecification.get();
+
+      final ReportRecording reportRecording =
+          ReportRecording.start(TenantContextHolder.checkedGetIdentifier(), category, identifier);
+      final long validateStart = System.nanoTime();
+      try {
+        reportSpecification.validate(reportRequest);
+      } catch (final IllegalArgumentException iaex) {
+        throw ServiceException.badRequest(iaex.getMessage());
+      }
+      reportRecording.add(ReportRecording.Phase.VALIDATE, System.nanoTime() - validateStart);
+
+      final long generateStart = System.nanoTime();
+      final CountMode countMode = reportRequest.getCountMode();
+      final CompletableFuture<Long> totalCount = countMode != null
+          ? this.sectionExecutor.fork(() -> this.reportResultCache.fetchCount(reportSpecification, reportRequest,
+              () -> reportSpecification.countRows(reportRequest, countMode)))
+          : null;
+      final String page = pageToken != null ? "token:" + pageToken + ":" + size : "index:" + pageIndex + ":" + size;
+      final ReportPage reportPage;
+      try {
+        reportPage = this.reportResultCache.fetch(reportSpecification, reportRequest, page,
+            () -> pageToken != null
+                ? reportSpecification.generateReport(reportRequest, pageToken, size)
+                : reportSpecification.generateReport(reportRequest, pageIndex, size));
+      } catch (final InvalidPageTokenException iptex) {
+        throw ServiceException.badRequest(iptex.getMessage());
+      }
+      if (totalCount != null) {
+        final Long count = SectionExecutor.join(totalCount);
+        if (count != null) {
+          reportPage.setTotalCount(count);
+          reportPage.setPageCount(RowCount.pageCount(count, size));
+          reportPage.setCountMode(countMode);
+        }
+      }
+      reportRecording.handled(System.nanoTime() - generateStart,
+          reportPage.getRows() != null ? reportPage.getRows().size() : 0L);
+      return reportPage;
+    } else {
+      throw ServiceException.notFound("Report {0} not found.", identifier);
+    }
+  }
 }
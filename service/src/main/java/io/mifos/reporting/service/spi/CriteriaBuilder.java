@@ -16,79 +16,124 @@
 package io.mifos.reporting.service.spi;
 
 import io.mifos.reporting.api.v1.domain.QueryParameter;
-import org.owasp.esapi.ESAPI;
-import org.owasp.esapi.Encoder;
-import org.owasp.esapi.codecs.MySQLCodec;
 import org.springframework.util.StringUtils;
 
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Criteria are rendered with named parameters derived from their position, and values are bound separately.
+ * Statements therefore only differ in text when their shape differs, which lets {@link QueryPlanCache} and
+ * the prepared statement cache reuse them.
+ */
 public class CriteriaBuilder {
 
-  // https://www.owasp.org/index.php/SQL_Injection_Prevention_Cheat_Sheet
-  public static Encoder ENCODER;
-  public static MySQLCodec MY_SQL_CODEC;
-
-  static {
-    // TODO move this code into bean
-    try {
-      ENCODER = ESAPI.encoder();
-      MY_SQL_CODEC = new MySQLCodec(MySQLCodec.Mode.ANSI);
-    } catch(final Exception e) {
-      System.out.println(e.getMessage());
-    }
-  }
-
   private CriteriaBuilder() {
     super();
   }
 
-  public static String buildCriteria(final String field, final QueryParameter queryParameter) {
+  public static String buildCriteria(final String field, final QueryParameter queryParameter, final int position) {
     final StringBuilder criteria = new StringBuilder(field);
+    final String name = ":criteria" + position;
 
     switch (queryParameter.getOperator()) {
       case EQUALS:
-        criteria.append(" = '");
-        criteria.append(CriteriaBuilder.ENCODER.encodeForSQL(CriteriaBuilder.MY_SQL_CODEC, queryParameter.getValue()));
-        criteria.append("'");
+        criteria.append(" = ").append(name);
         break;
       case LIKE:
-        criteria.append(" LIKE '%");
-        criteria.append(CriteriaBuilder.ENCODER.encodeForSQL(CriteriaBuilder.MY_SQL_CODEC, queryParameter.getValue()));
-        criteria.append("%'");
+        criteria.append(" LIKE ").append(name);
         break;
       case GREATER:
-        criteria.append(" > '");
-        criteria.append(CriteriaBuilder.ENCODER.encodeForSQL(CriteriaBuilder.MY_SQL_CODEC, queryParameter.getValue()));
-        criteria.append("'");
+        criteria.append(" > ").append(name);
         break;
       case LESSER:
-        criteria.append(" < '");
-        criteria.append(CriteriaBuilder.ENCODER.encodeForSQL(CriteriaBuilder.MY_SQL_CODEC, queryParameter.getValue()));
-        criteria.append("'");
+        criteria.append(" < ").append(name);
         break;
       case IN:
-        criteria.append(" in (");
-        final Set<String> strings = StringUtils.commaDelimitedListToSet(queryParameter.getValue());
-        criteria.append(
-            strings
-                .stream()
-                .map(s -> "'" + CriteriaBuilder.ENCODER.encodeForSQL(CriteriaBuilder.MY_SQL_CODEC, s) + "'")
-                .collect(Collectors.joining(","))
+        criteria.append(" in (").append(name).append(")");
+        break;
+      case BETWEEN:
+        criteria.append(" BETWEEN ").append(name).append("From AND ").append(name).append("To");
+        break;
+    }
+
+    return criteria.toString();
+  }
+
+  // renders every parameter with a value, in the order and with the positions bindCriteria binds them
+  public static ArrayList<String> buildCriteria(final Map<String, String> fieldMapping,
+                                                final List<QueryParameter> queryParameters) {
+    final ArrayList<String> criteria = new ArrayList<>();
+    for (final QueryParameter queryParameter : queryParameters) {
+      if (queryParameter.getValue() != null && !queryParameter.getValue().isEmpty()) {
+        criteria.add(
+            CriteriaBuilder.buildCriteria(fieldMapping.get(queryParameter.getName()), queryParameter, criteria.size())
         );
-        criteria.append(")");
+      }
+    }
+    return criteria;
+  }
+
+  public static String buildWhere(final Map<String, String> fieldMapping, final List<QueryParameter> queryParameters) {
+    return CriteriaBuilder.buildWhere(CriteriaBuilder.buildCriteria(fieldMapping, queryParameters));
+  }
+
+  public static String buildWhere(final List<String> criteria) {
+    return criteria.isEmpty() ? "" : " WHERE " + CriteriaBuilder.joinCriteria(criteria);
+  }
+
+  public static String joinCriteria(final List<String> criteria) {
+    return criteria.stream().collect(Collectors.joining(" AND "));
+  }
+
+  public static void bindCriteria(final Query query, final List<QueryParameter> queryParameters) {
+    int position = 0;
+    for (final QueryParameter queryParameter : queryParameters) {
+      if (queryParameter.getValue() != null && !queryParameter.getValue().isEmpty()) {
+        CriteriaBuilder.bindCriteria(query, queryParameter, position++);
+      }
+    }
+  }
+
+  private static void bindCriteria(final Query query, final QueryParameter queryParameter, final int position) {
+    final String name = "criteria" + position;
+
+    switch (queryParameter.getOperator()) {
+      case EQUALS:
+      case GREATER:
+      case LESSER:
+        query.setParameter(name, queryParameter.getValue());
+        break;
+      case LIKE:
+        query.setParameter(name, "%" + queryParameter.getValue() + "%");
+        break;
+      case IN:
+        query.setParameter(name, CriteriaBuilder.padToBucket(StringUtils.commaDelimitedListToSet(queryParameter.getValue())));
         break;
       case BETWEEN:
         final String[] splitString = queryParameter.getValue().split("\\.\\.");
-        criteria.append(" BETWEEN '");
-        criteria.append(CriteriaBuilder.ENCODER.encodeForSQL(CriteriaBuilder.MY_SQL_CODEC, splitString[0]));
-        criteria.append("' AND '");
-        criteria.append(CriteriaBuilder.ENCODER.encodeForSQL(CriteriaBuilder.MY_SQL_CODEC, splitString[1]));
-        criteria.append("'");
+        query.setParameter(name + "From", splitString[0]);
+        query.setParameter(name + "To", splitString[1]);
         break;
     }
+  }
 
-    return criteria.toString();
+  // collection parameters are expanded into one placeholder per element, so lists are padded with their last
+  // element to a power of two to keep the number of distinct statements small
+  private static ArrayList<String> padToBucket(final Set<String> values) {
+    final ArrayList<String> paddedValues = new ArrayList<>(values);
+    if (paddedValues.isEmpty()) {
+      paddedValues.add("");
+    }
+    final int bucketSize = Integer.highestOneBit(paddedValues.size() - 1) << 1;
+    final String lastValue = paddedValues.get(paddedValues.size() - 1);
+    while (paddedValues.size() < bucketSize) {
+      paddedValues.add(lastValue);
+    }
+    return paddedValues;
   }
 }
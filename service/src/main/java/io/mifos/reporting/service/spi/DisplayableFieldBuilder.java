@@ -15,14 +15,20 @@
  */
 package io.mifos.reporting.service.spi;
 
+import io.mifos.reporting.api.v1.domain.Aggregate;
 import io.mifos.reporting.api.v1.domain.DisplayableField;
 import io.mifos.reporting.api.v1.domain.Type;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 public class DisplayableFieldBuilder {
 
   private String name;
   private Type type;
   private Boolean mandatory;
+  private List<Aggregate> aggregates;
 
   private DisplayableFieldBuilder(final String name, final Type type) {
     super();
@@ -39,11 +45,17 @@ public class DisplayableFieldBuilder {
     return this;
   }
 
+  public DisplayableFieldBuilder aggregates(final Aggregate... aggregates) {
+    this.aggregates = Collections.unmodifiableList(Arrays.asList(aggregates));
+    return this;
+  }
+
   public DisplayableField build() {
     final DisplayableField displayableField = new DisplayableField();
     displayableField.setName(this.name);
     displayableField.setType(this.type);
     displayableField.setMandatory(this.mandatory != null ? this.mandatory : Boolean.FALSE);
+    displayableField.setAggregates(this.aggregates);
     return displayableField;
   }
 }
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.spi;
+
+import io.mifos.reporting.api.v1.domain.Aggregate;
+import io.mifos.reporting.api.v1.domain.DisplayableField;
+import io.mifos.reporting.api.v1.domain.Footer;
+import io.mifos.reporting.api.v1.domain.ReportDefinition;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.api.v1.domain.Value;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Computes the aggregates a request asks for over all rows matching the request, not just the current page. Which
+ * aggregates a field supports is declared on the report definition's displayable fields; which ones to compute is
+ * chosen per field name in {@link ReportRequest#getAggregates()}. Every table a field can be aggregated from is a
+ * source, joined to the report's main table so the report's criteria apply to it. Aggregates of all sources are
+ * fetched with a single statement, one derived table per source.
+ *
+ * <p>The footer holds one value per displayable field, with one entry per aggregate requested on it, in the order
+ * requested.</p>
+ */
+public class FooterAggregates {
+
+  private final Map<String, String> criteriaMapping;
+  private final List<Source> sources = new ArrayList<>();
+
+  private FooterAggregates(final Map<String, String> criteriaMapping) {
+    super();
+    this.criteriaMapping = criteriaMapping;
+  }
+
+  public static FooterAggregates create(final Map<String, String> criteriaMapping) {
+    return new FooterAggregates(criteriaMapping);
+  }
+
+  public FooterAggregates source(final String from, final Map<String, String> columnMapping) {
+    this.sources.add(new Source(from, columnMapping));
+    return this;
+  }
+
+  public static String describe(final ReportRequest reportRequest) {
+    if (reportRequest.getAggregates() == null) {
+      return "";
+    }
+    // aggregates are looked up by field name, so the order of the fields in the request does not change them
+    return reportRequest.getAggregates().entrySet()
+        .stream()
+        .filter(entry -> entry.getValue() != null && !entry.getValue().isEmpty())
+        .sorted(Map.Entry.comparingByKey())
+        .map(entry -> entry.getKey() + entry.getValue()
+            .stream()
+            .map(Aggregate::name)
+            .collect(Collectors.joining(",", "(", ")")))
+        .collect(Collectors.joining(","));
+  }
+
+  public static void validate(final ReportDefinition reportDefinition, final ReportRequest reportRequest)
+      throws IllegalArgumentException {
+    if (reportRequest.getAggregates() == null) {
+      return;
+    }
+
+    final ArrayList<String> unavailableAggregates = new ArrayList<>();
+    reportRequest.getAggregates().forEach((fieldName, aggregates) -> {
+      if (aggregates == null || aggregates.isEmpty()) {
+        return;
+      }
+      final boolean displayed = reportRequest.getDisplayableFields()
+          .stream()
+          .anyMatch(displayableField -> displayableField.getName().equals(fieldName));
+      final List<Aggregate> availableAggregates = reportDefinition.getDisplayableFields()
+          .stream()
+          .filter(definedField -> definedField.getName().equals(fieldName))
+          .findFirst()
+          .map(DisplayableField::getAggregates)
+          .orElse(null);
+      aggregates.forEach(aggregate -> {
+        if (!displayed || availableAggregates == null || !availableAggregates.contains(aggregate)) {
+          unavailableAggregates.add(aggregate + " of " + fieldName);
+        }
+      });
+    });
+
+    if (!unavailableAggregates.isEmpty()) {
+      throw new IllegalArgumentException(
+          "Unavailable aggregates requested: " + unavailableAggregates.stream().collect(Collectors.joining(", "))
+      );
+    }
+  }
+
+  public Footer fetchFooter(final EntityManager entityManager, final QueryPlanCache queryPlanCache,
+                            final String query, final ReportRequest reportRequest) {
+    final String footerQueryString =
+        queryPlanCache.plan(query, reportRequest, false, () -> this.buildQuery(reportRequest));
+    if (footerQueryString == null) {
+      return null;
+    }
+
+    final Query footerQuery = entityManager.createNativeQuery(footerQueryString);
+    CriteriaBuilder.bindCriteria(footerQuery, reportRequest.getQueryParameters());
+    final Object result = Statements.singleResult(footerQuery);
+    final Object[] aggregateValues = result instanceof Object[] ? (Object[]) result : new Object[]{result};
+
+    final List<RequestedAggregate> requestedAggregates = this.collect(reportRequest);
+    final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
+    final ArrayList<Value> values = new ArrayList<>(displayableFields.size());
+    for (final DisplayableField displayableField : displayableFields) {
+      final List<Aggregate> aggregates = FooterAggregates.requested(reportRequest, displayableField);
+      final Value value = new Value();
+      value.setValues(new String[aggregates.size()]);
+      values.add(value);
+    }
+    for (int i = 0; i < requestedAggregates.size(); i++) {
+      final RequestedAggregate requestedAggregate = requestedAggregates.get(i);
+      values.get(requestedAggregate.field).getValues()[requestedAggregate.position] =
+          aggregateValues[i] != null ? aggregateValues[i].toString() : null;
+    }
+
+    final Footer footer = new Footer();
+    footer.setValues(values);
+    return footer;
+  }
+
+  private String buildQuery(final ReportRequest reportRequest) {
+    final List<RequestedAggregate> requestedAggregates = this.collect(reportRequest);
+    if (requestedAggregates.isEmpty()) {
+      return null;
+    }
+
+    final String where = CriteriaBuilder.buildWhere(this.criteriaMapping, reportRequest.getQueryParameters());
+
+    final ArrayList<String> derivedTables = new ArrayList<>();
+    for (final Source source : this.sources) {
+      final List<String> expressions = requestedAggregates
+          .stream()
+          .filter(requestedAggregate -> requestedAggregate.source == source)
+          .map(RequestedAggregate::expression)
+          .collect(Collectors.toList());
+      if (!expressions.isEmpty()) {
+        derivedTables.add("SELECT " + expressions.stream().collect(Collectors.joining(", ")) + " FROM " + source.from + where);
+      }
+    }
+
+    if (derivedTables.size() == 1) {
+      return derivedTables.get(0);
+    }
+    final ArrayList<String> joinedTables = new ArrayList<>();
+    for (int i = 0; i < derivedTables.size(); i++) {
+      joinedTables.add("(" + derivedTables.get(i) + ") aggregates" + i);
+    }
+    return "SELECT * FROM " + joinedTables.stream().collect(Collectors.joining(" CROSS JOIN "));
+  }
+
+  // ordered by source first, which is the order the derived tables return their columns in
+  private List<RequestedAggregate> collect(final ReportRequest reportRequest) {
+    final ArrayList<RequestedAggregate> requestedAggregates = new ArrayList<>();
+    final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
+    for (final Source source : this.sources) {
+      for (int field = 0; field < displayableFields.size(); field++) {
+        final DisplayableField displayableField = displayableFields.get(field);
+        final String column = source.columnMapping.get(displayableField.getName());
+        final List<Aggregate> aggregates = FooterAggregates.requested(reportRequest, displayableField);
+        if (column != null) {
+          for (int position = 0; position < aggregates.size(); position++) {
+            requestedAggregates.add(new RequestedAggregate(source, column, aggregates.get(position), field, position));
+          }
+        }
+      }
+    }
+    return requestedAggregates;
+  }
+
+  private static List<Aggregate> requested(final ReportRequest reportRequest, final DisplayableField displayableField) {
+    if (reportRequest.getAggregates() == null) {
+      return Collections.emptyList();
+    }
+    final List<Aggregate> aggregates = reportRequest.getAggregates().get(displayableField.getName());
+    return aggregates != null ? aggregates : Collections.emptyList();
+  }
+
+  private static class Source {
+
+    private final String from;
+    private final Map<String, String> columnMapping;
+
+    private Source(final String from, final Map<String, String> columnMapping) {
+      super();
+      this.from = from;
+      this.columnMapping = columnMapping;
+    }
+  }
+
+  private static class RequestedAggregate {
+
+    private final Source source;
+    private final String column;
+    private final Aggregate aggregate;
+    private final int field;
+    private final int position;
+
+    private RequestedAggregate(final Source source, final String column, final Aggregate aggregate,
+                               final int field, final int position) {
+      super();
+      this.source = source;
+      this.column = column;
+      this.aggregate = aggregate;
+      this.field = field;
+      this.position = position;
+    }
+
+    private String expression() {
+      switch (this.aggregate) {
+        case SUM:
+          return "SUM(" + this.column + ")";
+        case MIN:
+          return "MIN(" + this.column + ")";
+        case MAX:
+          return "MAX(" + this.column + ")";
+        case COUNT_DISTINCT:
+          return "COUNT(DISTINCT " + this.column + ")";
+        default:
+          return "COUNT(" + this.column + ")";
+      }
+    }
+  }
+}
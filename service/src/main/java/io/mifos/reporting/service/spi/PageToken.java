@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.spi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * Opaque continuation token holding the sort key of the last row of a page. Clients pass it back unchanged to
+ * request the rows following that key.
+ */
+public class PageToken {
+
+  private static final String VERSION = "1";
+  private static final String SEPARATOR = "\u001f";
+  private static final Pattern SEPARATOR_PATTERN = Pattern.compile(SEPARATOR);
+
+  private PageToken() {
+    super();
+  }
+
+  public static String encode(final String... keys) {
+    final String plain = VERSION + SEPARATOR + String.join(SEPARATOR, keys);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static String[] decode(final String pageToken, final int keyCount) throws InvalidPageTokenException {
+    if (pageToken == null || pageToken.isEmpty()) {
+      throw new InvalidPageTokenException("Page token must not be empty.");
+    }
+
+    final String plain;
+    try {
+      plain = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+    } catch (final IllegalArgumentException iaex) {
+      throw new InvalidPageTokenException("Page token " + pageToken + " is invalid.");
+    }
+
+    final String[] parts = SEPARATOR_PATTERN.split(plain, -1);
+    if (parts.length != keyCount + 1 || !parts[0].equals(VERSION)) {
+      throw new InvalidPageTokenException("Page token " + pageToken + " is invalid.");
+    }
+
+    final String[] keys = new String[keyCount];
+    System.arraycopy(parts, 1, keys, 0, keyCount);
+    return keys;
+  }
+}
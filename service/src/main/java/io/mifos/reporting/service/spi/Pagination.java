@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.spi;
+
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pages are fetched with one additional row. If that row is present, more rows exist, so no second query is
+ * needed to populate {@link io.mifos.reporting.api.v1.domain.ReportPage#isHasMore()}.
+ *
+ * <p>Besides page indexes, pages can be addressed by a {@link PageToken} holding the sort key of the previous
+ * page's last row. Queries then seek directly past that key instead of skipping all earlier rows with an
+ * offset. The key columns are selected after the displayable columns and stripped before rows are built.</p>
+ */
+public class Pagination {
+
+  private Pagination() {
+    super();
+  }
+
+  public static String buildLimit() {
+    return " LIMIT :pageLimit OFFSET :pageOffset";
+  }
+
+  public static void bindLimit(final Query query, final int pageIndex, final int size) {
+    query.setParameter("pageLimit", (long) size + 1L);
+    query.setParameter("pageOffset", (long) size * pageIndex);
+  }
+
+  public static void bindUnlimited(final Query query) {
+    query.setParameter("pageLimit", Long.MAX_VALUE);
+    query.setParameter("pageOffset", 0);
+  }
+
+  public static boolean hasMore(final List<?> resultList, final int size) {
+    return resultList.size() > size;
+  }
+
+  public static <T> List<T> currentPage(final List<T> resultList, final int size) {
+    if (Pagination.hasMore(resultList, size)) {
+      return resultList.subList(0, size);
+    }
+    return resultList;
+  }
+
+  public static List<Object[]> currentPage(final List<?> resultList, final int size, final int keyCount) {
+    final List<?> currentPage = Pagination.currentPage(resultList, size);
+    final ArrayList<Object[]> rowsWithoutKeys = new ArrayList<>(currentPage.size());
+    currentPage.forEach(result -> {
+      final Object[] resultValues = (Object[]) result;
+      rowsWithoutKeys.add(Arrays.copyOf(resultValues, resultValues.length - keyCount));
+    });
+    return rowsWithoutKeys;
+  }
+
+  public static String buildSeek(final String... keyColumns) {
+    // k0 > :seekKey0 OR (k0 = :seekKey0 AND k1 > :seekKey1) OR ...
+    final StringBuilder seek = new StringBuilder("(");
+    for (int i = 0; i < keyColumns.length; i++) {
+      if (i > 0) {
+        seek.append(" OR (");
+        for (int j = 0; j < i; j++) {
+          seek.append(keyColumns[j]).append(" = :seekKey").append(j).append(" AND ");
+        }
+      }
+      seek.append(keyColumns[i]).append(" > :seekKey").append(i);
+      if (i > 0) {
+        seek.append(")");
+      }
+    }
+    return seek.append(")").toString();
+  }
+
+  public static void bindSeek(final Query query, final String[] seekKeys) {
+    if (seekKeys != null) {
+      for (int i = 0; i < seekKeys.length; i++) {
+        query.setParameter("seekKey" + i, seekKeys[i]);
+      }
+    }
+  }
+
+  public static String buildNextPageToken(final List<?> resultList, final int size, final int keyCount) {
+    if (size < 1 || !Pagination.hasMore(resultList, size)) {
+      return null;
+    }
+
+    final Object[] lastResultValues = (Object[]) resultList.get(size - 1);
+    final String[] keys = new String[keyCount];
+    for (int i = 0; i < keyCount; i++) {
+      final Object key = lastResultValues[lastResultValues.length - keyCount + i];
+      // a null key cannot be sought past, key columns have to be declared NOT NULL
+      if (key == null) {
+        throw new IllegalStateException("Key column " + i + " of the last row is null.");
+      }
+      keys[i] = key.toString();
+    }
+    return PageToken.encode(keys);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.spi;
+
+import io.mifos.reporting.api.v1.domain.DisplayableField;
+import io.mifos.reporting.api.v1.domain.QueryParameter;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+import io.mifos.reporting.service.internal.metrics.ReportRecording;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Caches the SQL text of report queries. The text only depends on the requested displayable fields, the names
+ * and operators of the query parameters carrying a value, and whether a page is addressed by token, so a
+ * repeated request can skip planning and go straight to binding its values. Once full, the plan used least
+ * recently makes room for a new one.
+ */
+@Component
+public class QueryPlanCache {
+
+  private final int maximumSize;
+  private final LinkedHashMap<String, String> plans = new LinkedHashMap<>(64, 0.75F, true);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  @Autowired
+  public QueryPlanCache(@Value("${reporting.queryPlans.maximumSize:1024}") final int maximumSize) {
+    super();
+    this.maximumSize = maximumSize;
+  }
+
+  public String plan(final String query, final ReportRequest reportRequest, final boolean seek,
+                     final Supplier<String> planner) {
+    final long start = System.nanoTime();
+    try {
+      return this.lookup(query, reportRequest, seek, planner);
+    } finally {
+      ReportRecording.record(ReportRecording.Phase.PLAN, System.nanoTime() - start);
+    }
+  }
+
+  private String lookup(final String query, final ReportRequest reportRequest, final boolean seek,
+                        final Supplier<String> planner) {
+    final String key = QueryPlanCache.buildKey(query, reportRequest, seek);
+    final String cachedPlan;
+    synchronized (this) {
+      cachedPlan = this.plans.get(key);
+    }
+    if (cachedPlan != null) {
+      this.hits.increment();
+      return cachedPlan;
+    }
+
+    this.misses.increment();
+    final String plan = planner.get();
+    if (plan != null) {
+      synchronized (this) {
+        this.plans.put(key, plan);
+        if (this.plans.size() > this.maximumSize) {
+          final Iterator<String> eldest = this.plans.keySet().iterator();
+          eldest.next();
+          eldest.remove();
+          this.evictions.increment();
+        }
+      }
+    }
+    return plan;
+  }
+
+  public long getHits() {
+    return this.hits.sum();
+  }
+
+  public long getMisses() {
+    return this.misses.sum();
+  }
+
+  public long getEvictions() {
+    return this.evictions.sum();
+  }
+
+  public synchronized int getSize() {
+    return this.plans.size();
+  }
+
+  private static String buildKey(final String query, final ReportRequest reportRequest, final boolean seek) {
+    final StringBuilder key = new StringBuilder();
+    QueryPlanCache.appendPart(key, query);
+    final List<DisplayableField> displayableFields = reportRequest.getDisplayableFields();
+    QueryPlanCache.appendPart(key, displayableFields.size());
+    displayableFields.forEach(displayableField -> QueryPlanCache.appendPart(key, displayableField.getName()));
+    QueryPlanCache.appendPart(key, FooterAggregates.describe(reportRequest));
+    final List<QueryParameter> queryParameters = reportRequest.getQueryParameters()
+        .stream()
+        .filter(queryParameter -> queryParameter.getValue() != null && !queryParameter.getValue().isEmpty())
+        .collect(Collectors.toList());
+    QueryPlanCache.appendPart(key, queryParameters.size());
+    queryParameters.forEach(queryParameter -> {
+      QueryPlanCache.appendPart(key, queryParameter.getName());
+      QueryPlanCache.appendPart(key, queryParameter.getOperator());
+    });
+    QueryPlanCache.appendPart(key, seek ? "seek" : "index");
+    return key.toString();
+  }
+
+  // every part is prefixed with its length, so no name can pass for a boundary and shift the parts after it
+  private static void appendPart(final StringBuilder key, final Object part) {
+    final String string = String.valueOf(part);
+    key.append(string.length()).append(':').append(string);
+  }
+}
@@ -30,4 +30,8 @@ import java.lang.annotation.Target;
 public @interface Report {
   String category();
   String identifier();
+  // seconds a generated page may be served from the result cache, 0 disables caching
+  long cacheTimeToLive() default 0L;
+  // tables the report reads, a change to any of them drops its cached results, none means any change does
+  String[] tables() default {};
 }
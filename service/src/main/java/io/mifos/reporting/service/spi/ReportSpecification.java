@@ -15,15 +15,40 @@
  */
 package io.mifos.reporting.service.spi;
 
+import io.mifos.reporting.api.v1.domain.CountMode;
 import io.mifos.reporting.api.v1.domain.ReportDefinition;
 import io.mifos.reporting.api.v1.domain.ReportPage;
 import io.mifos.reporting.api.v1.domain.ReportRequest;
 
+import java.io.IOException;
+
 public interface ReportSpecification {
 
   ReportDefinition getReportDefinition();
 
   ReportPage generateReport(final ReportRequest reportRequest, int pageIndex, int size);
 
+  default ReportPage generateReport(final ReportRequest reportRequest, final String pageToken, final int size)
+      throws IllegalArgumentException {
+    throw new InvalidPageTokenException("Report does not support page tokens.");
+  }
+
   void validate(final ReportRequest reportRequest) throws IllegalArgumentException;
+
+  default Long countRows(final ReportRequest reportRequest, final CountMode countMode) {
+    return null;
+  }
+
+  default void exportReport(final ReportRequest reportRequest, final int fetchSize, final RowWriter rowWriter)
+      throws IOException {
+    int pageIndex = 0;
+    ReportPage reportPage = this.generateReport(reportRequest, pageIndex, fetchSize);
+    rowWriter.write(reportPage.getRows());
+    while (reportPage.isHasMore()) {
+      reportPage = reportPage.getNextPageToken() != null
+          ? this.generateReport(reportRequest, reportPage.getNextPageToken(), fetchSize)
+          : this.generateReport(reportRequest, ++pageIndex, fetchSize);
+      rowWriter.write(reportPage.getRows());
+    }
+  }
 }
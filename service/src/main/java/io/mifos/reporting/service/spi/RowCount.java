@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.spi;
+
+import io.mifos.reporting.api.v1.domain.CountMode;
+import io.mifos.reporting.api.v1.domain.ReportRequest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the rows matching a request, under the same criteria as the report's listing. An exact count runs
+ * {@code COUNT(*)}, an estimated count reads the row estimate the optimizer reports for the statement, taken from
+ * table statistics without scanning the table.
+ */
+public class RowCount {
+
+  // position of the rows column in MariaDB's EXPLAIN output
+  private static final int EXPLAIN_ROWS = 8;
+
+  private final String from;
+  private final Map<String, String> criteriaMapping;
+
+  private RowCount(final String from, final Map<String, String> criteriaMapping) {
+    super();
+    this.from = from;
+    this.criteriaMapping = criteriaMapping;
+  }
+
+  public static RowCount create(final String from, final Map<String, String> criteriaMapping) {
+    return new RowCount(from, criteriaMapping);
+  }
+
+  public static Long pageCount(final long totalCount, final int size) {
+    if (size < 1) {
+      return null;
+    }
+    return (totalCount + size - 1) / size;
+  }
+
+  public Long count(final EntityManager entityManager, final QueryPlanCache queryPlanCache, final String query,
+                    final ReportRequest reportRequest, final CountMode countMode) {
+    if (countMode == CountMode.ESTIMATED) {
+      final String explainQueryString = queryPlanCache.plan(query + "~estimate", reportRequest, false,
+          () -> "EXPLAIN SELECT * FROM " + this.from + CriteriaBuilder.buildWhere(this.criteriaMapping, reportRequest.getQueryParameters()));
+      final Query explainQuery = entityManager.createNativeQuery(explainQueryString);
+      CriteriaBuilder.bindCriteria(explainQuery, reportRequest.getQueryParameters());
+      final List<?> plan = Statements.resultList(explainQuery);
+      if (plan.isEmpty()) {
+        return null;
+      }
+      final Object rows = ((Object[]) plan.get(0))[EXPLAIN_ROWS];
+      return rows != null ? Long.valueOf(rows.toString()) : null;
+    }
+
+    final String countQueryString = queryPlanCache.plan(query + "~count", reportRequest, false,
+        () -> "SELECT COUNT(*) FROM " + this.from + CriteriaBuilder.buildWhere(this.criteriaMapping, reportRequest.getQueryParameters()));
+    final Query countQuery = entityManager.createNativeQuery(countQueryString);
+    CriteriaBuilder.bindCriteria(countQuery, reportRequest.getQueryParameters());
+    return ((Number) Statements.singleResult(countQuery)).longValue();
+  }
+}
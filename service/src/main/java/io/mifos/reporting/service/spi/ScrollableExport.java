@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.spi;
+
+import io.mifos.reporting.api.v1.domain.Row;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+
+import javax.persistence.Query;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reads a query through a forward-only cursor and hands its results to the row builder in chunks of the fetch
+ * size, so only one chunk is held in memory at a time.
+ */
+public class ScrollableExport {
+
+  private ScrollableExport() {
+    super();
+  }
+
+  public static void export(final Query query, final int fetchSize, final int keyCount,
+                            final Function<List<Object[]>, List<Row>> rowBuilder,
+                            final RowWriter rowWriter) throws IOException {
+    final org.hibernate.Query hibernateQuery = query.unwrap(org.hibernate.Query.class);
+    hibernateQuery.setFetchSize(fetchSize);
+    hibernateQuery.setReadOnly(true);
+
+    final ScrollableResults scrollableResults = hibernateQuery.scroll(ScrollMode.FORWARD_ONLY);
+    try {
+      final ArrayList<Object[]> chunk = new ArrayList<>(fetchSize);
+      while (scrollableResults.next()) {
+        final Object[] resultValues = scrollableResults.get();
+        chunk.add(Arrays.copyOf(resultValues, resultValues.length - keyCount));
+        if (chunk.size() == fetchSize) {
+          rowWriter.write(rowBuilder.apply(chunk));
+          chunk.clear();
+        }
+      }
+      if (!chunk.isEmpty()) {
+        rowWriter.write(rowBuilder.apply(chunk));
+      }
+    } finally {
+      scrollableResults.close();
+    }
+  }
+}
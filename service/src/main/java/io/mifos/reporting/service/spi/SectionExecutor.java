@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.spi;
+
+import io.mifos.reporting.service.internal.context.ContextSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs independent sections of a report concurrently. A forked section runs on a pool of its own with the
+ * caller's tenant and user context, outside the caller's transaction, so its queries use a separate pooled
+ * connection. When the pool is saturated the section runs on the caller's thread instead.
+ */
+@Component
+public class SectionExecutor {
+
+  private final ThreadPoolTaskExecutor executor;
+
+  @Autowired
+  public SectionExecutor(@Value("${reporting.sections.poolSize:8}") final int poolSize,
+                         @Value("${reporting.sections.queueCapacity:16}") final int queueCapacity) {
+    super();
+    this.executor = new ThreadPoolTaskExecutor();
+    this.executor.setCorePoolSize(poolSize);
+    this.executor.setMaxPoolSize(poolSize);
+    this.executor.setQueueCapacity(queueCapacity);
+    this.executor.setThreadNamePrefix("report-section-");
+    this.executor.initialize();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    this.executor.shutdown();
+  }
+
+  public <T> CompletableFuture<T> fork(final Supplier<T> section) {
+    final ContextSnapshot contextSnapshot = ContextSnapshot.capture();
+    try {
+      return CompletableFuture.supplyAsync(() -> {
+        contextSnapshot.apply();
+        try {
+          return section.get();
+        } finally {
+          ContextSnapshot.clear();
+        }
+      }, this.executor);
+    } catch (final RejectedExecutionException rex) {
+      return CompletableFuture.completedFuture(section.get());
+    }
+  }
+
+  public static <T> T join(final CompletableFuture<T> forkedSection) {
+    try {
+      return forkedSection.join();
+    } catch (final CompletionException cex) {
+      if (cex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) cex.getCause();
+      }
+      throw cex;
+    }
+  }
+}
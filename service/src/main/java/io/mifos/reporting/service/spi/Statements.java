@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.reporting.service.spi;
+
+import io.mifos.reporting.service.internal.metrics.ReportRecording;
+
+import javax.persistence.Query;
+import java.util.List;
+
+/**
+ * Executes report statements, counting and timing each of them against the recording of the current request.
+ */
+public class Statements {
+
+  private Statements() {
+    super();
+  }
+
+  public static List<?> resultList(final Query query) {
+    final long start = System.nanoTime();
+    try {
+      return query.getResultList();
+    } finally {
+      ReportRecording.recordStatement(System.nanoTime() - start);
+    }
+  }
+
+  public static Object singleResult(final Query query) {
+    final long start = System.nanoTime();
+    try {
+      return query.getSingleResult();
+    } finally {
+      ReportRecording.recordStatement(System.nanoTime() - start);
+    }
+  }
+}